@@ -1,17 +1,20 @@
 package org.roland;
 
-//TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
-// click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
+import org.springframework.boot.SpringApplication;
+
+/**
+ * Bulk-load entry point: starts the application under the {@code import}
+ * profile, imports {@code --import.file} and exits.
+ *
+ * <pre>
+ * java -cp app.jar -Dloader.main=org.roland.Main org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --import.file=/data/messages.ndjson
+ * </pre>
+ */
 public class Main {
     public static void main(String[] args) {
-        //TIP Press <shortcut actionId="ShowIntentionActions"/> with your caret at the highlighted text
-        // to see how IntelliJ IDEA suggests fixing it.
-        System.out.printf("Hello and welcome!");
-
-        for (int i = 1; i <= 5; i++) {
-            //TIP Press <shortcut actionId="Debug"/> to start debugging your code. We have set one <icon src="AllIcons.Debugger.Db_set_breakpoint"/> breakpoint
-            // for you, but you can always add more by pressing <shortcut actionId="ToggleLineBreakpoint"/>.
-            System.out.println("i = " + i);
-        }
+        SpringApplication application = new SpringApplication(DemoApplication.class);
+        application.setAdditionalProfiles("import");
+        System.exit(SpringApplication.exit(application.run(args)));
     }
-}
\ No newline at end of file
+}
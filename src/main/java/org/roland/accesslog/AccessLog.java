@@ -0,0 +1,196 @@
+package org.roland.accesslog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Structured access log that stays off the request path. Request threads
+ * only copy a few fields into a pre-allocated ring ({@link AccessLogRing});
+ * a single writer thread drains it in batches, formats one JSON object per
+ * line and appends them to a size-rotated file. When the ring is full the
+ * entry is dropped and counted ({@code access.log.dropped}) rather than
+ * making the request wait. {@code access-log.sample-rate} below 1 keeps
+ * that share of successful requests; server errors are always kept.
+ */
+@Component
+@ConditionalOnProperty(name = "access-log.enabled", havingValue = "true", matchIfMissing = true)
+public class AccessLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+
+    private final AccessLogRing ring;
+    private final AccessLogFile file;
+    private final double sampleRate;
+    private final int batchSize;
+    private final long pollNanos;
+    private final Counter written;
+    private final Counter droppedFull;
+    private final Counter droppedError;
+    private final StringBuilder batch = new StringBuilder(64 * 1024);
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AccessLog(
+            @Value("${access-log.file:logs/access.log}") Path path,
+            @Value("${access-log.buffer-size:8192}") int bufferSize,
+            @Value("${access-log.sample-rate:1.0}") double sampleRate,
+            @Value("${access-log.batch-size:512}") int batchSize,
+            @Value("${access-log.poll-interval:10ms}") Duration pollInterval,
+            @Value("${access-log.max-file-size:100MB}") DataSize maxFileSize,
+            @Value("${access-log.max-history:5}") int maxHistory,
+            MeterRegistry meterRegistry) throws IOException {
+        this(new AccessLogRing(bufferSize), new AccessLogFile(path, maxFileSize.toBytes(), maxHistory),
+            sampleRate, batchSize, pollInterval, meterRegistry);
+    }
+
+    AccessLog(AccessLogRing ring, AccessLogFile file, double sampleRate, int batchSize, Duration pollInterval,
+              MeterRegistry meterRegistry) {
+        this.ring = ring;
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.batchSize = batchSize;
+        this.pollNanos = pollInterval.toNanos();
+        this.written = Counter.builder("access.log.written")
+            .description("Access log entries written to the file")
+            .register(meterRegistry);
+        this.droppedFull = dropped(meterRegistry, "buffer-full");
+        this.droppedError = dropped(meterRegistry, "write-error");
+        Gauge.builder("access.log.buffer.capacity", ring, AccessLogRing::capacity)
+            .description("Access log ring buffer slots")
+            .register(meterRegistry);
+        this.writer = Thread.ofPlatform().name("access-log-writer").daemon(true).start(this::drainLoop);
+    }
+
+    /** Whether a request with this status should be logged under the sample rate. */
+    public boolean sampled(int status) {
+        return sampleRate >= 1.0 || status >= 500 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /** Hands an entry to the writer; never blocks. Returns false if it was dropped. */
+    public boolean record(long epochMillis, String method, String path, int status, long bytes, long latencyNanos,
+                          long dbNanos) {
+        if (ring.offer(epochMillis, method, path, status, bytes, latencyNanos, dbNanos)) {
+            return true;
+        }
+        droppedFull.increment();
+        return false;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(5_000);
+    }
+
+    private void drainLoop() {
+        boolean dirty = false;
+        while (true) {
+            batch.setLength(0);
+            int drained = ring.drain(this::append, batchSize);
+            if (drained > 0) {
+                write(drained);
+                dirty = true;
+                continue;
+            }
+            if (dirty) {
+                flush();
+                dirty = false;
+            }
+            if (!running) {
+                break;
+            }
+            LockSupport.parkNanos(pollNanos);
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.warn("Could not close the access log: {}", e.toString());
+        }
+    }
+
+    private void write(int entries) {
+        try {
+            file.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+            written.increment(entries);
+        } catch (IOException e) {
+            droppedError.increment(entries);
+            log.warn("Dropped {} access log entries: {}", entries, e.toString());
+        }
+    }
+
+    private void flush() {
+        try {
+            file.flush();
+        } catch (IOException e) {
+            log.warn("Could not flush the access log: {}", e.toString());
+        }
+    }
+
+    private void append(AccessLogEntry entry) {
+        batch.append("{\"ts\":\"").append(Instant.ofEpochMilli(entry.epochMillis))
+            .append("\",\"method\":\"").append(entry.method)
+            .append("\",\"path\":\"");
+        appendEscaped(batch, entry.path);
+        batch.append("\",\"status\":").append(entry.status)
+            .append(",\"bytes\":").append(entry.bytes)
+            .append(",\"latencyMs\":");
+        appendMillis(batch, entry.latencyNanos);
+        batch.append(",\"dbMs\":");
+        appendMillis(batch, entry.dbNanos);
+        batch.append("}\n");
+    }
+
+    /** Nanoseconds as milliseconds with three decimals. */
+    static void appendMillis(StringBuilder out, long nanos) {
+        long micros = nanos / 1_000;
+        out.append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            out.append('0');
+        }
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    static void appendEscaped(StringBuilder out, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static Counter dropped(MeterRegistry registry, String reason) {
+        return Counter.builder("access.log.dropped")
+            .description("Access log entries lost instead of blocking requests")
+            .tag("reason", reason)
+            .register(registry);
+    }
+}
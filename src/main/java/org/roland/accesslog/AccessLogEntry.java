@@ -0,0 +1,26 @@
+package org.roland.accesslog;
+
+/**
+ * One pre-allocated ring slot. Producers fill it in place and the writer
+ * reads it; the slot's sequence in {@link AccessLogRing} orders the two.
+ */
+final class AccessLogEntry {
+
+    long epochMillis;
+    String method;
+    String path;
+    int status;
+    long bytes;
+    long latencyNanos;
+    long dbNanos;
+
+    void set(long epochMillis, String method, String path, int status, long bytes, long latencyNanos, long dbNanos) {
+        this.epochMillis = epochMillis;
+        this.method = method;
+        this.path = path;
+        this.status = status;
+        this.bytes = bytes;
+        this.latencyNanos = latencyNanos;
+        this.dbNanos = dbNanos;
+    }
+}
@@ -0,0 +1,60 @@
+package org.roland.accesslog;
+
+import java.io.IOException;
+
+import org.roland.service.DatabaseTime;
+import org.roland.time.CoarseClock;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records every {@code /api} request in the {@link AccessLog}: method, path,
+ * status, body bytes, total latency and the time spent in database calls
+ * (see {@link DatabaseTime}). The entry is recorded after the response is
+ * produced, on the request thread, without any I/O.
+ */
+@Component
+@ConditionalOnProperty(name = "access-log.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private final AccessLog accessLog;
+    private final CoarseClock clock;
+
+    public AccessLogFilter(AccessLog accessLog, CoarseClock clock) {
+        this.accessLog = accessLog;
+        this.clock = clock;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long startedAt = clock.millis();
+        long start = System.nanoTime();
+        DatabaseTime.reset();
+        CountingResponse counting = new CountingResponse(response);
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            chain.doFilter(request, counting);
+            status = counting.getStatus();
+        } finally {
+            if (accessLog.sampled(status)) {
+                accessLog.record(startedAt, request.getMethod(), request.getRequestURI(), status,
+                    counting.bytesWritten(), System.nanoTime() - start, DatabaseTime.elapsedNanos());
+            }
+        }
+    }
+}
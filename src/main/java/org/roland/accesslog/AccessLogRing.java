@@ -0,0 +1,80 @@
+package org.roland.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded multi-producer, single-consumer ring of pre-allocated
+ * {@link AccessLogEntry} slots. Each slot carries a sequence number: a
+ * producer may claim position {@code p} only when its slot's sequence is
+ * {@code p}, publishes it by setting {@code p + 1}, and the consumer hands
+ * the slot back by setting {@code p + capacity}. Claiming is one CAS on the
+ * tail; a full ring makes {@link #offer} return false instead of waiting.
+ */
+final class AccessLogRing {
+
+    private final AccessLogEntry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    AccessLogRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two, was " + capacity);
+        }
+        this.entries = new AccessLogEntry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new AccessLogEntry();
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    /** Returns false, without blocking, when every slot is still waiting for the writer. */
+    boolean offer(long epochMillis, String method, String path, int status, long bytes, long latencyNanos,
+                  long dbNanos) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries[index].set(epochMillis, method, path, status, bytes, latencyNanos, dbNanos);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (available < 0) {
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Hands up to {@code max} published entries, oldest first, to
+     * {@code consumer}. Only the writer thread may call this.
+     */
+    int drain(Consumer<AccessLogEntry> consumer, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            AccessLogEntry entry = entries[index];
+            consumer.accept(entry);
+            entry.path = null;
+            sequences.lazySet(index, head + entries.length);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+}
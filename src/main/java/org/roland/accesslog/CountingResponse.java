@@ -0,0 +1,102 @@
+package org.roland.accesslog;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Counts the body bytes written through the response without buffering
+ * them. Bodies written through {@link #getWriter()} are counted in
+ * characters, which matches bytes for the ASCII error pages that use it.
+ */
+final class CountingResponse extends HttpServletResponseWrapper {
+
+    private long count;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    CountingResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    long bytesWritten() {
+        return count;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream delegate = super.getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    delegate.write(b);
+                    count++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    delegate.write(b, off, len);
+                    count += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    delegate.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    delegate.close();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return delegate.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    delegate.setWriteListener(listener);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            PrintWriter delegate = super.getWriter();
+            writer = new PrintWriter(new Writer() {
+                @Override
+                public void write(char[] chars, int off, int len) {
+                    delegate.write(chars, off, len);
+                    count += len;
+                }
+
+                @Override
+                public void write(String text, int off, int len) {
+                    delegate.write(text, off, len);
+                    count += len;
+                }
+
+                @Override
+                public void flush() {
+                    delegate.flush();
+                }
+
+                @Override
+                public void close() {
+                    delegate.close();
+                }
+            });
+        }
+        return writer;
+    }
+}
@@ -0,0 +1,77 @@
+package org.roland.analytics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size frequency estimator. Estimates never undercount; they overcount
+ * by at most {@code e / width} of the total with probability
+ * {@code 1 - e^-depth}.
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final AtomicLongArray counts;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || Integer.bitCount(width) != 1 || depth <= 0) {
+            throw new IllegalArgumentException("width must be a positive power of two and depth positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new AtomicLongArray(width * depth);
+    }
+
+    /** Recreates a sketch from {@link #counts()}. */
+    public CountMinSketch(int width, int depth, long[] counts) {
+        this(width, depth);
+        if (counts.length != width * depth) {
+            throw new IllegalArgumentException("expected " + width * depth + " counters, got " + counts.length);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            this.counts.set(i, counts[i]);
+        }
+    }
+
+    /**
+     * Adds one occurrence and returns the updated estimate for the key.
+     */
+    public long add(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.incrementAndGet(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    public long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.get(index(row, hash)));
+        }
+        return estimate;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /** A copy of the counters, row by row. */
+    public long[] counts() {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return copy;
+    }
+
+    private int index(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return row * width + ((h1 + row * h2) & (width - 1));
+    }
+}
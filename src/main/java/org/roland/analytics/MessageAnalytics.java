@@ -0,0 +1,215 @@
+package org.roland.analytics;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.roland.dto.MessageAnalyticsResponse;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.roland.service.DatabaseGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Streaming content analytics in fixed memory: a Count-Min Sketch with a
+ * top-K heap for the most frequent terms, and a HyperLogLog for the number
+ * of distinct message contents. Fed from {@code addMessage}; seeded at
+ * startup, unless restored from a warm-start snapshot, and rebuilt on demand
+ * from the repository with a keyset-paged scan.
+ * <p>
+ * Rebuilds run one at a time on their own thread, each page a guarded call
+ * on the read lane. A rebuild requested while another one waits to start
+ * joins the waiting one.
+ */
+@Component
+public class MessageAnalytics implements SmartInitializingSingleton, DisposableBean {
+
+    static final int MIN_TERM_LENGTH = 3;
+
+    private static final Logger log = LoggerFactory.getLogger(MessageAnalytics.class);
+
+    private final MessageRepository messageRepository;
+    private final DatabaseGuard databaseGuard;
+    private final int width;
+    private final int depth;
+    private final int topK;
+    private final int precision;
+    private final int scanBatchSize;
+    private final boolean rebuildOnStart;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("analytics-rebuild").daemon(true).factory());
+    private final Object rebuildLock = new Object();
+    private CompletableFuture<MessageAnalyticsResponse> pendingRebuild;
+    private volatile CompletableFuture<MessageAnalyticsResponse> lastRebuild = CompletableFuture.completedFuture(null);
+
+    private volatile State state;
+    private volatile boolean restored;
+
+    public MessageAnalytics(
+            MessageRepository messageRepository,
+            DatabaseGuard databaseGuard,
+            MeterRegistry meterRegistry,
+            @Value("${analytics.sketch.width:4096}") int width,
+            @Value("${analytics.sketch.depth:4}") int depth,
+            @Value("${analytics.top-k:20}") int topK,
+            @Value("${analytics.hll.precision:14}") int precision,
+            @Value("${analytics.rebuild.batch-size:1000}") int scanBatchSize,
+            @Value("${analytics.rebuild.on-start:true}") boolean rebuildOnStart) {
+        this.messageRepository = messageRepository;
+        this.databaseGuard = databaseGuard;
+        this.width = width;
+        this.depth = depth;
+        this.topK = topK;
+        this.precision = precision;
+        this.scanBatchSize = scanBatchSize;
+        this.rebuildOnStart = rebuildOnStart;
+        this.state = newState();
+        Gauge.builder("messages.analytics.rebuilding", this, analytics -> analytics.rebuilding() ? 1 : 0)
+            .description("Whether an analytics rebuild is queued or running")
+            .register(meterRegistry);
+    }
+
+    /** Runs after the warm-start snapshot had its chance to restore the sketches. */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (rebuildOnStart && !restored) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public void record(Message message) {
+        state.record(message.getContent());
+    }
+
+    public MessageAnalyticsResponse snapshot() {
+        State current = state;
+        return new MessageAnalyticsResponse(current.messages.sum(), current.distinct.estimate(), current.topTerms.top());
+    }
+
+    /**
+     * Queues a rebuild and returns straight away; the future completes with
+     * the rebuilt analytics. The scan replaces the current sketches with fresh
+     * ones and replays every stored message into them. New messages keep
+     * flowing into the fresh state while it runs, so one committed during the
+     * scan may be counted twice.
+     */
+    public CompletableFuture<MessageAnalyticsResponse> rebuild() {
+        synchronized (rebuildLock) {
+            if (pendingRebuild == null) {
+                CompletableFuture<MessageAnalyticsResponse> next = new CompletableFuture<>();
+                pendingRebuild = next;
+                lastRebuild = next;
+                executor.execute(() -> runRebuild(next));
+            }
+            return pendingRebuild;
+        }
+    }
+
+    public boolean rebuilding() {
+        return !lastRebuild.isDone();
+    }
+
+    private void runRebuild(CompletableFuture<MessageAnalyticsResponse> result) {
+        synchronized (rebuildLock) {
+            pendingRebuild = null;
+        }
+        try {
+            result.complete(scan());
+        } catch (RuntimeException e) {
+            log.warn("Analytics rebuild failed: {}", e.toString());
+            result.completeExceptionally(e);
+        }
+    }
+
+    private MessageAnalyticsResponse scan() {
+        State fresh = newState();
+        state = fresh;
+        long lastId = 0;
+        List<Message> batch;
+        do {
+            long after = lastId;
+            batch = databaseGuard.read(
+                () -> messageRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(scanBatchSize)));
+            for (Message message : batch) {
+                fresh.record(message.getContent());
+                lastId = message.getId();
+            }
+        } while (batch.size() == scanBatchSize);
+        return snapshot();
+    }
+
+    public SketchState export() {
+        State current = state;
+        return new SketchState(current.messages.sum(), width, depth, current.sketch.counts(), precision,
+            current.distinct.registers(), current.topTerms.top());
+    }
+
+    /**
+     * Replaces the current sketches with saved ones. A state saved with a
+     * different sketch size or precision is not used.
+     *
+     * @return whether the state was loaded
+     */
+    public boolean restore(SketchState saved) {
+        if (saved.width() != width || saved.depth() != depth || saved.precision() != precision) {
+            return false;
+        }
+        TopK topTerms = new TopK(topK);
+        saved.topTerms().forEach(term -> topTerms.offer(term.term(), term.count()));
+        State loaded = new State(new CountMinSketch(width, depth, saved.counts()), topTerms,
+            new HyperLogLog(precision, saved.registers()));
+        loaded.messages.add(saved.messages());
+        state = loaded;
+        restored = true;
+        return true;
+    }
+
+    private State newState() {
+        return new State(new CountMinSketch(width, depth), new TopK(topK), new HyperLogLog(precision));
+    }
+
+    private record State(CountMinSketch sketch, TopK topTerms, HyperLogLog distinct, LongAdder messages) {
+
+        State(CountMinSketch sketch, TopK topTerms, HyperLogLog distinct) {
+            this(sketch, topTerms, distinct, new LongAdder());
+        }
+
+        void record(String content) {
+            if (content == null) {
+                return;
+            }
+            messages.increment();
+            distinct.add(Hashing.hash64(content));
+            int start = -1;
+            for (int i = 0; i <= content.length(); i++) {
+                boolean wordChar = i < content.length() && Character.isLetterOrDigit(content.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    if (i - start >= MIN_TERM_LENGTH) {
+                        String term = content.substring(start, i).toLowerCase(Locale.ROOT);
+                        topTerms.offer(term, sketch.add(Hashing.hash64(term)));
+                    }
+                    start = -1;
+                }
+            }
+        }
+    }
+}
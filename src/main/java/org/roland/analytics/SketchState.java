@@ -0,0 +1,14 @@
+package org.roland.analytics;
+
+import java.util.List;
+
+import org.roland.dto.TermCount;
+
+/**
+ * The state of {@link MessageAnalytics}, copied out so it can be saved and
+ * loaded again: the Count-Min counters row by row, the HyperLogLog registers
+ * and the current top terms.
+ */
+public record SketchState(long messages, int width, int depth, long[] counts, int precision, byte[] registers,
+                          List<TermCount> topTerms) {
+}
@@ -0,0 +1,57 @@
+package org.roland.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.roland.dto.TermCount;
+
+/**
+ * Keeps the {@code k} keys with the highest estimates in a min-heap, so a new
+ * key only has to beat the current smallest entry to get in.
+ */
+public class TopK {
+
+    private final int k;
+    private final Map<String, TermCount> entries = new HashMap<>();
+    private final PriorityQueue<TermCount> heap =
+        new PriorityQueue<>(Comparator.comparingLong(TermCount::count));
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+    }
+
+    public synchronized void offer(String term, long estimate) {
+        TermCount existing = entries.get(term);
+        if (existing != null) {
+            if (estimate > existing.count()) {
+                heap.remove(existing);
+                put(new TermCount(term, estimate));
+            }
+            return;
+        }
+        if (entries.size() < k) {
+            put(new TermCount(term, estimate));
+        } else if (estimate > heap.peek().count()) {
+            entries.remove(heap.poll().term());
+            put(new TermCount(term, estimate));
+        }
+    }
+
+    public synchronized List<TermCount> top() {
+        List<TermCount> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingLong(TermCount::count).reversed().thenComparing(TermCount::term));
+        return result;
+    }
+
+    private void put(TermCount entry) {
+        entries.put(entry.term(), entry);
+        heap.add(entry);
+    }
+}
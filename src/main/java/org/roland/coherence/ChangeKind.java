@@ -0,0 +1,11 @@
+package org.roland.coherence;
+
+/** What happened to the messages table, as recorded in {@code message_changes}. */
+public enum ChangeKind {
+    /** A message was inserted. */
+    CREATED,
+    /** A message was deleted. */
+    DELETED,
+    /** A purge that deleted messages has finished; derived state should be rebuilt. */
+    PURGE_FINISHED
+}
@@ -0,0 +1,90 @@
+package org.roland.coherence;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.sql.DataSource;
+
+import org.roland.model.Message;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends to {@code message_changes}. Callers invoke it inside the
+ * transaction that makes the change, so a change is in the feed exactly when
+ * it is committed. {@code created_at} is the database's clock, which lets
+ * every node measure staleness without trusting its own clock.
+ */
+@Component
+public class ChangeLog {
+
+    private static final String INSERT = "INSERT INTO message_changes (kind, message_id, message_timestamp, origin, created_at)"
+        + " VALUES (:kind, :messageId, :messageTimestamp, :origin, LOCALTIMESTAMP(3))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String origin;
+
+    @Autowired
+    public ChangeLog(DataSource dataSource,
+                     @Value("${coherence.enabled:true}") boolean enabled,
+                     @Value("${coherence.node-id:}") String nodeId) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.enabled = enabled;
+        this.origin = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    /** This node's name in the feed; its own changes are already applied locally. */
+    public String origin() {
+        return origin;
+    }
+
+    public void created(Message message) {
+        if (enabled) {
+            jdbcTemplate.update(INSERT, row(ChangeKind.CREATED, message.getId(), message.getTimestamp()));
+        }
+    }
+
+    public void deleted(Map<Long, LocalDateTime> timestampsById) {
+        if (enabled && !timestampsById.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, timestampsById.entrySet().stream()
+                .map(entry -> row(ChangeKind.DELETED, entry.getKey(), entry.getValue()))
+                .toArray(SqlParameterSource[]::new));
+        }
+    }
+
+    public void purgeFinished() {
+        if (enabled) {
+            jdbcTemplate.update(INSERT, row(ChangeKind.PURGE_FINISHED, null, null));
+        }
+    }
+
+    /**
+     * Whether any message was deleted after sequence number {@code seq}, as
+     * far back as the feed is retained.
+     */
+    public boolean deletedAfter(long seq) {
+        return !jdbcTemplate.queryForList("SELECT seq FROM message_changes WHERE seq > :seq AND kind = :kind LIMIT 1",
+            new MapSqlParameterSource().addValue("seq", seq).addValue("kind", ChangeKind.DELETED.name()),
+            Long.class).isEmpty();
+    }
+
+    private MapSqlParameterSource row(ChangeKind kind, Long messageId, LocalDateTime messageTimestamp) {
+        return new MapSqlParameterSource()
+            .addValue("kind", kind.name())
+            .addValue("messageId", messageId)
+            .addValue("messageTimestamp", messageTimestamp)
+            .addValue("origin", origin);
+    }
+
+    private static String defaultNodeId() {
+        String host = System.getenv().getOrDefault("HOSTNAME", "node");
+        String suffix = Integer.toHexString(ThreadLocalRandom.current().nextInt(0x1000000));
+        return host.substring(0, Math.min(host.length(), 48)) + "-" + suffix;
+    }
+}
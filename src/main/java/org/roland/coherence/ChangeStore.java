@@ -0,0 +1,72 @@
+package org.roland.coherence;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * Reads {@code message_changes} for the {@link ChangeWatcher}. Each read
+ * returns the changes after a sequence number, plus any sequence numbers
+ * still missing below it, joined to the message for inserts so a remote
+ * insert can be applied without another query.
+ */
+class ChangeStore {
+
+    record Change(long seq, ChangeKind kind, Long messageId, LocalDateTime messageTimestamp, String origin,
+                  LocalDateTime createdAt, String content, String channel) {
+    }
+
+    /** @param databaseNow the database clock when the changes were read */
+    record Batch(List<Change> changes, LocalDateTime databaseNow) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    ChangeStore(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /** The newest sequence number in the feed, or 0 when it is empty. */
+    long head() {
+        Long head = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM message_changes",
+            new MapSqlParameterSource(), Long.class);
+        return head == null ? 0 : head;
+    }
+
+    Batch after(long seq, Collection<Long> gaps, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("after", seq)
+            .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT c.seq, c.kind, c.message_id, c.message_timestamp, c.origin,"
+            + " c.created_at, m.content, m.channel, LOCALTIMESTAMP(3) AS database_now"
+            + " FROM message_changes c LEFT JOIN messages m ON m.id = c.message_id AND c.kind = 'CREATED'"
+            + " WHERE c.seq > :after");
+        if (!gaps.isEmpty()) {
+            sql.append(" OR c.seq IN (:gaps)");
+            params.addValue("gaps", gaps);
+        }
+        sql.append(" ORDER BY c.seq LIMIT :limit");
+        LocalDateTime[] databaseNow = new LocalDateTime[1];
+        List<Change> changes = jdbcTemplate.query(sql.toString(), params, (row, rowNum) -> {
+            databaseNow[0] = row.getObject("database_now", LocalDateTime.class);
+            return new Change(row.getLong("seq"), ChangeKind.valueOf(row.getString("kind")),
+                row.getObject("message_id", Long.class), row.getObject("message_timestamp", LocalDateTime.class),
+                row.getString("origin"), row.getObject("created_at", LocalDateTime.class),
+                row.getString("content"), row.getString("channel"));
+        });
+        return new Batch(changes, databaseNow[0]);
+    }
+
+    /** Deletes up to {@code limit} changes older than {@code retention}. */
+    int prune(Duration retention, int limit) {
+        return jdbcTemplate.update("DELETE FROM message_changes"
+                + " WHERE created_at < TIMESTAMPADD(SECOND, :seconds, LOCALTIMESTAMP) LIMIT :limit",
+            new MapSqlParameterSource().addValue("seconds", -retention.toSeconds()).addValue("limit", limit));
+    }
+}
@@ -0,0 +1,275 @@
+package org.roland.coherence;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.roland.analytics.MessageAnalytics;
+import org.roland.model.Message;
+import org.roland.service.MessageQueryService;
+import org.roland.stats.MessageRateStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Keeps this node's in-process state coherent with writes made on other
+ * nodes, using only the {@code message_changes} table. Every
+ * {@code poll-interval} it reads the changes after the last sequence number
+ * it has seen and applies the ones other nodes made: deleted messages leave
+ * the second-level cache, the stale-read snapshots and the rate windows;
+ * inserted ones are added to the rate windows and analytics; a finished
+ * purge triggers an analytics rebuild.
+ * <p>
+ * Auto-increment values are handed out at insert time but become visible at
+ * commit, so a lower sequence number can appear after a higher one. Missing
+ * numbers are remembered and asked for again until they show up or
+ * {@code gap-timeout} passes (a rolled-back insert never shows up).
+ * <p>
+ * Staleness, from a change's {@code created_at} to when this node applied
+ * it, is measured on the database clock and exported as
+ * {@code cache.coherence.staleness}. If the feed cannot be read for longer
+ * than {@code max-staleness}, the whole message cache region is dropped, and
+ * dropped again every {@code max-staleness} until a read succeeds, so nothing
+ * served from the cache is ever older than that.
+ */
+@Component
+@ConditionalOnProperty(name = "coherence.enabled", havingValue = "true", matchIfMissing = true)
+public class ChangeWatcher implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeWatcher.class);
+    private static final int MAX_GAPS = 10_000;
+
+    private final ChangeStore store;
+    private final String origin;
+    private final MessageRateStats messageRateStats;
+    private final MessageQueryService messageQueryService;
+    private final MessageAnalytics messageAnalytics;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Duration pollInterval;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final long maxStalenessNanos;
+    private final Duration retention;
+    private final Duration pruneInterval;
+    private final Timer staleness;
+    private final Map<ChangeKind, Counter> applied = new EnumMap<>(ChangeKind.class);
+    private final Counter expiredGaps;
+    private final Counter invalidations;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2,
+        Thread.ofPlatform().name("cache-coherence-", 1).daemon(true).factory());
+    private volatile long lastSeq = -1;
+    private volatile long appliedThrough = -1;
+    private volatile long lastPolledAt = System.nanoTime();
+    private long cacheCheckedAt = System.nanoTime();
+
+    public ChangeWatcher(
+            DataSource dataSource,
+            ChangeLog changeLog,
+            MessageRateStats messageRateStats,
+            MessageQueryService messageQueryService,
+            MessageAnalytics messageAnalytics,
+            EntityManagerFactory entityManagerFactory,
+            MeterRegistry meterRegistry,
+            @Value("${coherence.poll-interval:200ms}") Duration pollInterval,
+            @Value("${coherence.batch-size:500}") int batchSize,
+            @Value("${coherence.gap-timeout:10s}") Duration gapTimeout,
+            @Value("${coherence.max-staleness:5s}") Duration maxStaleness,
+            @Value("${coherence.retention:1h}") Duration retention,
+            @Value("${coherence.prune-interval:1m}") Duration pruneInterval) {
+        this.store = new ChangeStore(dataSource);
+        this.origin = changeLog.origin();
+        this.messageRateStats = messageRateStats;
+        this.messageQueryService = messageQueryService;
+        this.messageAnalytics = messageAnalytics;
+        this.entityManagerFactory = entityManagerFactory;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.retention = retention;
+        this.pruneInterval = pruneInterval;
+        this.staleness = Timer.builder("cache.coherence.staleness")
+            .description("Time from a change on another node to this node applying it (database clock)")
+            .register(meterRegistry);
+        for (ChangeKind kind : ChangeKind.values()) {
+            applied.put(kind, Counter.builder("cache.coherence.applied")
+                .description("Changes from other nodes applied to this node's caches")
+                .tag("kind", kind.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+        }
+        this.expiredGaps = Counter.builder("cache.coherence.gaps.expired")
+            .description("Missing sequence numbers given up on (rolled back or pruned)")
+            .register(meterRegistry);
+        this.invalidations = Counter.builder("cache.coherence.invalidations")
+            .description("Full cache drops because the change feed could not be read within max-staleness")
+            .register(meterRegistry);
+        Gauge.builder("cache.coherence.sequence", this, watcher -> watcher.lastSeq)
+            .description("Last change sequence number this node has read")
+            .register(meterRegistry);
+        Gauge.builder("cache.coherence.lag", this, watcher -> (System.nanoTime() - watcher.lastPolledAt) / 1e9)
+            .description("Seconds since the change feed was last read successfully")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        executor.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::prune, pruneInterval.toMillis(), pruneInterval.toMillis(),
+            TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /** Reads and applies everything new in the feed. Runs on the watcher thread only. */
+    void poll() {
+        try {
+            if (lastSeq < 0) {
+                // caches start empty and the stats are seeded from the table, so nothing before now matters
+                lastSeq = store.head();
+            } else {
+                ChangeStore.Batch batch;
+                do {
+                    batch = store.after(lastSeq, gaps.keySet(), batchSize);
+                    apply(batch);
+                } while (batch.changes().size() == batchSize);
+                expireGaps();
+            }
+            appliedThrough = gaps.isEmpty() ? lastSeq : gaps.keySet().iterator().next() - 1;
+            lastPolledAt = System.nanoTime();
+            cacheCheckedAt = lastPolledAt;
+        } catch (RuntimeException e) {
+            log.warn("Could not read the change feed: {}", e.toString());
+            // dropped again every max-staleness: what was cached since may already be stale
+            if (System.nanoTime() - cacheCheckedAt > maxStalenessNanos) {
+                invalidateAll();
+            }
+        }
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * The sequence number up to which every change has been applied here
+     * (or given up on), or -1 before the first poll.
+     */
+    public long appliedThrough() {
+        return appliedThrough;
+    }
+
+    int pendingGaps() {
+        return gaps.size();
+    }
+
+    private void apply(ChangeStore.Batch batch) {
+        Set<Long> deletedIds = new HashSet<>();
+        List<LocalDateTime> deletedTimestamps = new ArrayList<>();
+        boolean purgeFinished = false;
+        long now = System.nanoTime();
+        for (ChangeStore.Change change : batch.changes()) {
+            advance(change.seq(), now);
+            if (change.origin().equals(origin)) {
+                continue;
+            }
+            switch (change.kind()) {
+                case CREATED -> {
+                    if (change.content() != null) {
+                        Message message = new Message(change.content(), change.channel(), change.messageTimestamp());
+                        message.setId(change.messageId());
+                        messageRateStats.record();
+                        messageAnalytics.record(message);
+                    }
+                }
+                case DELETED -> {
+                    deletedIds.add(change.messageId());
+                    deletedTimestamps.add(change.messageTimestamp());
+                }
+                case PURGE_FINISHED -> purgeFinished = true;
+            }
+            applied.get(change.kind()).increment();
+            if (batch.databaseNow() != null) {
+                staleness.record(Duration.between(change.createdAt(), batch.databaseNow()));
+            }
+        }
+        if (!deletedIds.isEmpty()) {
+            deletedIds.forEach(id -> entityManagerFactory.getCache().evict(Message.class, id));
+            messageQueryService.forget(deletedIds);
+            messageRateStats.forget(deletedTimestamps);
+        }
+        if (purgeFinished) {
+            messageAnalytics.rebuild();
+        }
+    }
+
+    /** Moves past {@code seq}, remembering any numbers skipped on the way. */
+    private void advance(long seq, long now) {
+        if (gaps.remove(seq) != null || seq <= lastSeq) {
+            return;
+        }
+        for (long missing = lastSeq + 1; missing < seq && gaps.size() < MAX_GAPS; missing++) {
+            gaps.put(missing, now);
+        }
+        lastSeq = seq;
+    }
+
+    private void expireGaps() {
+        long now = System.nanoTime();
+        Iterator<Long> firstSeen = gaps.values().iterator();
+        while (firstSeen.hasNext()) {
+            if (now - firstSeen.next() < gapTimeoutNanos) {
+                break;
+            }
+            firstSeen.remove();
+            expiredGaps.increment();
+        }
+    }
+
+    private void invalidateAll() {
+        entityManagerFactory.getCache().evict(Message.class);
+        cacheCheckedAt = System.nanoTime();
+        invalidations.increment();
+        log.warn("Change feed unreadable for over {} ms; dropped the message cache", maxStalenessNanos / 1_000_000);
+    }
+
+    private void prune() {
+        try {
+            int pruned;
+            do {
+                pruned = store.prune(retention, batchSize);
+            } while (pruned == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Could not prune the change feed: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.roland.coherence;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One entry in the change feed that keeps the nodes' in-process caches
+ * coherent. The auto-increment {@code seq} orders the feed; rows are written
+ * in the transaction of the change they describe and pruned after
+ * {@code coherence.retention}. Mapped so Hibernate creates the table; reads
+ * and writes go through JDBC (see {@link ChangeLog}, {@link ChangeStore}).
+ */
+@Entity
+@Table(name = "message_changes", indexes = @Index(name = "idx_message_changes_created_at", columnList = "createdAt"))
+public class MessageChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ChangeKind kind;
+
+    private Long messageId;
+
+    private LocalDateTime messageTimestamp;
+
+    @Column(nullable = false, length = 64)
+    private String origin;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    protected MessageChange() {
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public ChangeKind getKind() {
+        return kind;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+}
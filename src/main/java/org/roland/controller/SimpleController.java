@@ -1,75 +1,186 @@
 package org.roland.controller;
 
+import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
+import org.roland.analytics.MessageAnalytics;
 import org.roland.dto.CounterResponse;
 import org.roland.dto.HelloResponse;
 import org.roland.dto.InfoResponse;
+import org.roland.dto.MessageAnalyticsResponse;
 import org.roland.dto.MessageRequest;
 import org.roland.dto.MessageResponse;
+import org.roland.dto.MessageStatsResponse;
 import org.roland.model.Message;
-import org.roland.model.MessageRepository;
+import org.roland.outbox.OutboxWriter;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.MessageQueryService;
+import org.roland.service.ReadResult;
+import org.roland.shard.ShardedMessageStore;
+import org.roland.stats.HitCounter;
+import org.roland.stats.MessageRateStats;
+import org.roland.time.CoarseClock;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
 
 @RestController
 @RequestMapping("/api")
 //@CrossOrigin(origins = "*")
 public class SimpleController {
 
-    private final AtomicLong counter = new AtomicLong();
-    private final MessageRepository messageRepository;
+    static final String STALE_HEADER = "X-Data-Stale";
 
-    public SimpleController(MessageRepository messageRepository) {
-        this.messageRepository = messageRepository;
+    private final OutboxWriter outboxWriter;
+    private final DatabaseGuard databaseGuard;
+    private final MessageQueryService messageQueryService;
+    private final MessageRateStats messageRateStats;
+    private final MessageAnalytics messageAnalytics;
+    private final ShardedMessageStore shardedMessageStore;
+    private final CoarseClock clock;
+    private final HitCounter hitCounter;
+
+    public SimpleController(OutboxWriter outboxWriter, DatabaseGuard databaseGuard,
+                            MessageQueryService messageQueryService, MessageRateStats messageRateStats,
+                            MessageAnalytics messageAnalytics, ShardedMessageStore shardedMessageStore,
+                            CoarseClock clock, HitCounter hitCounter) {
+        this.outboxWriter = outboxWriter;
+        this.databaseGuard = databaseGuard;
+        this.messageQueryService = messageQueryService;
+        this.messageRateStats = messageRateStats;
+        this.messageAnalytics = messageAnalytics;
+        this.shardedMessageStore = shardedMessageStore;
+        this.clock = clock;
+        this.hitCounter = hitCounter;
     }
 
     @GetMapping("/hello")
     public ResponseEntity<HelloResponse> hello() {
         return ResponseEntity.ok(
-            new HelloResponse("Hello from Java Docker app!", LocalDateTime.now().toString())
+            new HelloResponse("Hello from Java Docker app!", clock.nowIso())
         );
     }
 
     @GetMapping("/counter")
     public ResponseEntity<CounterResponse> getCounter() {
-        return ResponseEntity.ok(new CounterResponse(counter.incrementAndGet()));
+        return ResponseEntity.ok(new CounterResponse(hitCounter.increment()));
     }
 
     @PostMapping("/messages")
     public ResponseEntity<MessageResponse> addMessage(@Valid @RequestBody MessageRequest request) {
-        Message message = new Message(request.content());
-        message.setTimestamp(LocalDateTime.now());
-        Message savedMessage = messageRepository.save(message);
+        if (request.channel() != null) {
+            return addChannelMessage(request.channel(), request);
+        }
+        Message message = new Message(request.content(), clock.exactNow());
+        Message savedMessage = databaseGuard.write(() -> outboxWriter.save(message));
+        messageRateStats.record();
+        messageAnalytics.record(savedMessage);
         return ResponseEntity.ok(MessageResponse.fromEntity(savedMessage));
     }
 
     @GetMapping("/messages")
     public ResponseEntity<List<MessageResponse>> getMessages() {
-        List<MessageResponse> messages = messageRepository.findAllByOrderByTimestampDesc()
+        ReadResult<List<Message>> result = messageQueryService.findAllNewestFirst();
+        List<MessageResponse> messages = result.value()
             .stream()
             .map(MessageResponse::fromEntity)
             .toList();
-        return ResponseEntity.ok(messages);
+        return ok(result).body(messages);
+    }
+
+    @GetMapping("/messages/{id}")
+    public ResponseEntity<MessageResponse> getMessage(@PathVariable Long id) {
+        return messageQueryService.findById(id)
+            .map(MessageResponse::fromEntity)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/messages/stats")
+    public ResponseEntity<MessageStatsResponse> getMessageStats() {
+        return ResponseEntity.ok(messageRateStats.snapshot());
+    }
+
+    @GetMapping("/messages/analytics")
+    public ResponseEntity<MessageAnalyticsResponse> getMessageAnalytics() {
+        return ResponseEntity.ok(messageAnalytics.snapshot());
+    }
+
+    /** Queues a rebuild; the body is the analytics as they stand, the rebuilt ones follow at the location. */
+    @PostMapping("/messages/analytics/rebuild")
+    public ResponseEntity<MessageAnalyticsResponse> rebuildMessageAnalytics() {
+        messageAnalytics.rebuild();
+        return ResponseEntity.accepted()
+            .location(URI.create("/api/messages/analytics"))
+            .body(messageAnalytics.snapshot());
+    }
+
+    /**
+     * A channel on the primary database gets its outbox events and change-feed
+     * entry in the message's transaction, like {@code POST /api/messages};
+     * the other shards have no outbox to write to.
+     */
+    @PostMapping("/channels/{channel}/messages")
+    public ResponseEntity<MessageResponse> addChannelMessage(
+            @PathVariable @Pattern(regexp = MessageRequest.CHANNEL_PATTERN) String channel,
+            @Valid @RequestBody MessageRequest request) {
+        LocalDateTime timestamp = clock.exactNow();
+        Message savedMessage = databaseGuard.write(() -> shardedMessageStore.onPrimary(channel)
+            ? outboxWriter.save(new Message(request.content(), channel, timestamp))
+            : shardedMessageStore.save(channel, request.content(), timestamp));
+        messageRateStats.record();
+        messageAnalytics.record(savedMessage);
+        return ResponseEntity.ok(MessageResponse.fromEntity(savedMessage));
+    }
+
+    @GetMapping("/channels/{channel}/messages")
+    public ResponseEntity<List<MessageResponse>> getChannelMessages(
+            @PathVariable @Pattern(regexp = MessageRequest.CHANNEL_PATTERN) String channel,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit) {
+        return ResponseEntity.ok(toResponses(databaseGuard.read(() -> shardedMessageStore.findByChannel(channel, limit))));
+    }
+
+    @GetMapping("/channels/messages")
+    public ResponseEntity<List<MessageResponse>> getAllChannelMessages(
+            @RequestParam(defaultValue = "100") @Min(1) @Max(1000) int limit) {
+        return ResponseEntity.ok(toResponses(databaseGuard.read(() -> shardedMessageStore.findNewest(limit))));
     }
 
     @GetMapping("/info")
     public ResponseEntity<InfoResponse> getInfo() {
-        return ResponseEntity.ok(
+        ReadResult<Long> totalMessages = messageQueryService.count();
+        return ok(totalMessages).body(
             new InfoResponse(
                 "simple-java-docker",
                 "1.0.0",
-                LocalDateTime.now().toString(),
-                messageRepository.count()
+                clock.nowIso(),
+                totalMessages.value()
             )
         );
     }
+
+    private static List<MessageResponse> toResponses(List<Message> messages) {
+        return messages.stream().map(MessageResponse::fromEntity).toList();
+    }
+
+    private static ResponseEntity.BodyBuilder ok(ReadResult<?> result) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (result.stale()) {
+            builder.header(STALE_HEADER, "true")
+                .header(HttpHeaders.AGE, Long.toString(result.age().toSeconds()));
+        }
+        return builder;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package org.roland.dto;
+
+import java.util.List;
+
+public record MessageAnalyticsResponse(long messagesSeen, long distinctMessages, List<TermCount> topTerms) {
+}
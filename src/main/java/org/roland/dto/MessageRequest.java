@@ -1,11 +1,21 @@
 package org.roland.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
 public record MessageRequest(
     @NotBlank(message = "Content cannot be blank")
     @Size(max = 1000, message = "Content must not exceed 1000 characters")
-    String content
+    String content,
+
+    @Pattern(regexp = MessageRequest.CHANNEL_PATTERN, message = "Channel must be 1-64 letters, digits, '.', '_' or '-'")
+    String channel
 ) {
+
+    public static final String CHANNEL_PATTERN = "[A-Za-z0-9][A-Za-z0-9._-]{0,63}";
+
+    public MessageRequest(String content) {
+        this(content, null);
+    }
 }
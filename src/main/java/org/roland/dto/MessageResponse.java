@@ -2,9 +2,16 @@ package org.roland.dto;
 
 import java.time.LocalDateTime;
 
-public record MessageResponse(Long id, String content, LocalDateTime timestamp) {
-    
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public record MessageResponse(Long id, String content, LocalDateTime timestamp,
+                              @JsonInclude(JsonInclude.Include.NON_NULL) String channel) {
+
+    public MessageResponse(Long id, String content, LocalDateTime timestamp) {
+        this(id, content, timestamp, null);
+    }
+
     public static MessageResponse fromEntity(org.roland.model.Message message) {
-        return new MessageResponse(message.getId(), message.getContent(), message.getTimestamp());
+        return new MessageResponse(message.getId(), message.getContent(), message.getTimestamp(), message.getChannel());
     }
 }
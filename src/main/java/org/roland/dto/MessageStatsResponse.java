@@ -0,0 +1,11 @@
+package org.roland.dto;
+
+public record MessageStatsResponse(
+    long totalMessages,
+    long lastSecond,
+    long lastMinute,
+    long lastHour,
+    double perSecond,
+    double perMinute
+) {
+}
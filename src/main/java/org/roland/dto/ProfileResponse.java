@@ -0,0 +1,20 @@
+package org.roland.dto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProfileResponse(
+    long id,
+    String status,
+    Duration duration,
+    LocalDateTime startedAt,
+    LocalDateTime finishedAt,
+    Long recordingBytes,
+    String recording,
+    String error,
+    ProfileSummary summary
+) {
+}
@@ -0,0 +1,37 @@
+package org.roland.dto;
+
+import java.util.List;
+
+/**
+ * What one profiling recording spent its time on. Methods and sites are
+ * {@code Class.method:line}; {@code applicationFrame} is the first frame in
+ * this application's code below them, when the stack has one. Times are in
+ * milliseconds.
+ */
+public record ProfileSummary(
+    long executionSamples,
+    List<HotMethod> hotMethods,
+    List<HotMethod> hotApplicationMethods,
+    List<AllocationSite> allocationSites,
+    List<LockContention> lockContention,
+    GcPauses gcPauses,
+    List<Timing> repositoryCalls,
+    List<Timing> serialization
+) {
+
+    public record HotMethod(String method, long samples, double percent) {
+    }
+
+    public record AllocationSite(String site, String objectClass, String applicationFrame, long bytes, double percent) {
+    }
+
+    public record LockContention(String lockClass, String site, String applicationFrame, long events,
+                                 double totalMillis, double maxMillis) {
+    }
+
+    public record GcPauses(long collections, double totalMillis, double longestMillis) {
+    }
+
+    public record Timing(String name, long count, double totalMillis, double maxMillis) {
+    }
+}
@@ -0,0 +1,29 @@
+package org.roland.dto;
+
+import java.time.LocalDateTime;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+
+public record PurgeRequest(
+    LocalDateTime olderThan,
+
+    @Size(max = 1000, message = "contentContains must not exceed 1000 characters")
+    String contentContains,
+
+    @Min(value = 1, message = "chunkSize must be at least 1")
+    @Max(value = 10_000, message = "chunkSize must not exceed 10000")
+    Integer chunkSize,
+
+    @Min(value = 0, message = "pauseMillis must not be negative")
+    @Max(value = 60_000, message = "pauseMillis must not exceed 60000")
+    Long pauseMillis
+) {
+
+    @AssertTrue(message = "Give olderThan and/or contentContains")
+    public boolean isCriteriaPresent() {
+        return olderThan != null || (contentContains != null && !contentContains.isEmpty());
+    }
+}
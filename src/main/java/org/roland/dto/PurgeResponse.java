@@ -0,0 +1,21 @@
+package org.roland.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PurgeResponse(
+    long id,
+    String status,
+    LocalDateTime olderThan,
+    String contentContains,
+    int chunkSize,
+    long deleted,
+    long chunks,
+    double progress,
+    LocalDateTime startedAt,
+    LocalDateTime finishedAt,
+    String error
+) {
+}
@@ -0,0 +1,4 @@
+package org.roland.dto;
+
+public record TermCount(String term, long count) {
+}
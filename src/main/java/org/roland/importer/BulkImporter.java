@@ -0,0 +1,305 @@
+package org.roland.importer;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.roland.dto.MessageRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Streams an NDJSON or CSV file into {@code messages} in parallel JDBC
+ * batches. The reader cuts the file into chunks of {@code chunkSize}
+ * records; workers validate each chunk against the {@link MessageRequest}
+ * rules and insert it together with its {@link ImportChunk} checkpoint in
+ * one transaction. At most {@code 2 * parallelism} chunks are in memory at
+ * a time, whatever the file size.
+ *
+ * <p>Rerunning a job seeks straight past the longest run of committed
+ * chunks and skips any later chunk that also committed, so an interrupted
+ * import continues without duplicating or losing rows. Chunk boundaries
+ * only line up if the chunk size is unchanged, so it is part of the
+ * default job id.
+ */
+@Component
+@Profile("import")
+public class BulkImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkImporter.class);
+    private static final int LOGGED_REJECTS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    public BulkImporter(DataSource dataSource, PlatformTransactionManager transactionManager, Validator validator,
+                        ObjectMapper objectMapper) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    ImportReport run(ImportSpec spec) throws IOException, InterruptedException {
+        Resume resume = resume(spec.jobId());
+        if (resume.chunks() > 0) {
+            log.info("Resuming import {} after {} committed chunks ({} rows) at byte {}", spec.jobId(),
+                resume.chunks(), resume.inserted(), resume.offset());
+        }
+        RecordParser parser = spec.format() == ImportFormat.NDJSON ? RecordParser.ndjson(objectMapper) : null;
+        long offset = resume.offset();
+        long line = resume.line();
+        if (spec.format() == ImportFormat.CSV) {
+            try (RecordReader headerReader = new RecordReader(spec.file(), ImportFormat.CSV, 0, 0)) {
+                String header = headerReader.next();
+                if (header == null) {
+                    throw new IllegalArgumentException("CSV file " + spec.file() + " is empty");
+                }
+                parser = RecordParser.csv(header);
+                if (offset == 0) {
+                    offset = headerReader.offset();
+                    line = headerReader.line();
+                }
+            }
+        }
+
+        Progress progress = new Progress(resume.inserted(), resume.rejected());
+        ExecutorService workers = Executors.newFixedThreadPool(spec.parallelism(), daemonThreads("import-worker-"));
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(daemonThreads("import-progress-"));
+        reporter.scheduleAtFixedRate(() -> progress.log(spec.jobId()), spec.reportInterval().toMillis(),
+            spec.reportInterval().toMillis(), TimeUnit.MILLISECONDS);
+        Semaphore inFlight = new Semaphore(spec.parallelism() * 2);
+        List<Future<?>> pending = new ArrayList<>();
+        long chunksThisRun = 0;
+        try (RecordReader reader = new RecordReader(spec.file(), spec.format(), offset, line)) {
+            long chunkNo = resume.nextChunk();
+            List<RawRecord> chunk = new ArrayList<>(spec.chunkSize());
+            boolean more = true;
+            while (more) {
+                String record = reader.next();
+                if (record != null) {
+                    chunk.add(new RawRecord(reader.line(), record));
+                }
+                more = record != null;
+                if (chunk.size() == spec.chunkSize() || (!more && !chunk.isEmpty())) {
+                    if (!resume.committedAhead().contains(chunkNo)) {
+                        inFlight.acquire();
+                        failFast(pending);
+                        Chunk work = new Chunk(chunkNo, List.copyOf(chunk), reader.offset(), reader.line());
+                        RecordParser chunkParser = parser;
+                        pending.add(workers.submit(() -> {
+                            try {
+                                importChunk(spec.jobId(), work, chunkParser, progress);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }));
+                        chunksThisRun++;
+                    }
+                    chunk.clear();
+                    chunkNo++;
+                }
+            }
+            for (Future<?> future : pending) {
+                await(future);
+            }
+        } finally {
+            workers.shutdownNow();
+            reporter.shutdownNow();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        Duration elapsed = progress.elapsed();
+        double rowsPerSecond = progress.insertedThisRun() / Math.max(1e-3, elapsed.toNanos() / 1e9);
+        ImportReport report = new ImportReport(progress.inserted.get(), progress.rejected.get(), resume.chunks(),
+            chunksThisRun, elapsed, rowsPerSecond);
+        log.info("Import {} finished: {} rows inserted, {} rejected, {} chunks this run in {} ms ({} rows/s)",
+            spec.jobId(), report.inserted(), report.rejected(), chunksThisRun, elapsed.toMillis(),
+            Math.round(rowsPerSecond));
+        return report;
+    }
+
+    private void importChunk(String jobId, Chunk chunk, RecordParser parser, Progress progress) {
+        List<Object[]> rows = new ArrayList<>(chunk.records().size());
+        int rejected = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (RawRecord record : chunk.records()) {
+            String problem;
+            try {
+                ImportRow row = parser.parse(record.text());
+                problem = validate(row);
+                if (problem == null) {
+                    rows.add(new Object[] {row.content(), Timestamp.valueOf(row.timestamp() != null ? row.timestamp() : now)});
+                }
+            } catch (IllegalArgumentException e) {
+                problem = e.getMessage();
+            }
+            if (problem != null) {
+                rejected++;
+                progress.reject(jobId, record.line(), problem);
+            }
+        }
+        int rejectedRows = rejected;
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO messages (content, timestamp) VALUES (?, ?)", rows);
+            }
+            jdbcTemplate.update("INSERT INTO import_chunks (job, chunk_no, end_offset, end_line, inserted, rejected,"
+                + " completed_at) VALUES (?, ?, ?, ?, ?, ?, ?)", jobId, chunk.number(), chunk.endOffset(),
+                chunk.endLine(), rows.size(), rejectedRows, Timestamp.valueOf(LocalDateTime.now()));
+        });
+        progress.inserted.addAndGet(rows.size());
+        progress.insertedThisRun.addAndGet(rows.size());
+    }
+
+    private String validate(ImportRow row) {
+        Set<ConstraintViolation<MessageRequest>> violations = validator.validate(new MessageRequest(row.content(), row.channel()));
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        if (row.channel() != null) {
+            // Channel messages live on the shard that owns the channel, not in the primary table.
+            return "Channel messages can't be bulk imported; post them to /api/channels/{channel}/messages";
+        }
+        return null;
+    }
+
+    private Resume resume(String jobId) {
+        List<Checkpoint> committed = jdbcTemplate.query(
+            "SELECT chunk_no, end_offset, end_line, inserted, rejected FROM import_chunks WHERE job = ? ORDER BY chunk_no",
+            (row, rowNum) -> new Checkpoint(row.getLong("chunk_no"), row.getLong("end_offset"), row.getLong("end_line"),
+                row.getInt("inserted"), row.getInt("rejected")),
+            jobId);
+        long watermark = -1;
+        long offset = 0;
+        long line = 0;
+        long inserted = 0;
+        long rejected = 0;
+        Set<Long> ahead = new HashSet<>();
+        for (Checkpoint chunk : committed) {
+            inserted += chunk.inserted();
+            rejected += chunk.rejected();
+            if (chunk.number() == watermark + 1) {
+                watermark++;
+                offset = chunk.endOffset();
+                line = chunk.endLine();
+            } else {
+                ahead.add(chunk.number());
+            }
+        }
+        return new Resume(committed.size(), watermark + 1, offset, line, inserted, rejected, ahead);
+    }
+
+    private static void failFast(List<Future<?>> pending) throws InterruptedException {
+        for (Future<?> future : pending) {
+            if (future.isDone()) {
+                await(future);
+            }
+        }
+        pending.removeIf(Future::isDone);
+    }
+
+    private static void await(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record RawRecord(long line, String text) {
+    }
+
+    private record Chunk(long number, List<RawRecord> records, long endOffset, long endLine) {
+    }
+
+    private record Checkpoint(long number, long endOffset, long endLine, int inserted, int rejected) {
+    }
+
+    private record Resume(long chunks, long nextChunk, long offset, long line, long inserted, long rejected,
+                          Set<Long> committedAhead) {
+    }
+
+    private static final class Progress {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong inserted;
+        private final AtomicLong rejected;
+        private final AtomicLong insertedThisRun = new AtomicLong();
+        private final AtomicLong rejectedThisRun = new AtomicLong();
+        private long lastNanos = startNanos;
+        private long lastInserted;
+
+        Progress(long inserted, long rejected) {
+            this.inserted = new AtomicLong(inserted);
+            this.rejected = new AtomicLong(rejected);
+        }
+
+        void reject(String jobId, long line, String reason) {
+            rejected.incrementAndGet();
+            if (rejectedThisRun.incrementAndGet() <= LOGGED_REJECTS) {
+                log.warn("Import {}: rejected line {}: {}", jobId, line, reason);
+            }
+        }
+
+        long insertedThisRun() {
+            return insertedThisRun.get();
+        }
+
+        Duration elapsed() {
+            return Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+
+        void log(String jobId) {
+            long now = System.nanoTime();
+            long total = insertedThisRun.get();
+            double interval = (total - lastInserted) / Math.max(1e-3, (now - lastNanos) / 1e9);
+            double overall = total / Math.max(1e-3, (now - startNanos) / 1e9);
+            lastNanos = now;
+            lastInserted = total;
+            log.info("Import {}: {} rows inserted, {} rejected, {} rows/s (average {} rows/s)", jobId, inserted.get(),
+                rejected.get(), Math.round(interval), Math.round(overall));
+        }
+    }
+}
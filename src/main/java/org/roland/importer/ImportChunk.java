@@ -0,0 +1,75 @@
+package org.roland.importer;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Checkpoint for one committed chunk of a bulk import. It is written in the
+ * same transaction as the chunk's messages, so a chunk is either fully
+ * imported and recorded here or not at all.
+ */
+@Entity
+@Table(name = "import_chunks", uniqueConstraints = @UniqueConstraint(columnNames = {"job", "chunk_no"}))
+public class ImportChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 200)
+    private String job;
+
+    @Column(name = "chunk_no", nullable = false)
+    private long chunkNo;
+
+    /** Byte offset just after the chunk's last record. */
+    @Column(nullable = false)
+    private long endOffset;
+
+    @Column(nullable = false)
+    private long endLine;
+
+    @Column(nullable = false)
+    private int inserted;
+
+    @Column(nullable = false)
+    private int rejected;
+
+    @Column(nullable = false)
+    private LocalDateTime completedAt;
+
+    protected ImportChunk() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getJob() {
+        return job;
+    }
+
+    public long getChunkNo() {
+        return chunkNo;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getEndLine() {
+        return endLine;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
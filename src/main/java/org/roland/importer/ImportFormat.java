@@ -0,0 +1,19 @@
+package org.roland.importer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum ImportFormat {
+    /** One JSON object per line: {@code {"content": "...", "timestamp": "2024-01-01T12:00:00"}}. */
+    NDJSON,
+    /** RFC 4180 CSV with a header row naming at least a {@code content} column. */
+    CSV;
+
+    static ImportFormat of(String format, Path file) {
+        if (format != null && !format.isBlank() && !format.equalsIgnoreCase("auto")) {
+            return valueOf(format.toUpperCase(Locale.ROOT));
+        }
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".csv") ? CSV : NDJSON;
+    }
+}
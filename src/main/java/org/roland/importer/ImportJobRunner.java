@@ -0,0 +1,58 @@
+package org.roland.importer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs {@link BulkImporter} once at startup under the {@code import} profile
+ * (see {@link org.roland.Main}). A failed or interrupted run makes the
+ * application exit non-zero; running it again with the same job id resumes.
+ */
+@Component
+@Profile("import")
+public class ImportJobRunner implements ApplicationRunner {
+
+    private final BulkImporter importer;
+    private final String file;
+    private final String format;
+    private final String jobId;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration reportInterval;
+
+    public ImportJobRunner(
+            BulkImporter importer,
+            @Value("${import.file}") String file,
+            @Value("${import.format:auto}") String format,
+            @Value("${import.job-id:}") String jobId,
+            @Value("${import.chunk-size:1000}") int chunkSize,
+            @Value("${import.parallelism:4}") int parallelism,
+            @Value("${import.report-interval:5s}") Duration reportInterval) {
+        this.importer = importer;
+        this.file = file;
+        this.format = format;
+        this.jobId = jobId;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.reportInterval = reportInterval;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Path path = Path.of(file);
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Import file " + path + " does not exist");
+        }
+        String job = jobId.isBlank()
+            ? path.getFileName() + "-" + Files.size(path) + "-" + chunkSize
+            : jobId;
+        importer.run(new ImportSpec(path, ImportFormat.of(format, path), job, chunkSize, parallelism, reportInterval));
+    }
+}
@@ -0,0 +1,12 @@
+package org.roland.importer;
+
+import java.time.Duration;
+
+/**
+ * Outcome of an import run. {@code inserted}/{@code rejected} cover the
+ * whole job including chunks from earlier runs; {@code rowsPerSecond} is
+ * for this run only.
+ */
+record ImportReport(long inserted, long rejected, long resumedChunks, long chunksThisRun, Duration elapsed,
+                    double rowsPerSecond) {
+}
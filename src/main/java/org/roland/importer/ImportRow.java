@@ -0,0 +1,7 @@
+package org.roland.importer;
+
+import java.time.LocalDateTime;
+
+/** One parsed input row; {@code timestamp} is {@code null} when the file has none. */
+record ImportRow(String content, String channel, LocalDateTime timestamp) {
+}
@@ -0,0 +1,12 @@
+package org.roland.importer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * What to import and how. {@code jobId} keys the checkpoints: rerunning with
+ * the same job id resumes, a new one starts over.
+ */
+record ImportSpec(Path file, ImportFormat format, String jobId, int chunkSize, int parallelism,
+                  Duration reportInterval) {
+}
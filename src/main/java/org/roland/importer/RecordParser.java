@@ -0,0 +1,121 @@
+package org.roland.importer;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Turns a raw record into an {@link ImportRow}. Structural problems
+ * (malformed JSON, wrong CSV column count, bad timestamp) are reported as
+ * {@link IllegalArgumentException}; content rules are checked afterwards by
+ * the importer against {@code MessageRequest}.
+ */
+final class RecordParser {
+
+    private final ImportFormat format;
+    private final ObjectMapper objectMapper;
+    private final int columns;
+    private final int contentColumn;
+    private final int channelColumn;
+    private final int timestampColumn;
+
+    private RecordParser(ImportFormat format, ObjectMapper objectMapper, List<String> header) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.columns = header.size();
+        this.contentColumn = header.indexOf("content");
+        this.channelColumn = header.indexOf("channel");
+        this.timestampColumn = header.indexOf("timestamp");
+    }
+
+    static RecordParser ndjson(ObjectMapper objectMapper) {
+        return new RecordParser(ImportFormat.NDJSON, objectMapper, List.of());
+    }
+
+    static RecordParser csv(String headerRecord) {
+        List<String> header = splitCsv(headerRecord).stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+        if (!header.contains("content")) {
+            throw new IllegalArgumentException("CSV header must have a 'content' column, was " + header);
+        }
+        return new RecordParser(ImportFormat.CSV, null, header);
+    }
+
+    ImportRow parse(String record) {
+        return format == ImportFormat.CSV ? parseCsv(record) : parseJson(record);
+    }
+
+    private ImportRow parseJson(String record) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(record);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return new ImportRow(text(node, "content"), text(node, "channel"), timestamp(text(node, "timestamp")));
+    }
+
+    private ImportRow parseCsv(String record) {
+        List<String> fields = splitCsv(record);
+        if (fields.size() != columns) {
+            throw new IllegalArgumentException("Expected " + columns + " columns, found " + fields.size());
+        }
+        return new ImportRow(
+            fields.get(contentColumn),
+            channelColumn < 0 || fields.get(channelColumn).isEmpty() ? null : fields.get(channelColumn),
+            timestampColumn < 0 ? null : timestamp(fields.get(timestampColumn)));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static LocalDateTime timestamp(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid timestamp '" + value + "'");
+        }
+    }
+
+    /** RFC 4180 field splitting: quoted fields may hold commas, newlines and doubled quotes. */
+    static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,112 @@
+package org.roland.importer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams records out of an import file one at a time, tracking the byte
+ * offset after each record so an import can later resume from it. Blank
+ * lines are skipped. For CSV a record continues over line breaks while a
+ * quoted field is open.
+ */
+final class RecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final InputStream in;
+    private final ImportFormat format;
+    private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream(256);
+    private long offset;
+    private long line;
+
+    RecordReader(Path file, ImportFormat format, long startOffset, long startLine) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(startOffset);
+        this.in = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+        this.format = format;
+        this.offset = startOffset;
+        this.line = startLine;
+    }
+
+    /** The next record, or {@code null} at end of file. */
+    String next() throws IOException {
+        String record = nextLine();
+        while (record != null && record.isBlank()) {
+            record = nextLine();
+        }
+        if (record == null || format != ImportFormat.CSV) {
+            return record;
+        }
+        StringBuilder joined = null;
+        while (hasOpenQuote(joined == null ? record : joined)) {
+            String continuation = nextLine();
+            if (continuation == null) {
+                break;
+            }
+            if (joined == null) {
+                joined = new StringBuilder(record);
+            }
+            joined.append('\n').append(continuation);
+        }
+        return joined == null ? record : joined.toString();
+    }
+
+    /** Byte offset just after the last record returned. */
+    long offset() {
+        return offset;
+    }
+
+    /** Number of physical lines consumed so far (1-based line of the last record read). */
+    long line() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+        channel.close();
+    }
+
+    private String nextLine() throws IOException {
+        lineBuffer.reset();
+        int b;
+        boolean any = false;
+        while ((b = in.read()) != -1) {
+            any = true;
+            offset++;
+            if (b == '\n') {
+                break;
+            }
+            lineBuffer.write(b);
+        }
+        if (!any) {
+            return null;
+        }
+        line++;
+        int length = lineBuffer.size();
+        byte[] bytes = lineBuffer.toByteArray();
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean hasOpenQuote(CharSequence record) {
+        boolean open = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                open = !open;
+            }
+        }
+        return open;
+    }
+}
@@ -3,8 +3,15 @@ package org.roland.model;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = @Index(name = "idx_messages_channel_timestamp", columnList = "channel, timestamp"))
+@Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY) // messages are never updated once written
 public class Message {
 
     @Id
@@ -17,13 +24,31 @@ public class Message {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
+    @Column(length = 64)
+    private String channel;
+
+    // for JPA, which sets every field of a loaded row itself
     public Message() {
-        this.timestamp = LocalDateTime.now();
     }
 
+    /** Stamped with the wall clock; application code passes its {@code CoarseClock.exactNow()} instead. */
     public Message(String content) {
+        this(content, LocalDateTime.now());
+    }
+
+    public Message(String content, LocalDateTime timestamp) {
         this.content = content;
-        this.timestamp = LocalDateTime.now();
+        this.timestamp = timestamp;
+    }
+
+    public Message(String content, String channel) {
+        this(content);
+        this.channel = channel;
+    }
+
+    public Message(String content, String channel, LocalDateTime timestamp) {
+        this(content, timestamp);
+        this.channel = channel;
     }
 
     // Getters and Setters
@@ -50,4 +75,12 @@ public class Message {
     public void setTimestamp(LocalDateTime timestamp) {
         this.timestamp = timestamp;
     }
-}
\ No newline at end of file
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+}
@@ -0,0 +1,4 @@
+package org.roland.model;
+
+public record MessageCounts(Long total, Long sinceMinute, Long sinceHour) {
+}
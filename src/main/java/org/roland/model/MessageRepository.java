@@ -1,11 +1,28 @@
 package org.roland.model;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
-    List<Message> findAllByOrderByTimestampDesc();
-}
\ No newline at end of file
+    List<Message> findByChannelIsNullOrderByTimestampDesc();
+
+    long countByChannelIsNull();
+
+    List<Message> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(m.id), 0L) FROM Message m")
+    long findMaxId();
+
+    @Query("SELECT new org.roland.model.MessageCounts(COUNT(m), "
+        + "COALESCE(SUM(CASE WHEN m.timestamp >= :minuteAgo THEN 1L ELSE 0L END), 0L), "
+        + "COALESCE(SUM(CASE WHEN m.timestamp >= :hourAgo THEN 1L ELSE 0L END), 0L)) "
+        + "FROM Message m")
+    MessageCounts countRecent(@Param("minuteAgo") LocalDateTime minuteAgo, @Param("hourAgo") LocalDateTime hourAgo);
+}
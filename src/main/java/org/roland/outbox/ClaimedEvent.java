@@ -0,0 +1,10 @@
+package org.roland.outbox;
+
+/** An outbox row leased by this node for delivery. */
+record ClaimedEvent(long id, String endpoint, String payload, int attempts) {
+
+    /** The JSON object POSTed to the endpoint (inside a batch array). */
+    String envelope() {
+        return "{\"eventId\":" + id + ",\"type\":\"message.created\",\"message\":" + payload + "}";
+    }
+}
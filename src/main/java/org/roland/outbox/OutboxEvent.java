@@ -0,0 +1,93 @@
+package org.roland.outbox;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One pending webhook delivery: a {@code message.created} event for one
+ * endpoint. Rows are written in the same transaction as the message and
+ * deleted once the endpoint has acknowledged them, so the table stays small
+ * and the relay's claim query can simply walk the primary key.
+ */
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String endpoint;
+
+    @Column(nullable = false)
+    private Long messageId;
+
+    // TEXT: JSON escapes a control character as six characters, so a
+    // 1000-character message can need 6000+ here
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    protected OutboxEvent() {
+    }
+
+    public OutboxEvent(String endpoint, Long messageId, String payload, LocalDateTime createdAt) {
+        this.endpoint = endpoint;
+        this.messageId = messageId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+        this.nextAttemptAt = createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public OutboxStatus getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+}
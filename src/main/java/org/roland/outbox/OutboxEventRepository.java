@@ -0,0 +1,10 @@
+package org.roland.outbox;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByStatus(OutboxStatus status);
+}
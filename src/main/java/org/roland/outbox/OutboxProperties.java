@@ -0,0 +1,35 @@
+package org.roland.outbox;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * {@code outbox.*}: webhook endpoints that receive {@code message.created}
+ * events, and how the relay claims, batches and retries them.
+ */
+@ConfigurationProperties("outbox")
+public record OutboxProperties(
+        List<Endpoint> endpoints,
+        @DefaultValue("200") int claimBatchSize,
+        @DefaultValue("30s") Duration lease,
+        @DefaultValue("5s") Duration requestTimeout,
+        @DefaultValue("1s") Duration initialBackoff,
+        @DefaultValue("5m") Duration maxBackoff,
+        @DefaultValue("10") int maxAttempts,
+        @DefaultValue("10") int maxBatchesPerRun) {
+
+    public OutboxProperties {
+        endpoints = endpoints == null ? List.of() : List.copyOf(endpoints);
+    }
+
+    /**
+     * @param batchSize      events per POST
+     * @param maxConcurrency POSTs in flight at once for this endpoint
+     */
+    public record Endpoint(String name, URI url, @DefaultValue("50") int batchSize, @DefaultValue("4") int maxConcurrency) {
+    }
+}
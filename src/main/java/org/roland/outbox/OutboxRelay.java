@@ -0,0 +1,221 @@
+package org.roland.outbox;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Delivers outbox rows to the configured webhooks. Each run claims due rows
+ * in batches (see {@link OutboxStore}), splits them per endpoint into POSTs
+ * of up to {@code batch-size} events and sends them asynchronously, keeping
+ * at most {@code max-concurrency} POSTs in flight per endpoint while it
+ * claims the next batch. A 2xx response deletes the rows; anything else
+ * reschedules them with backoff. Delivery is at-least-once and batches to
+ * one endpoint may overlap, so receivers should dedupe on {@code eventId}.
+ * <p>
+ * Runs happen on the relay's own thread every {@code outbox.relay.poll-interval},
+ * not on the shared Spring scheduler, since a run can wait on endpoint
+ * permits; a run claims at most {@code outbox.max-batches-per-run} batches and
+ * leaves the rest of a backlog to the next one.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxStore store;
+    private final OutboxProperties properties;
+    private final HttpClient httpClient;
+    private final Clock clock;
+    private final Duration pollInterval;
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("outbox-relay").daemon(true).factory());
+
+    @Autowired
+    public OutboxRelay(DataSource dataSource, PlatformTransactionManager transactionManager,
+                       OutboxProperties properties, MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.poll-interval:500ms}") Duration pollInterval) {
+        this(new OutboxStore(dataSource, transactionManager), properties, meterRegistry,
+            HttpClient.newBuilder().connectTimeout(properties.requestTimeout()).build(), Clock.systemDefaultZone(),
+            pollInterval);
+    }
+
+    OutboxRelay(OutboxStore store, OutboxProperties properties, MeterRegistry meterRegistry,
+                HttpClient httpClient, Clock clock, Duration pollInterval) {
+        this.store = store;
+        this.properties = properties;
+        this.httpClient = httpClient;
+        this.clock = clock;
+        this.pollInterval = pollInterval;
+        for (OutboxProperties.Endpoint endpoint : properties.endpoints()) {
+            targets.put(endpoint.name(), new Target(endpoint, meterRegistry));
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!targets.isEmpty()) {
+            executor.scheduleWithFixedDelay(this::relay, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void relay() {
+        if (targets.isEmpty()) {
+            return;
+        }
+        try {
+            // a full batch means more rows are due; keep going up to the cap
+            int batches = 1;
+            while (relayOnce() == properties.claimBatchSize() && batches < properties.maxBatchesPerRun()) {
+                batches++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay run failed, retrying next interval: {}", e.toString());
+        }
+    }
+
+    /** Claims one batch and dispatches it; returns how many rows were claimed. */
+    int relayOnce() {
+        List<ClaimedEvent> claimed = store.claim(targets.keySet(), properties.claimBatchSize(), now(), properties.lease());
+        Map<String, List<ClaimedEvent>> byEndpoint = claimed.stream()
+            .collect(Collectors.groupingBy(ClaimedEvent::endpoint, LinkedHashMap::new, Collectors.toList()));
+        byEndpoint.forEach((endpoint, events) -> {
+            Target target = targets.get(endpoint);
+            for (int from = 0; from < events.size(); from += target.endpoint.batchSize()) {
+                dispatch(target, events.subList(from, Math.min(events.size(), from + target.endpoint.batchSize())));
+            }
+        });
+        return claimed.size();
+    }
+
+    /** POSTs currently in flight across all endpoints. */
+    int inFlight() {
+        return targets.values().stream().mapToInt(Target::inFlight).sum();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        httpClient.shutdownNow();
+    }
+
+    private void dispatch(Target target, List<ClaimedEvent> batch) {
+        if (!acquire(target.permits)) {
+            store.release(batch, now());
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(target.endpoint.url())
+            .timeout(properties.requestTimeout())
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body(batch)))
+            .build();
+        try {
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    try {
+                        complete(target, batch, response, error);
+                    } finally {
+                        target.permits.release();
+                    }
+                });
+        } catch (RuntimeException e) {
+            target.permits.release();
+            throw e;
+        }
+    }
+
+    private void complete(Target target, List<ClaimedEvent> batch, HttpResponse<Void> response, Throwable error) {
+        try {
+            if (error == null && response.statusCode() / 100 == 2) {
+                store.delete(batch);
+                target.delivered.increment(batch.size());
+                return;
+            }
+            String reason = error != null ? error.toString() : "HTTP " + response.statusCode();
+            int dead = store.fail(batch, reason, now(), properties.initialBackoff(), properties.maxBackoff(),
+                properties.maxAttempts());
+            target.retried.increment(batch.size() - dead);
+            target.dead.increment(dead);
+            log.warn("Webhook {} rejected {} events ({}), {} given up", target.endpoint.name(), batch.size(), reason, dead);
+        } catch (RuntimeException e) {
+            // The lease expires and the rows are claimed again.
+            log.warn("Could not record outcome for {} events to {}: {}", batch.size(), target.endpoint.name(), e.toString());
+        }
+    }
+
+    private boolean acquire(Semaphore permits) {
+        try {
+            return permits.tryAcquire(properties.requestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String body(List<ClaimedEvent> batch) {
+        return batch.stream().map(ClaimedEvent::envelope).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    private static final class Target {
+
+        private final OutboxProperties.Endpoint endpoint;
+        private final Semaphore permits;
+        private final Counter delivered;
+        private final Counter retried;
+        private final Counter dead;
+
+        Target(OutboxProperties.Endpoint endpoint, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            this.permits = new Semaphore(endpoint.maxConcurrency());
+            Gauge.builder("outbox.inflight", this, Target::inFlight)
+                .description("Webhook POSTs currently in flight")
+                .tag("endpoint", endpoint.name())
+                .register(meterRegistry);
+            this.delivered = counter("outbox.delivered", "Events acknowledged by the endpoint", meterRegistry);
+            this.retried = counter("outbox.retried", "Events rescheduled after a failed delivery", meterRegistry);
+            this.dead = counter("outbox.dead", "Events given up after the maximum number of attempts", meterRegistry);
+        }
+
+        int inFlight() {
+            return endpoint.maxConcurrency() - permits.availablePermits();
+        }
+
+        private Counter counter(String name, String description, MeterRegistry meterRegistry) {
+            return Counter.builder(name).description(description).tag("endpoint", endpoint.name()).register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.roland.outbox;
+
+public enum OutboxStatus {
+    /** Waiting for (re)delivery once {@code next_attempt_at} has passed. */
+    PENDING,
+    /** Gave up after {@code outbox.max-attempts}; kept for inspection. */
+    DEAD
+}
@@ -0,0 +1,107 @@
+package org.roland.outbox;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JDBC access to {@code outbox_events} for the relay. Claiming takes due
+ * rows with {@code FOR UPDATE SKIP LOCKED}, so relays on several nodes each
+ * get a disjoint batch without waiting on each other, and pushes their
+ * {@code next_attempt_at} past the lease before committing. A node that dies
+ * mid-delivery therefore only delays its rows until the lease runs out.
+ */
+class OutboxStore {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    OutboxStore(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    List<ClaimedEvent> claim(Collection<String> endpoints, int limit, LocalDateTime now, Duration lease) {
+        return transactionTemplate.execute(status -> {
+            List<ClaimedEvent> events = jdbcTemplate.query(
+                "SELECT id, endpoint, payload, attempts FROM outbox_events"
+                    + " WHERE status = 'PENDING' AND next_attempt_at <= :now AND endpoint IN (:endpoints)"
+                    + " ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+                Map.of("now", now, "endpoints", endpoints, "limit", limit),
+                (row, rowNum) -> new ClaimedEvent(row.getLong("id"), row.getString("endpoint"),
+                    row.getString("payload"), row.getInt("attempts")));
+            if (!events.isEmpty()) {
+                jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = :leaseUntil WHERE id IN (:ids)",
+                    Map.of("leaseUntil", now.plus(lease), "ids", ids(events)));
+            }
+            return events;
+        });
+    }
+
+    void delete(List<ClaimedEvent> events) {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (:ids)", Map.of("ids", ids(events)));
+    }
+
+    /** Hands leased rows back without counting an attempt (e.g. the endpoint was saturated). */
+    void release(List<ClaimedEvent> events, LocalDateTime now) {
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = :now WHERE id IN (:ids)",
+            Map.of("now", now, "ids", ids(events)));
+    }
+
+    /**
+     * Records a failed attempt: reschedules with exponential backoff, or
+     * marks the row {@link OutboxStatus#DEAD} after {@code maxAttempts}.
+     *
+     * @return how many rows were marked dead
+     */
+    int fail(List<ClaimedEvent> events, String error, LocalDateTime now, Duration initialBackoff,
+             Duration maxBackoff, int maxAttempts) {
+        String lastError = error == null ? null : error.substring(0, Math.min(error.length(), MAX_ERROR_LENGTH));
+        int dead = 0;
+        SqlParameterSource[] updates = new SqlParameterSource[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            ClaimedEvent event = events.get(i);
+            int attempts = event.attempts() + 1;
+            boolean giveUp = attempts >= maxAttempts;
+            dead += giveUp ? 1 : 0;
+            updates[i] = new MapSqlParameterSource()
+                .addValue("id", event.id())
+                .addValue("attempts", attempts)
+                .addValue("status", (giveUp ? OutboxStatus.DEAD : OutboxStatus.PENDING).name())
+                .addValue("next", now.plus(backoff(attempts, initialBackoff, maxBackoff, ThreadLocalRandom.current().nextDouble())))
+                .addValue("error", lastError);
+        }
+        jdbcTemplate.batchUpdate("UPDATE outbox_events SET attempts = :attempts, status = :status,"
+            + " next_attempt_at = :next, last_error = :error WHERE id = :id", updates);
+        return dead;
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of {@code initial * 2^(attempt-1)}
+     * (capped at {@code max}) plus a random share of the other half, so
+     * retries from one outage don't all land at the same instant.
+     */
+    static Duration backoff(int attempt, Duration initial, Duration max, double random) {
+        long cap = max.toMillis();
+        int shift = Math.min(attempt - 1, 62);
+        long ceiling = initial.toMillis() > (cap >> shift) ? cap : initial.toMillis() << shift;
+        return Duration.ofMillis(ceiling / 2 + (long) (random * (ceiling - ceiling / 2)));
+    }
+
+    private static List<Long> ids(List<ClaimedEvent> events) {
+        return events.stream().map(ClaimedEvent::id).toList();
+    }
+}
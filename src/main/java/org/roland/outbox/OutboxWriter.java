@@ -0,0 +1,61 @@
+package org.roland.outbox;
+
+import java.util.List;
+
+import org.roland.coherence.ChangeLog;
+import org.roland.dto.MessageResponse;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Saves a message together with one outbox row per configured endpoint, in
+ * one transaction, so an event exists if and only if the message does. The
+ * same transaction appends the message to the {@link ChangeLog} for the
+ * other nodes' caches.
+ */
+@Component
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxWriter {
+
+    private final MessageRepository messageRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final ChangeLog changeLog;
+    private final List<String> endpoints;
+
+    public OutboxWriter(MessageRepository messageRepository, OutboxEventRepository outboxEventRepository,
+                        ObjectMapper objectMapper, ChangeLog changeLog, OutboxProperties properties) {
+        this.messageRepository = messageRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.changeLog = changeLog;
+        this.endpoints = properties.endpoints().stream().map(OutboxProperties.Endpoint::name).toList();
+    }
+
+    @Transactional
+    public Message save(Message message) {
+        Message saved = messageRepository.save(message);
+        if (!endpoints.isEmpty()) {
+            String payload = toJson(saved);
+            outboxEventRepository.saveAll(endpoints.stream()
+                .map(endpoint -> new OutboxEvent(endpoint, saved.getId(), payload, saved.getTimestamp()))
+                .toList());
+        }
+        changeLog.created(saved);
+        return saved;
+    }
+
+    private String toJson(Message message) {
+        try {
+            return objectMapper.writeValueAsString(MessageResponse.fromEntity(message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize message " + message.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.roland.pool;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Periodically samples each Hikari pool (acquire wait, hold time, active and
+ * pending connections) and resizes it with {@link PoolSizingPolicy}. With
+ * lane pools every lane is sized on its own traffic. Every decision is logged
+ * and counted; the chosen size and estimated demand are exported as gauges
+ * tagged with the pool name.
+ */
+@Component
+@ConditionalOnProperty(name = "database.pool.adaptive.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptivePoolController {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolController.class);
+
+    private final List<PoolState> pools;
+    private final PoolSizingPolicy policy;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public AdaptivePoolController(
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${database.pool.adaptive.min-size:2}") int minSize,
+            @Value("${database.pool.adaptive.max-size:40}") int maxSize,
+            @Value("${database.pool.adaptive.headroom:0.2}") double headroom,
+            @Value("${database.pool.adaptive.wait-threshold-ms:5}") double waitThresholdMillis,
+            @Value("${database.pool.adaptive.max-step:4}") int maxStep) throws SQLException {
+        this(hikariPools(dataSource), meterRegistry,
+            new PoolSizingPolicy(minSize, maxSize, headroom, waitThresholdMillis, maxStep));
+    }
+
+    AdaptivePoolController(List<HikariDataSource> dataSources, MeterRegistry meterRegistry, PoolSizingPolicy policy) {
+        this.policy = policy;
+        this.meterRegistry = meterRegistry;
+        this.pools = dataSources.stream().map(PoolState::new).toList();
+        for (PoolState pool : pools) {
+            Gauge.builder("db.pool.target.size", pool.targetSize, AtomicInteger::get)
+                .description("Maximum pool size chosen by the adaptive pool controller")
+                .tag("pool", pool.name())
+                .register(meterRegistry);
+            Gauge.builder("db.pool.demand", pool, state -> state.lastDemand)
+                .description("Connections needed according to Little's law in the last interval")
+                .tag("pool", pool.name())
+                .register(meterRegistry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${database.pool.adaptive.interval:10s}",
+               initialDelayString = "${database.pool.adaptive.interval:10s}")
+    public void adjust() {
+        for (PoolState pool : pools) {
+            HikariPoolMXBean mxBean = pool.dataSource.getHikariPoolMXBean();
+            if (mxBean != null) {
+                apply(pool, sample(pool, mxBean));
+            }
+        }
+    }
+
+    PoolSizingDecision apply(String poolName, PoolSample sample) {
+        return apply(pools.stream().filter(pool -> pool.name().equals(poolName)).findFirst().orElseThrow(), sample);
+    }
+
+    private PoolSizingDecision apply(PoolState pool, PoolSample sample) {
+        PoolSizingDecision decision = policy.decide(sample);
+        pool.lastDemand = decision.demand();
+        String action = decision.targetSize() > decision.currentSize() ? "grow"
+            : decision.targetSize() < decision.currentSize() ? "shrink" : "hold";
+        Counter.builder("db.pool.decisions")
+            .description("Adaptive pool sizing decisions")
+            .tag("pool", pool.name())
+            .tag("action", action)
+            .register(meterRegistry)
+            .increment();
+        if (decision.changed()) {
+            pool.dataSource.getHikariConfigMXBean().setMaximumPoolSize(decision.targetSize());
+            pool.targetSize.set(decision.targetSize());
+            log.info("Resizing connection pool {} {} -> {} ({}): demand={} throughput={}/s hold={}ms wait={}ms active={} pending={}",
+                pool.name(), decision.currentSize(), decision.targetSize(), decision.reason(), round(decision.demand()),
+                round(sample.throughputPerSecond()), round(sample.meanHoldMillis()),
+                round(sample.meanAcquireWaitMillis()), sample.active(), sample.pending());
+        } else {
+            log.debug("Keeping connection pool {} at {}: demand={} wait={}ms active={} pending={}",
+                pool.name(), decision.currentSize(), round(decision.demand()), round(sample.meanAcquireWaitMillis()),
+                sample.active(), sample.pending());
+        }
+        return decision;
+    }
+
+    private PoolSample sample(PoolState pool, HikariPoolMXBean mxBean) {
+        Timer acquire = hikariTimer("hikaricp.connections.acquire", pool);
+        Timer usage = hikariTimer("hikaricp.connections.usage", pool);
+        return pool.sample(acquire, usage, mxBean);
+    }
+
+    private Timer hikariTimer(String name, PoolState pool) {
+        return meterRegistry.find(name).tag("pool", pool.name()).timer();
+    }
+
+    private static List<HikariDataSource> hikariPools(DataSource dataSource) throws SQLException {
+        if (dataSource instanceof LaneRoutingDataSource lanes) {
+            return List.copyOf(lanes.pools().values());
+        }
+        return List.of(dataSource.unwrap(HikariDataSource.class));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    /** Timer readings from the previous interval, kept per pool. */
+    private static final class PoolState {
+
+        private final HikariDataSource dataSource;
+        private final AtomicInteger targetSize = new AtomicInteger();
+        private volatile double lastDemand;
+        private long lastSampleNanos = System.nanoTime();
+        private long lastAcquireCount;
+        private double lastAcquireMillis;
+        private long lastUsageCount;
+        private double lastUsageMillis;
+
+        PoolState(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+            this.targetSize.set(dataSource.getMaximumPoolSize());
+        }
+
+        String name() {
+            return dataSource.getPoolName();
+        }
+
+        synchronized PoolSample sample(Timer acquire, Timer usage, HikariPoolMXBean mxBean) {
+            long now = System.nanoTime();
+            double seconds = Math.max(1e-3, (now - lastSampleNanos) / 1e9);
+            lastSampleNanos = now;
+
+            long acquireCount = acquire == null ? 0 : acquire.count();
+            double acquireMillis = acquire == null ? 0 : acquire.totalTime(TimeUnit.MILLISECONDS);
+            long usageCount = usage == null ? 0 : usage.count();
+            double usageMillis = usage == null ? 0 : usage.totalTime(TimeUnit.MILLISECONDS);
+
+            long acquired = acquireCount - lastAcquireCount;
+            long released = usageCount - lastUsageCount;
+            double meanWait = acquired > 0 ? (acquireMillis - lastAcquireMillis) / acquired : 0;
+            double meanHold = released > 0 ? (usageMillis - lastUsageMillis) / released : 0;
+            lastAcquireCount = acquireCount;
+            lastAcquireMillis = acquireMillis;
+            lastUsageCount = usageCount;
+            lastUsageMillis = usageMillis;
+
+            return new PoolSample(acquired / seconds, meanHold, meanWait,
+                mxBean.getActiveConnections(), mxBean.getThreadsAwaitingConnection(), dataSource.getMaximumPoolSize());
+        }
+    }
+}
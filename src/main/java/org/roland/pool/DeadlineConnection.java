@@ -0,0 +1,111 @@
+package org.roland.pool;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import org.roland.service.Deadline;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+
+/**
+ * Takes connections from a Hikari pool under the calling thread's
+ * {@link Deadline}, if it has one. The pool wait is capped at what is left
+ * of the deadline instead of the pool's {@code connection-timeout}, and
+ * every statement the connection creates gets the rest as its query
+ * timeout: a shorter timeout asked for later (Hibernate hints,
+ * {@code JdbcTemplate}) is kept, a longer one is capped. Statements are
+ * tracked until they are closed so the deadline can cancel them.
+ */
+final class DeadlineConnection {
+
+    private DeadlineConnection() {
+    }
+
+    static Connection open(HikariDataSource pool) throws SQLException {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return pool.getConnection();
+        }
+        if (deadline.expired()) {
+            throw new SQLTimeoutException("Deadline passed before a connection was requested");
+        }
+        long timeoutMs = deadline.remaining().toMillis();
+        // The pool starts on its first getConnection(); until then there is no HikariPool to ask directly.
+        Connection connection = pool.getHikariPoolMXBean() instanceof HikariPool started
+                && timeoutMs < pool.getConnectionTimeout()
+            ? started.getConnection(timeoutMs)
+            : pool.getConnection();
+        return wrap(connection, deadline);
+    }
+
+    private static Connection wrap(Connection connection, Deadline deadline) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = invoke(target, method, args);
+            return result instanceof Statement statement ? statement(statement, deadline) : result;
+        });
+    }
+
+    private static Statement statement(Statement statement, Deadline deadline) throws Exception {
+        statement.setQueryTimeout(deadline.queryTimeoutSeconds());
+        deadline.track(statement);
+        Class<? extends Statement> type = statement instanceof CallableStatement ? CallableStatement.class
+            : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return proxy(type, statement, (target, method, args) -> switch (method.getName()) {
+            case "setQueryTimeout" -> {
+                int requested = (Integer) args[0];
+                int allowed = deadline.queryTimeoutSeconds();
+                target.setQueryTimeout(requested == 0 ? allowed : Math.min(requested, allowed));
+                yield null;
+            }
+            case "close" -> {
+                deadline.untrack(target);
+                yield invoke(target, method, args);
+            }
+            default -> invoke(target, method, args);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Handler<T> {
+        Object handle(T target, Method method, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<? extends T> type, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> invoke(target, method, args);
+                };
+            }
+            if (method.getName().equals("unwrap") && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            return handler.handle(target, method, args);
+        };
+        return (T) Proxy.newProxyInstance(DeadlineConnection.class.getClassLoader(), new Class<?>[] {type},
+            invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Exception {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw (Error) e.getCause();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.roland.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * A Hikari pool whose connections honour the caller's request deadline, for
+ * pools outside the {@link LaneRoutingDataSource} such as extra shards.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    private final HikariDataSource pool;
+
+    public DeadlineDataSource(HikariDataSource pool) {
+        super(pool);
+        this.pool = pool;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return DeadlineConnection.open(pool);
+    }
+}
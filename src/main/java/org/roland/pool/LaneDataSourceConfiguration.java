@@ -0,0 +1,71 @@
+package org.roland.pool;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.roland.service.DatabaseLane;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Splits the connection pool into one Hikari pool per {@link DatabaseLane}.
+ * Each pool inherits the {@code spring.datasource.hikari.*} settings and gets
+ * its own size and a {@code -read}/{@code -write}/{@code -default} name
+ * suffix, which is also the {@code pool} tag on its metrics.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "database.lanes.enabled", havingValue = "true", matchIfMissing = true)
+// bound here too: Boot's DataSource auto-configuration backs off when R2DBC is in use (reactive profile)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class LaneDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariConfig laneHikariTemplate() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    LaneRoutingDataSource dataSource(
+            DataSourceProperties properties,
+            HikariConfig laneHikariTemplate,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${database.lanes.read.pool-size:10}") int readPoolSize,
+            @Value("${database.lanes.write.pool-size:5}") int writePoolSize,
+            @Value("${database.lanes.default.pool-size:3}") int defaultPoolSize) {
+        Map<DatabaseLane, HikariDataSource> pools = new EnumMap<>(DatabaseLane.class);
+        pools.put(DatabaseLane.READ, pool(DatabaseLane.READ, readPoolSize, properties, laneHikariTemplate, meterRegistry));
+        pools.put(DatabaseLane.WRITE, pool(DatabaseLane.WRITE, writePoolSize, properties, laneHikariTemplate, meterRegistry));
+        pools.put(DatabaseLane.DEFAULT, pool(DatabaseLane.DEFAULT, defaultPoolSize, properties, laneHikariTemplate, meterRegistry));
+        return new LaneRoutingDataSource(pools);
+    }
+
+    private static HikariDataSource pool(DatabaseLane lane, int size, DataSourceProperties properties,
+                                         HikariConfig template, ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        template.copyStateTo(pool);
+        pool.setJdbcUrl(properties.determineUrl());
+        pool.setUsername(properties.determineUsername());
+        pool.setPassword(properties.determinePassword());
+        pool.setDriverClassName(properties.determineDriverClassName());
+        String baseName = template.getPoolName() != null ? template.getPoolName() : "messages-pool";
+        pool.setPoolName(baseName + "-" + lane.name().toLowerCase(Locale.ROOT));
+        pool.setMaximumPoolSize(size);
+        pool.setMinimumIdle(Math.min(size, template.getMinimumIdle() < 0 ? size : template.getMinimumIdle()));
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        return pool;
+    }
+}
@@ -0,0 +1,53 @@
+package org.roland.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.roland.service.DatabaseLane;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Routes every connection request to the pool of the calling thread's
+ * {@link DatabaseLane}, so reads, writes and everything else (health checks,
+ * startup, background jobs) never compete for the same connections.
+ * Connections taken under a request deadline are bounded by it (see
+ * {@link DeadlineConnection}).
+ */
+public class LaneRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private final Map<DatabaseLane, HikariDataSource> pools;
+
+    public LaneRoutingDataSource(Map<DatabaseLane, HikariDataSource> pools) {
+        this.pools = Collections.unmodifiableMap(new EnumMap<>(pools));
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(DatabaseLane.DEFAULT));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public Map<DatabaseLane, HikariDataSource> pools() {
+        return pools;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return DeadlineConnection.open((HikariDataSource) determineTargetDataSource());
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return DatabaseLane.current();
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
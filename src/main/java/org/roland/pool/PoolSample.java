@@ -0,0 +1,21 @@
+package org.roland.pool;
+
+/**
+ * Connection pool activity over one sampling interval.
+ *
+ * @param throughputPerSecond connections handed out per second
+ * @param meanHoldMillis mean time a connection was held, i.e. query latency
+ * @param meanAcquireWaitMillis mean time callers waited for a connection
+ * @param active connections in use when sampled
+ * @param pending callers waiting for a connection when sampled
+ * @param currentSize the pool's current maximum size
+ */
+public record PoolSample(
+    double throughputPerSecond,
+    double meanHoldMillis,
+    double meanAcquireWaitMillis,
+    int active,
+    int pending,
+    int currentSize
+) {
+}
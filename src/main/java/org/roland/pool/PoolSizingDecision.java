@@ -0,0 +1,8 @@
+package org.roland.pool;
+
+public record PoolSizingDecision(int currentSize, int targetSize, double demand, String reason, PoolSample sample) {
+
+    public boolean changed() {
+        return targetSize != currentSize;
+    }
+}
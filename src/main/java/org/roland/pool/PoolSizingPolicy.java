@@ -0,0 +1,50 @@
+package org.roland.pool;
+
+/**
+ * Picks a pool size from Little's law: connections needed = throughput x
+ * mean hold time, plus callers already queued, plus headroom. When callers
+ * are waiting longer than the threshold the pool also grows by at least one
+ * step, because a saturated pool under-reports throughput. Each decision at
+ * most doubles the pool (or adds {@code maxStep}, whichever is larger), and
+ * each shrink closes at most half the gap, so a brief lull doesn't throw away
+ * all the warm connections.
+ */
+public class PoolSizingPolicy {
+
+    private final int minSize;
+    private final int maxSize;
+    private final double headroom;
+    private final double waitThresholdMillis;
+    private final int maxStep;
+
+    public PoolSizingPolicy(int minSize, int maxSize, double headroom, double waitThresholdMillis, int maxStep) {
+        if (minSize <= 0 || maxSize < minSize || maxStep <= 0 || headroom < 0) {
+            throw new IllegalArgumentException("invalid pool sizing bounds");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.headroom = headroom;
+        this.waitThresholdMillis = waitThresholdMillis;
+        this.maxStep = maxStep;
+    }
+
+    public PoolSizingDecision decide(PoolSample sample) {
+        int current = sample.currentSize();
+        double demand = sample.throughputPerSecond() * sample.meanHoldMillis() / 1000.0 + sample.pending();
+        int target = (int) Math.ceil(demand * (1 + headroom));
+        String reason = "littles-law";
+        if (sample.meanAcquireWaitMillis() > waitThresholdMillis && sample.pending() > 0 && target <= current) {
+            target = current + maxStep;
+            reason = "queueing";
+        }
+        target = Math.max(minSize, Math.min(maxSize, target));
+        if (target > current) {
+            target = Math.min(target, current + Math.max(maxStep, current));
+        } else if (target < current) {
+            target = current - Math.max(1, (current - target) / 2);
+        } else {
+            reason = "hold";
+        }
+        return new PoolSizingDecision(current, target, demand, reason, sample);
+    }
+}
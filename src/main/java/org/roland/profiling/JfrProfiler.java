@@ -0,0 +1,239 @@
+package org.roland.profiling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roland.dto.ProfileResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+
+/**
+ * Runs time-boxed Flight Recorder sessions on demand, one at a time and at
+ * most one per {@code profiling.min-interval}. Each recording uses the JDK's
+ * {@code default} settings (sampled CPU and allocations, lock waits over
+ * 20 ms, GC; made for always-on production use) plus the application's
+ * {@link RepositoryCallEvent} and {@link SerializationEvent}, without the
+ * events that copy the environment, system properties, JVM arguments and
+ * process list into the file, since those carry the datasource credentials.
+ * When the time is up the recording is written to
+ * {@code profiling.directory} and summarized; the last
+ * {@code profiling.history} runs and their files are kept.
+ */
+@Service
+public class JfrProfiler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrProfiler.class);
+    static final Set<String> SENSITIVE_EVENTS = Set.of(
+        "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation", "jdk.SystemProcess");
+
+    private final Path directory;
+    private final Duration defaultDuration;
+    private final Duration maxDuration;
+    private final Duration minInterval;
+    private final int historySize;
+    private final int top;
+    private final Clock clock;
+    private final Counter recordings;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, ProfileRun> runs = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("jfr-profiler").daemon(true).factory());
+    private Recording active;
+    private Instant lastStarted;
+
+    @Autowired
+    public JfrProfiler(
+            MeterRegistry meterRegistry,
+            @Value("${profiling.directory:data/profiling}") Path directory,
+            @Value("${profiling.default-duration:30s}") Duration defaultDuration,
+            @Value("${profiling.max-duration:5m}") Duration maxDuration,
+            @Value("${profiling.min-interval:1m}") Duration minInterval,
+            @Value("${profiling.history:5}") int historySize,
+            @Value("${profiling.top:10}") int top) {
+        this(meterRegistry, directory, defaultDuration, maxDuration, minInterval, historySize, top,
+            Clock.systemDefaultZone());
+    }
+
+    JfrProfiler(MeterRegistry meterRegistry, Path directory, Duration defaultDuration, Duration maxDuration,
+                Duration minInterval, int historySize, int top, Clock clock) {
+        this.directory = directory;
+        this.defaultDuration = defaultDuration;
+        this.maxDuration = maxDuration;
+        this.minInterval = minInterval;
+        this.historySize = historySize;
+        this.top = top;
+        this.clock = clock;
+        this.recordings = Counter.builder("profiling.recordings")
+            .description("Flight Recorder sessions started on demand")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Starts a recording and returns straight away.
+     *
+     * @param duration how long to record, or null for {@code profiling.default-duration}
+     * @throws IllegalArgumentException      if the duration is not positive or over {@code profiling.max-duration}
+     * @throws IllegalStateException         if a recording is already running
+     * @throws RecordingThrottledException   if the last one started less than {@code profiling.min-interval} ago
+     * @throws UnsupportedOperationException if this JVM has no Flight Recorder
+     */
+    public ProfileResponse start(Duration duration) {
+        Duration length = duration == null ? defaultDuration : duration;
+        if (length.isNegative() || length.isZero() || length.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be positive and at most " + maxDuration);
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new UnsupportedOperationException("Flight Recorder is not available in this JVM");
+        }
+        ProfileRun run;
+        Recording recording;
+        synchronized (runs) {
+            if (active != null) {
+                throw new IllegalStateException("A recording is already running");
+            }
+            Duration wait = lastStarted == null ? Duration.ZERO
+                : minInterval.minus(Duration.between(lastStarted, clock.instant()));
+            if (wait.isPositive()) {
+                throw new RecordingThrottledException("The next recording can start in " + wait);
+            }
+            long id = nextId.incrementAndGet();
+            run = new ProfileRun(id, length, directory.resolve("profile-" + id + ".jfr"), now());
+            recording = newRecording(run);
+            recording.start();
+            active = recording;
+            lastStarted = clock.instant();
+            runs.put(run.id, run);
+            pruneHistory();
+        }
+        recordings.increment();
+        log.info("Profiling recording {} started for {}", run.id, length);
+        executor.schedule(() -> finish(run, recording), length.toMillis(), TimeUnit.MILLISECONDS);
+        return run.snapshot();
+    }
+
+    public Optional<ProfileResponse> find(long id) {
+        synchronized (runs) {
+            return Optional.ofNullable(runs.get(id)).map(ProfileRun::snapshot);
+        }
+    }
+
+    /** Most recent first. */
+    public List<ProfileResponse> list() {
+        synchronized (runs) {
+            return runs.values().stream().map(ProfileRun::snapshot)
+                .sorted((a, b) -> Long.compare(b.id(), a.id())).toList();
+        }
+    }
+
+    /** The {@code .jfr} file of a completed recording. */
+    public Optional<Path> recordingFile(long id) {
+        synchronized (runs) {
+            return Optional.ofNullable(runs.get(id))
+                .filter(run -> run.status() == ProfileStatus.COMPLETED)
+                .map(run -> run.file)
+                .filter(Files::isReadable);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (runs) {
+            if (active != null) {
+                active.close();
+                active = null;
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    private Recording newRecording(ProfileRun run) {
+        try {
+            Files.createDirectories(directory);
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("profile-" + run.id);
+            recording.enable(RepositoryCallEvent.class);
+            recording.enable(SerializationEvent.class);
+            SENSITIVE_EVENTS.forEach(recording::disable);
+            recording.setToDisk(true);
+            recording.setDestination(run.file);
+            return recording;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("The JDK's default Flight Recorder settings could not be read", e);
+        }
+    }
+
+    void finish(ProfileRun run, Recording recording) {
+        try {
+            synchronized (runs) {
+                if (active != recording) {
+                    return; // shut down meanwhile
+                }
+                recording.stop();
+                recording.close();
+            }
+            run.completed(Files.size(run.file), RecordingSummarizer.summarize(run.file, top), now());
+            log.info("Profiling recording {} completed: {}", run.id, run.file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Profiling recording {} failed: {}", run.id, e.toString());
+            run.failed(e.getMessage(), now());
+        } finally {
+            synchronized (runs) {
+                if (active == recording) {
+                    active = null;
+                }
+            }
+        }
+    }
+
+    /** Drops the oldest finished runs, and their files, beyond {@code profiling.history}. */
+    private void pruneHistory() {
+        int excess = runs.size() - historySize;
+        Iterator<ProfileRun> oldest = runs.values().iterator();
+        while (excess > 0 && oldest.hasNext()) {
+            ProfileRun run = oldest.next();
+            if (run.status().finished()) {
+                oldest.remove();
+                excess--;
+                try {
+                    Files.deleteIfExists(run.file);
+                } catch (IOException e) {
+                    log.warn("Could not delete {}: {}", run.file, e.toString());
+                }
+            }
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+}
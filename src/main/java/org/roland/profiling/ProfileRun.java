@@ -0,0 +1,56 @@
+package org.roland.profiling;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import org.roland.dto.ProfileResponse;
+import org.roland.dto.ProfileSummary;
+
+/**
+ * One recording and, once it is over, its summary. The profiler thread is
+ * the only writer; request threads read the volatile fields.
+ */
+class ProfileRun {
+
+    final long id;
+    final Duration duration;
+    final Path file;
+    final LocalDateTime startedAt;
+
+    private volatile ProfileStatus status = ProfileStatus.RUNNING;
+    private volatile LocalDateTime finishedAt;
+    private volatile Long recordingBytes;
+    private volatile String error;
+    private volatile ProfileSummary summary;
+
+    ProfileRun(long id, Duration duration, Path file, LocalDateTime startedAt) {
+        this.id = id;
+        this.duration = duration;
+        this.file = file;
+        this.startedAt = startedAt;
+    }
+
+    void completed(long bytes, ProfileSummary result, LocalDateTime now) {
+        recordingBytes = bytes;
+        summary = result;
+        finishedAt = now;
+        status = ProfileStatus.COMPLETED;
+    }
+
+    void failed(String failure, LocalDateTime now) {
+        error = failure;
+        finishedAt = now;
+        status = ProfileStatus.FAILED;
+    }
+
+    ProfileStatus status() {
+        return status;
+    }
+
+    ProfileResponse snapshot() {
+        ProfileStatus current = status;
+        return new ProfileResponse(id, current.name(), duration, startedAt, finishedAt, recordingBytes,
+            current == ProfileStatus.COMPLETED ? "/actuator/profiling/" + id : null, error, summary);
+    }
+}
@@ -0,0 +1,9 @@
+package org.roland.profiling;
+
+public enum ProfileStatus {
+    RUNNING, COMPLETED, FAILED;
+
+    public boolean finished() {
+        return this != RUNNING;
+    }
+}
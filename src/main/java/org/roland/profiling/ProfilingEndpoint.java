@@ -0,0 +1,77 @@
+package org.roland.profiling;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.roland.dto.ProfileResponse;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/profiling}: {@code POST} (a JSON body, optionally with
+ * {@code "duration": "30s"}) starts a recording, {@code GET} lists the recent
+ * ones, {@code GET /{id}} shows one with its summary once it has completed,
+ * and {@code GET /{id}/jfr} downloads the recording for JDK Mission Control
+ * or {@code jfr print}. Like the rest of {@code /actuator} it is served on
+ * {@code management.server.port}, which docker-compose does not publish.
+ */
+@Component
+@WebEndpoint(id = "profiling")
+public class ProfilingEndpoint {
+
+    private final JfrProfiler profiler;
+
+    public ProfilingEndpoint(JfrProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> start(@Nullable Duration duration) {
+        try {
+            return new WebEndpointResponse<>(profiler.start(duration), HttpStatus.ACCEPTED.value());
+        } catch (IllegalArgumentException e) {
+            return error(e, WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return error(e, HttpStatus.CONFLICT.value());
+        } catch (RecordingThrottledException e) {
+            return error(e, HttpStatus.TOO_MANY_REQUESTS.value());
+        } catch (UnsupportedOperationException e) {
+            return error(e, WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    @ReadOperation
+    public List<ProfileResponse> recordings() {
+        return profiler.list();
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<ProfileResponse> recording(@Selector long id) {
+        return profiler.find(id)
+            .map(WebEndpointResponse::new)
+            .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id, @Selector String format) {
+        if (!"jfr".equals(format)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return profiler.recordingFile(id)
+            .map(file -> new WebEndpointResponse<Resource>(new FileSystemResource(file)))
+            .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+
+    private static WebEndpointResponse<Object> error(RuntimeException e, int status) {
+        return new WebEndpointResponse<>(Map.of("error", e.getMessage()), status);
+    }
+}
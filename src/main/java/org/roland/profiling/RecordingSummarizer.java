@@ -0,0 +1,219 @@
+package org.roland.profiling;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.roland.dto.ProfileSummary;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Reads a finished {@code .jfr} file once and boils it down to a
+ * {@link ProfileSummary}: CPU samples by top frame, sampled allocations by
+ * site, monitor and {@code java.util.concurrent} lock waits by lock class and
+ * site, GC pauses, and the repository and serialization events.
+ */
+final class RecordingSummarizer {
+
+    private static final String APPLICATION_PACKAGE = "org.roland.";
+    private static final String PROFILING_PACKAGE = "org.roland.profiling.";
+    private static final String LOCKS_PACKAGE = "java.util.concurrent.locks.";
+
+    private RecordingSummarizer() {
+    }
+
+    static ProfileSummary summarize(Path file, int top) throws IOException {
+        Map<String, long[]> hotMethods = new HashMap<>();
+        Map<String, long[]> hotApplicationMethods = new HashMap<>();
+        Map<List<String>, long[]> allocations = new HashMap<>();
+        Map<List<String>, Stat> contention = new HashMap<>();
+        Map<String, Stat> repositoryCalls = new HashMap<>();
+        Map<String, Stat> serialization = new HashMap<>();
+        Stat gc = new Stat();
+        long samples = 0;
+        long allocated = 0;
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample" -> {
+                        RecordedStackTrace stack = event.getStackTrace();
+                        if (stack == null || stack.getFrames().isEmpty()) {
+                            break;
+                        }
+                        samples++;
+                        count(hotMethods, frame(stack.getFrames().get(0)), 1);
+                        String application = applicationFrame(stack);
+                        if (application != null) {
+                            count(hotApplicationMethods, application, 1);
+                        }
+                    }
+                    case "jdk.ObjectAllocationSample" -> {
+                        long weight = event.getLong("weight");
+                        allocated += weight;
+                        count(allocations, List.of(topFrame(event.getStackTrace()),
+                            className(event.getClass("objectClass")), orNone(applicationFrame(event.getStackTrace()))),
+                            weight);
+                    }
+                    case "jdk.JavaMonitorEnter" -> contended(contention, event, event.getClass("monitorClass"));
+                    case "jdk.ThreadPark" -> {
+                        RecordedClass parked = event.getClass("parkedClass");
+                        // lock waits, not idle pool threads waiting on a condition or a queue
+                        if (parked != null && parked.getName().startsWith(LOCKS_PACKAGE)
+                                && !parked.getName().endsWith("$ConditionObject")) {
+                            contended(contention, event, parked);
+                        }
+                    }
+                    case "jdk.GarbageCollection" -> {
+                        gc.count++;
+                        gc.total = gc.total.plus(event.getDuration("sumOfPauses"));
+                        gc.max = max(gc.max, event.getDuration("longestPause"));
+                    }
+                    case RepositoryCallEvent.NAME -> timed(repositoryCalls,
+                        event.getString("repository") + "." + event.getString("method"), event);
+                    case SerializationEvent.NAME -> timed(serialization,
+                        event.getString("format") + " " + event.getString("type"), event);
+                    default -> {
+                    }
+                }
+            }
+        }
+        long totalSamples = samples;
+        long totalAllocated = allocated;
+        return new ProfileSummary(
+            samples,
+            top(hotMethods, top, (method, n) -> new ProfileSummary.HotMethod(method, n, percent(n, totalSamples))),
+            top(hotApplicationMethods, top,
+                (method, n) -> new ProfileSummary.HotMethod(method, n, percent(n, totalSamples))),
+            top(allocations, top, (site, bytes) -> new ProfileSummary.AllocationSite(site.get(0), site.get(1),
+                noneToNull(site.get(2)), bytes, percent(bytes, totalAllocated))),
+            topStats(contention, top, (site, stat) -> new ProfileSummary.LockContention(site.get(0), site.get(1),
+                noneToNull(site.get(2)), stat.count, millis(stat.total), millis(stat.max))),
+            new ProfileSummary.GcPauses(gc.count, millis(gc.total), millis(gc.max)),
+            topStats(repositoryCalls, top, RecordingSummarizer::timing),
+            topStats(serialization, top, RecordingSummarizer::timing));
+    }
+
+    private static final class Stat {
+        long count;
+        Duration total = Duration.ZERO;
+        Duration max = Duration.ZERO;
+
+        void add(Duration duration) {
+            count++;
+            total = total.plus(duration);
+            max = max(max, duration);
+        }
+    }
+
+    private static void contended(Map<List<String>, Stat> contention, RecordedEvent event, RecordedClass lock) {
+        RecordedStackTrace stack = event.getStackTrace();
+        contention.computeIfAbsent(List.of(className(lock), waitSite(stack), orNone(applicationFrame(stack))),
+            key -> new Stat()).add(event.getDuration());
+    }
+
+    private static void timed(Map<String, Stat> timings, String name, RecordedEvent event) {
+        timings.computeIfAbsent(name, key -> new Stat()).add(event.getDuration());
+    }
+
+    private static <K> void count(Map<K, long[]> counts, K key, long amount) {
+        counts.computeIfAbsent(key, k -> new long[1])[0] += amount;
+    }
+
+    private static <K, R> List<R> top(Map<K, long[]> counts, int top, CountMapper<K, R> mapper) {
+        return counts.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<K, long[]> e) -> e.getValue()[0]).reversed())
+            .limit(top)
+            .map(e -> mapper.map(e.getKey(), e.getValue()[0]))
+            .toList();
+    }
+
+    private static <K, R> List<R> topStats(Map<K, Stat> stats, int top, StatMapper<K, R> mapper) {
+        return stats.entrySet().stream()
+            .sorted(Comparator.comparing((Map.Entry<K, Stat> e) -> e.getValue().total).reversed())
+            .limit(top)
+            .map(e -> mapper.map(e.getKey(), e.getValue()))
+            .toList();
+    }
+
+    @FunctionalInterface
+    private interface CountMapper<K, R> {
+        R map(K key, long count);
+    }
+
+    @FunctionalInterface
+    private interface StatMapper<K, R> {
+        R map(K key, Stat stat);
+    }
+
+    private static ProfileSummary.Timing timing(String name, Stat stat) {
+        return new ProfileSummary.Timing(name, stat.count, millis(stat.total), millis(stat.max));
+    }
+
+    /** The first frame in this application's code, leaving out the profiling hooks themselves. */
+    private static String applicationFrame(RecordedStackTrace stack) {
+        return firstFrame(stack, type -> type.startsWith(APPLICATION_PACKAGE) && !type.startsWith(PROFILING_PACKAGE));
+    }
+
+    /** Where a thread waited: below the lock implementation for {@code java.util.concurrent} locks. */
+    private static String waitSite(RecordedStackTrace stack) {
+        String site = firstFrame(stack, type -> !type.startsWith(LOCKS_PACKAGE) && !type.startsWith("jdk.internal.misc."));
+        return site != null ? site : topFrame(stack);
+    }
+
+    private static String firstFrame(RecordedStackTrace stack, Predicate<String> accept) {
+        if (stack == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stack.getFrames()) {
+            if (frame.isJavaFrame() && accept.test(frame.getMethod().getType().getName())) {
+                return frame(frame);
+            }
+        }
+        return null;
+    }
+
+    private static String topFrame(RecordedStackTrace stack) {
+        return stack == null || stack.getFrames().isEmpty() ? "unknown" : frame(stack.getFrames().get(0));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        String method = frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+        return frame.getLineNumber() > 0 ? method + ":" + frame.getLineNumber() : method;
+    }
+
+    private static String className(RecordedClass type) {
+        return type == null ? "unknown" : type.getName();
+    }
+
+    // List.of rejects nulls
+    private static String orNone(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String noneToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static double millis(Duration duration) {
+        return Math.round(duration.toNanos() / 1_000.0) / 1_000.0;
+    }
+
+    private static double percent(long part, long whole) {
+        return whole == 0 ? 0.0 : Math.round(part * 1000.0 / whole) / 10.0;
+    }
+}
@@ -0,0 +1,9 @@
+package org.roland.profiling;
+
+/** A recording was asked for sooner than {@code profiling.min-interval} after the last one started. */
+public class RecordingThrottledException extends RuntimeException {
+
+    public RecordingThrottledException(String message) {
+        super(message);
+    }
+}
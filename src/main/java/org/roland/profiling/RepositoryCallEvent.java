@@ -0,0 +1,25 @@
+package org.roland.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One Spring Data repository method call, from the proxy to the result. */
+@Name(RepositoryCallEvent.NAME)
+@Label("Repository Call")
+@Category({"Messages", "Database"})
+@Description("A Spring Data repository method call, including connection wait and query execution")
+@StackTrace(false)
+final class RepositoryCallEvent extends Event {
+
+    static final String NAME = "org.roland.RepositoryCall";
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+}
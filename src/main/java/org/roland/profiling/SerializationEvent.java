@@ -0,0 +1,52 @@
+package org.roland.profiling;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Writing one response body with Jackson, into the response buffer. */
+@Name(SerializationEvent.NAME)
+@Label("Response Serialization")
+@Category({"Messages", "Web"})
+@Description("A response body written by a Jackson message converter")
+@StackTrace(false)
+public final class SerializationEvent extends Event {
+
+    static final String NAME = "org.roland.Serialization";
+
+    @FunctionalInterface
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    @Label("Format")
+    String format;
+
+    @Label("Type")
+    String type;
+
+    /** Runs {@code write}, recorded as an event while a recording is on. */
+    public static void record(String format, Object value, Type type, Write write) throws IOException {
+        SerializationEvent event = new SerializationEvent();
+        if (!event.isEnabled()) {
+            write.run();
+            return;
+        }
+        event.begin();
+        try {
+            write.run();
+        } finally {
+            if (event.shouldCommit()) {
+                event.format = format;
+                event.type = type != null ? type.getTypeName() : value.getClass().getName();
+                event.commit();
+            }
+        }
+    }
+}
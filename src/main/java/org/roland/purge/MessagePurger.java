@@ -0,0 +1,279 @@
+package org.roland.purge;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.roland.analytics.MessageAnalytics;
+import org.roland.coherence.ChangeLog;
+import org.roland.dto.PurgeResponse;
+import org.roland.model.Message;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.MessageQueryService;
+import org.roland.stats.MessageRateStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Deletes messages in the background, a primary-key-ordered chunk at a time
+ * (see {@link PurgeStore}) with a pause between chunks, so a large purge
+ * never holds InnoDB locks for longer than one short chunk and leaves the
+ * write pool free for {@code addMessage} in between. Each chunk only looks at
+ * the next {@code purge.key-window} ids, so a criterion that matches few rows
+ * walks the table in short scans instead of one long one; windows with no
+ * matches move on without a pause. One purge runs at a time on its own
+ * thread, and a new one is refused until it has finished.
+ * Each chunk is a {@link DatabaseGuard} write, so it is admitted to the write
+ * lane like any request and bounded by the write budget; a purge that can't
+ * get in fails and keeps what it deleted so far.
+ * <p>
+ * Only messages that existed when the purge started are considered. After
+ * each chunk commits, its rows are taken out of the rate statistics, the
+ * second-level cache and the stale-read snapshots; the content analytics
+ * can't forget individual messages, so they are rebuilt once at the end.
+ * Cancelling stops after the chunk in flight; everything deleted so far
+ * stays deleted.
+ */
+@Service
+public class MessagePurger implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MessagePurger.class);
+
+    private final PurgeStore store;
+    private final DatabaseGuard databaseGuard;
+    private final MessageRateStats messageRateStats;
+    private final MessageQueryService messageQueryService;
+    private final MessageAnalytics messageAnalytics;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int defaultChunkSize;
+    private final int keyWindow;
+    private final Duration defaultPause;
+    private final int historySize;
+    private final boolean rebuildAnalytics;
+    private final Clock clock;
+    private final Counter purged;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, PurgeJob> jobs = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("message-purge").daemon(true).factory());
+
+    @Autowired
+    public MessagePurger(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            DatabaseGuard databaseGuard,
+            MessageRateStats messageRateStats,
+            MessageQueryService messageQueryService,
+            MessageAnalytics messageAnalytics,
+            EntityManagerFactory entityManagerFactory,
+            ChangeLog changeLog,
+            MeterRegistry meterRegistry,
+            @Value("${purge.chunk-size:1000}") int defaultChunkSize,
+            @Value("${purge.key-window:50000}") int keyWindow,
+            @Value("${purge.pause:100ms}") Duration defaultPause,
+            @Value("${purge.statement-timeout:5s}") Duration statementTimeout,
+            @Value("${purge.history-size:20}") int historySize,
+            @Value("${purge.rebuild-analytics:true}") boolean rebuildAnalytics) {
+        this(new PurgeStore(dataSource, transactionManager, changeLog, statementTimeout), databaseGuard, messageRateStats,
+            messageQueryService, messageAnalytics, entityManagerFactory, meterRegistry, defaultChunkSize, keyWindow, defaultPause,
+            historySize,
+            rebuildAnalytics, Clock.systemDefaultZone());
+    }
+
+    MessagePurger(PurgeStore store, DatabaseGuard databaseGuard, MessageRateStats messageRateStats,
+                  MessageQueryService messageQueryService, MessageAnalytics messageAnalytics,
+                  EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry, int defaultChunkSize,
+                  int keyWindow, Duration defaultPause, int historySize, boolean rebuildAnalytics, Clock clock) {
+        this.store = store;
+        this.databaseGuard = databaseGuard;
+        this.messageRateStats = messageRateStats;
+        this.messageQueryService = messageQueryService;
+        this.messageAnalytics = messageAnalytics;
+        this.entityManagerFactory = entityManagerFactory;
+        this.defaultChunkSize = defaultChunkSize;
+        this.keyWindow = keyWindow;
+        this.defaultPause = defaultPause;
+        this.historySize = historySize;
+        this.rebuildAnalytics = rebuildAnalytics;
+        this.clock = clock;
+        this.purged = Counter.builder("messages.purged")
+            .description("Messages deleted by purges")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues a purge and returns straight away.
+     *
+     * @param chunkSize rows per delete, or null for {@code purge.chunk-size}
+     * @param pause     wait between chunks, or null for {@code purge.pause}
+     * @throws IllegalStateException if another purge is queued or running
+     */
+    public PurgeResponse start(PurgeCriteria criteria, Integer chunkSize, Duration pause) {
+        PurgeJob job;
+        synchronized (jobs) {
+            if (jobs.values().stream().anyMatch(other -> !other.status().finished())) {
+                throw new IllegalStateException("A purge is already queued or running");
+            }
+            job = new PurgeJob(nextId.incrementAndGet(), criteria,
+                chunkSize == null ? defaultChunkSize : chunkSize, pause == null ? defaultPause : pause);
+            jobs.put(job.id, job);
+            pruneHistory();
+        }
+        executor.execute(() -> run(job));
+        return job.snapshot();
+    }
+
+    public Optional<PurgeResponse> find(long id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id)).map(PurgeJob::snapshot);
+        }
+    }
+
+    /** Most recent first. */
+    public List<PurgeResponse> list() {
+        synchronized (jobs) {
+            return jobs.values().stream().map(PurgeJob::snapshot)
+                .sorted((a, b) -> Long.compare(b.id(), a.id())).toList();
+        }
+    }
+
+    public Optional<PurgeResponse> cancel(long id) {
+        PurgeJob job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.cancel();
+        return Optional.of(job.snapshot());
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (jobs) {
+            jobs.values().forEach(PurgeJob::cancel);
+        }
+        executor.shutdownNow();
+    }
+
+    void run(PurgeJob job) {
+        if (job.cancelRequested()) {
+            job.finished(PurgeStatus.CANCELLED, null, now());
+            return;
+        }
+        PurgeStatus outcome;
+        String error = null;
+        try {
+            outcome = purge(job);
+        } catch (RuntimeException e) {
+            log.warn("Purge {} failed after deleting {} messages: {}", job.id, job.deleted(), e.toString());
+            outcome = PurgeStatus.FAILED;
+            error = e.getMessage();
+        }
+        if (job.deleted() > 0 && rebuildAnalytics) {
+            rebuildAnalytics(job);
+        }
+        job.finished(outcome, error, now());
+        log.info("Purge {} {}: {} messages deleted", job.id, outcome.name().toLowerCase(Locale.ROOT), job.deleted());
+    }
+
+    private PurgeStatus purge(PurgeJob job) {
+        job.started(databaseGuard.write(store::idRange), now());
+        log.info("Purge {} started: {} up to id {}", job.id, job.criteria, job.upToId());
+        while (true) {
+            long afterId = job.lastId();
+            long windowEnd = Math.min(job.upToId(), afterId + Math.max(keyWindow, job.chunkSize));
+            List<PurgeStore.DeletedRow> rows = databaseGuard.write(
+                () -> store.deleteChunk(job.criteria, afterId, windowEnd, job.chunkSize));
+            // a full chunk may have left matches in its window; otherwise the whole window is done
+            long scannedUpTo = rows.size() == job.chunkSize ? rows.get(rows.size() - 1).id() : windowEnd;
+            job.chunkDeleted(rows.size(), scannedUpTo);
+            forget(rows);
+            if (scannedUpTo >= job.upToId()) {
+                return PurgeStatus.COMPLETED;
+            }
+            if (rows.isEmpty()) {
+                if (job.cancelRequested()) {
+                    return PurgeStatus.CANCELLED;
+                }
+                continue;
+            }
+            try {
+                if (job.pauseOrCancelled()) {
+                    return PurgeStatus.CANCELLED;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return PurgeStatus.CANCELLED;
+            }
+        }
+    }
+
+    private void forget(List<PurgeStore.DeletedRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = rows.stream().map(PurgeStore.DeletedRow::id).collect(Collectors.toSet());
+        ids.forEach(id -> entityManagerFactory.getCache().evict(Message.class, id));
+        messageQueryService.forget(ids);
+        messageRateStats.forget(rows.stream().map(PurgeStore.DeletedRow::timestamp).toList());
+        purged.increment(rows.size());
+    }
+
+    private void rebuildAnalytics(PurgeJob job) {
+        try {
+            databaseGuard.write(() -> {
+                store.finished();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not announce the end of purge {} to other nodes: {}", job.id, e.toString());
+        }
+        try {
+            messageAnalytics.rebuild().join();
+        } catch (CompletionException e) {
+            log.warn("Analytics rebuild after purge {} failed: {}", job.id, e.getCause().toString());
+        }
+    }
+
+    /** Drops the oldest finished jobs beyond {@code purge.history-size}. */
+    private void pruneHistory() {
+        int excess = jobs.size() - historySize;
+        Iterator<PurgeJob> oldest = jobs.values().iterator();
+        while (excess > 0 && oldest.hasNext()) {
+            if (oldest.next().status().finished()) {
+                oldest.remove();
+                excess--;
+            }
+        }
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+}
@@ -0,0 +1,17 @@
+package org.roland.purge;
+
+import java.time.LocalDateTime;
+
+/**
+ * Which messages a purge deletes. A message matches when it is older than
+ * {@code olderThan} and its content contains {@code contentContains}; a null
+ * criterion matches everything.
+ */
+public record PurgeCriteria(LocalDateTime olderThan, String contentContains) {
+
+    public PurgeCriteria {
+        if (olderThan == null && (contentContains == null || contentContains.isEmpty())) {
+            throw new IllegalArgumentException("A purge needs at least one criterion");
+        }
+    }
+}
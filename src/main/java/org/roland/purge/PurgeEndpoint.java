@@ -0,0 +1,85 @@
+package org.roland.purge;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.roland.dto.PurgeRequest;
+import org.roland.dto.PurgeResponse;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * {@code /actuator/purges}: {@code POST} (a JSON {@link PurgeRequest})
+ * queues a purge ({@code 409} while another one is queued or running),
+ * {@code GET} lists the recent ones, {@code GET /{id}} shows
+ * the progress of one and {@code DELETE /{id}} cancels it after its current
+ * chunk. Purges can delete most of the table, so they live on
+ * {@code management.server.port} with the rest of {@code /actuator}, which
+ * docker-compose does not publish.
+ */
+@Component
+@WebEndpoint(id = "purges")
+public class PurgeEndpoint {
+
+    private final MessagePurger messagePurger;
+    private final Validator validator;
+
+    public PurgeEndpoint(MessagePurger messagePurger, Validator validator) {
+        this.messagePurger = messagePurger;
+        this.validator = validator;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Object> start(@Nullable LocalDateTime olderThan, @Nullable String contentContains,
+                                             @Nullable Integer chunkSize, @Nullable Long pauseMillis) {
+        PurgeRequest request = new PurgeRequest(olderThan, contentContains, chunkSize, pauseMillis);
+        Set<ConstraintViolation<PurgeRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return new WebEndpointResponse<>(Map.of("error", violations.stream()
+                .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "))),
+                WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        try {
+            return new WebEndpointResponse<>(messagePurger.start(
+                new PurgeCriteria(request.olderThan(), request.contentContains()),
+                request.chunkSize(),
+                request.pauseMillis() == null ? null : Duration.ofMillis(request.pauseMillis())),
+                HttpStatus.ACCEPTED.value());
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), HttpStatus.CONFLICT.value());
+        }
+    }
+
+    @ReadOperation
+    public List<PurgeResponse> purges() {
+        return messagePurger.list();
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<PurgeResponse> purge(@Selector long id) {
+        return messagePurger.find(id)
+            .map(WebEndpointResponse::new)
+            .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<PurgeResponse> cancel(@Selector long id) {
+        return messagePurger.cancel(id)
+            .map(purge -> new WebEndpointResponse<>(purge, HttpStatus.ACCEPTED.value()))
+            .orElseGet(() -> new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND));
+    }
+}
@@ -0,0 +1,98 @@
+package org.roland.purge;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.roland.dto.PurgeResponse;
+
+/**
+ * One purge request and its progress. The purge thread is the only writer;
+ * request threads read the volatile fields and may {@link #cancel()} it.
+ */
+class PurgeJob {
+
+    final long id;
+    final PurgeCriteria criteria;
+    final int chunkSize;
+    final Duration pause;
+
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private volatile PurgeStatus status = PurgeStatus.QUEUED;
+    private volatile long deleted;
+    private volatile long chunks;
+    private volatile long firstId;
+    private volatile long lastId;
+    private volatile long upToId;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    PurgeJob(long id, PurgeCriteria criteria, int chunkSize, Duration pause) {
+        this.id = id;
+        this.criteria = criteria;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+    }
+
+    void cancel() {
+        cancelled.countDown();
+    }
+
+    boolean cancelRequested() {
+        return cancelled.getCount() == 0;
+    }
+
+    /** Waits out the pause between chunks; returns early, with true, when cancelled. */
+    boolean pauseOrCancelled() throws InterruptedException {
+        return pause.isZero() ? cancelRequested() : cancelled.await(pause.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    void started(PurgeStore.IdRange range, LocalDateTime now) {
+        firstId = range.min() - 1;
+        lastId = range.min() - 1;
+        upToId = range.max();
+        startedAt = now;
+        status = PurgeStatus.RUNNING;
+    }
+
+    void chunkDeleted(int rows, long scannedUpTo) {
+        deleted += rows;
+        chunks++;
+        lastId = scannedUpTo;
+    }
+
+    void finished(PurgeStatus outcome, String failure, LocalDateTime now) {
+        error = failure;
+        finishedAt = now;
+        status = outcome;
+    }
+
+    PurgeStatus status() {
+        return status;
+    }
+
+    long deleted() {
+        return deleted;
+    }
+
+    long lastId() {
+        return lastId;
+    }
+
+    long upToId() {
+        return upToId;
+    }
+
+    PurgeResponse snapshot() {
+        PurgeStatus current = status;
+        return new PurgeResponse(id, current.name(), criteria.olderThan(), criteria.contentContains(), chunkSize,
+            deleted, chunks, current == PurgeStatus.COMPLETED ? 1.0 : progress(), startedAt, finishedAt, error);
+    }
+
+    private double progress() {
+        long span = upToId - firstId;
+        return span <= 0 ? 0.0 : Math.min(1.0, (lastId - firstId) / (double) span);
+    }
+}
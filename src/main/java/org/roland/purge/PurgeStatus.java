@@ -0,0 +1,9 @@
+package org.roland.purge;
+
+public enum PurgeStatus {
+    QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED;
+
+    public boolean finished() {
+        return this != QUEUED && this != RUNNING;
+    }
+}
@@ -0,0 +1,91 @@
+package org.roland.purge;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.roland.coherence.ChangeLog;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * JDBC access to {@code messages} for purges. A chunk walks the primary key
+ * upwards from the previous chunk with a plain (non-locking) read, then
+ * deletes exactly the ids it found by primary key in a short transaction.
+ * InnoDB therefore only locks the rows being deleted, never a range, and
+ * {@code addMessage} inserts at the top of the key space are not blocked.
+ * The deleted ids go into the {@link ChangeLog} in the same transaction.
+ */
+class PurgeStore {
+
+    record DeletedRow(long id, LocalDateTime timestamp) {
+    }
+
+    record IdRange(long min, long max) {
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChangeLog changeLog;
+
+    PurgeStore(DataSource dataSource, PlatformTransactionManager transactionManager, ChangeLog changeLog,
+               Duration statementTimeout) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setQueryTimeout((int) Math.max(1, statementTimeout.toSeconds()));
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.changeLog = changeLog;
+    }
+
+    /** Ids present when the purge starts; later inserts are out of its range. */
+    IdRange idRange() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MIN(id), 0) AS min_id, COALESCE(MAX(id), 0) AS max_id FROM messages",
+            new MapSqlParameterSource(), (row, rowNum) -> new IdRange(row.getLong("min_id"), row.getLong("max_id")));
+    }
+
+    /**
+     * Deletes up to {@code limit} matching messages with ids in
+     * {@code (afterId, upToId]}, lowest ids first, and returns them.
+     */
+    List<DeletedRow> deleteChunk(PurgeCriteria criteria, long afterId, long upToId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("afterId", afterId)
+            .addValue("upToId", upToId)
+            .addValue("limit", limit);
+        StringBuilder sql = new StringBuilder("SELECT id, timestamp FROM messages WHERE id > :afterId AND id <= :upToId");
+        if (criteria.olderThan() != null) {
+            sql.append(" AND timestamp < :olderThan");
+            params.addValue("olderThan", criteria.olderThan());
+        }
+        if (criteria.contentContains() != null) {
+            sql.append(" AND content LIKE :pattern");
+            params.addValue("pattern", "%" + escapeLike(criteria.contentContains()) + "%");
+        }
+        sql.append(" ORDER BY id LIMIT :limit");
+        List<DeletedRow> rows = jdbcTemplate.query(sql.toString(), params,
+            (row, rowNum) -> new DeletedRow(row.getLong("id"), row.getObject("timestamp", LocalDateTime.class)));
+        if (!rows.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM messages WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", rows.stream().map(DeletedRow::id).toList()));
+                changeLog.deleted(rows.stream().collect(Collectors.toMap(DeletedRow::id, DeletedRow::timestamp)));
+            });
+        }
+        return rows;
+    }
+
+    /** Tells the other nodes that a purge which deleted messages is done. */
+    void finished() {
+        changeLog.purgeFinished();
+    }
+
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
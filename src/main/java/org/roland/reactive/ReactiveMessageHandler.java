@@ -0,0 +1,130 @@
+package org.roland.reactive;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.roland.dto.MessageResponse;
+import org.roland.model.Message;
+import org.roland.service.CircuitBreaker;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.DatabaseUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@code GET /api/messages} and {@code GET /api/messages/{id}} on the event
+ * loop. The list is written as rows arrive: a JSON array by default, or one
+ * message per line for {@code Accept: application/x-ndjson}. Writes to the
+ * socket drive the demand on the database cursor, and a client that goes
+ * away cancels the query.
+ * <p>
+ * Reads get their own breaker with the {@code database.guard.*} settings,
+ * since they don't pass through the {@link DatabaseGuard} lanes. The first
+ * row has to arrive within the read timeout; after that a stream runs at
+ * the client's pace. There is no last-good fallback here: a refused or
+ * failed read is a 503.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveMessageHandler {
+
+    private final ReactiveMessageRepository repository;
+    private final CircuitBreaker breaker;
+    private final Duration readTimeout;
+    private final Counter rows;
+    private final Counter cancelled;
+    private final Counter rejected;
+
+    public ReactiveMessageHandler(
+            ReactiveMessageRepository repository,
+            @Value("${database.guard.failure-threshold:5}") int failureThreshold,
+            @Value("${database.guard.open-duration:10s}") Duration openDuration,
+            @Value("${database.guard.read-timeout:2s}") Duration readTimeout,
+            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.breaker = new CircuitBreaker(failureThreshold, openDuration, System::nanoTime);
+        this.readTimeout = readTimeout;
+        Gauge.builder("messages.reactive.breaker.state", breaker, b -> b.status().ordinal())
+            .description("Reactive read breaker state: 0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+        this.rows = Counter.builder("messages.reactive.rows")
+            .description("Messages streamed to clients by the reactive read endpoints")
+            .register(meterRegistry);
+        this.cancelled = Counter.builder("messages.reactive.cancelled")
+            .description("Reactive reads cancelled before the last row, usually by the client disconnecting")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("messages.reactive.rejected")
+            .description("Reactive reads rejected because the breaker was open")
+            .register(meterRegistry);
+    }
+
+    public Mono<ServerResponse> list(ServerRequest request) {
+        boolean ndjson = request.headers().accept().stream()
+            .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        Flux<MessageResponse> messages = guarded(repository.findAllNewestFirst()).map(MessageResponse::fromEntity);
+        return ServerResponse.ok()
+            .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+            .body(messages, MessageResponse.class);
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        long id = Long.parseLong(request.pathVariable("id"));
+        return guarded(repository.findById(id).flux())
+            .singleOrEmpty()
+            .map(MessageResponse::fromEntity)
+            .flatMap(message -> ServerResponse.ok().bodyValue(message))
+            .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    CircuitBreaker.Status breakerStatus() {
+        return breaker.status();
+    }
+
+    private Flux<Message> guarded(Flux<Message> query) {
+        return Flux.defer(() -> {
+            if (!breaker.tryAcquire()) {
+                rejected.increment();
+                return Flux.error(new DatabaseUnavailableException("Database circuit breaker is open"));
+            }
+            AtomicBoolean answered = new AtomicBoolean();
+            return query
+                .timeout(Mono.delay(readTimeout), row -> Mono.never())
+                .doOnNext(row -> {
+                    rows.increment();
+                    if (answered.compareAndSet(false, true)) {
+                        breaker.onSuccess();
+                    }
+                })
+                .doOnComplete(breaker::onSuccess)
+                .doOnCancel(() -> {
+                    cancelled.increment();
+                    breaker.onAbandoned();
+                })
+                .onErrorMap(this::failed);
+        });
+    }
+
+    private Throwable failed(Throwable error) {
+        if (error instanceof TimeoutException) {
+            breaker.onFailure();
+            return new DatabaseUnavailableException("No rows within " + readTimeout.toMillis() + " ms", error);
+        }
+        if (DatabaseGuard.isAvailabilityFailure(error)) {
+            breaker.onFailure();
+            return new DatabaseUnavailableException("Database call failed", error);
+        }
+        breaker.onSuccess();
+        return error;
+    }
+}
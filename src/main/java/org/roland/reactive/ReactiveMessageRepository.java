@@ -0,0 +1,62 @@
+package org.roland.reactive;
+
+import java.time.LocalDateTime;
+
+import org.roland.model.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC reads of {@link Message} for the {@code reactive} profile. Rows are
+ * mapped by hand instead of through Spring Data R2DBC, whose mapping
+ * annotations would clash with the entity's JPA ones.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveMessageRepository {
+
+    private static final String SELECT = "SELECT id, content, timestamp, channel FROM messages";
+
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    public ReactiveMessageRepository(DatabaseClient databaseClient,
+                                     @Value("${reactive.fetch-size:100}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Newest first, as {@code MessageRepository.findByChannelIsNullOrderByTimestampDesc}.
+     * The driver is asked for {@code fetch-size} rows at a time and only for
+     * more once the subscriber has taken them, so a slow reader holds a
+     * cursor rather than the whole result.
+     */
+    public Flux<Message> findAllNewestFirst() {
+        return databaseClient.sql(SELECT + " WHERE channel IS NULL ORDER BY timestamp DESC")
+            .filter(statement -> statement.fetchSize(fetchSize))
+            .map(ReactiveMessageRepository::toMessage)
+            .all()
+            .limitRate(fetchSize);
+    }
+
+    public Mono<Message> findById(long id) {
+        return databaseClient.sql(SELECT + " WHERE id = :id")
+            .bind("id", id)
+            .map(ReactiveMessageRepository::toMessage)
+            .one();
+    }
+
+    private static Message toMessage(Readable row) {
+        Message message = new Message(row.get("content", String.class), row.get("channel", String.class),
+            row.get("timestamp", LocalDateTime.class));
+        message.setId(row.get("id", Long.class));
+        return message;
+    }
+}
@@ -0,0 +1,74 @@
+package org.roland.reactive;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * The {@code reactive} profile: WebFlux on Netty instead of Spring MVC on
+ * Tomcat. The message reads are routed to {@link ReactiveMessageHandler};
+ * router functions are matched before annotated controllers, so they take
+ * over those paths from {@code SimpleController}. The existing controllers
+ * still serve every other endpoint. Their methods block on JPA, so they are
+ * run on a fixed pool of {@code web-blocking-N} threads rather than on the
+ * event loop.
+ * <p>
+ * The servlet filters (request deadlines, access log) do not apply under
+ * this profile.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("reactive")
+public class ReactiveWebConfiguration {
+
+    /** Netty even though Tomcat is on the classpath for the default profile. */
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> reactiveMessageRoutes(ReactiveMessageHandler handler) {
+        return RouterFunctions.route()
+            .GET("/api/messages", handler::list)
+            // ids too long for a long fall through to SimpleController's 400
+            .GET("/api/messages/{id:[0-9]{1,18}}", handler::get)
+            .build();
+    }
+
+    @Bean
+    BlockingControllers blockingControllers(@Value("${reactive.blocking-threads:64}") int threads) {
+        return new BlockingControllers(threads);
+    }
+
+    static final class BlockingControllers implements WebFluxConfigurer, DisposableBean {
+
+        private final ExecutorService executor;
+
+        BlockingControllers(int threads) {
+            this.executor = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("web-blocking-", 1).daemon(true).factory());
+        }
+
+        @Override
+        public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+            configurer.setExecutor(new TaskExecutorAdapter(executor));
+        }
+
+        @Override
+        public void destroy() {
+            executor.shutdownNow();
+        }
+    }
+}
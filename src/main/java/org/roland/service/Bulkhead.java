@@ -0,0 +1,140 @@
+package org.roland.service;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * A bounded execution lane: at most {@code maxConcurrentCalls} calls run and
+ * at most {@code queueCapacity} wait; anything beyond that is rejected
+ * immediately so callers never pile up behind a slow lane. Admission is a
+ * semaphore over both, released when a call finishes, so a worker that is
+ * just returning to the pool never causes a spurious rejection.
+ */
+class Bulkhead {
+
+    private final DatabaseLane lane;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore admission;
+    private final Counter rejected;
+    private final Counter deadlineExceeded;
+
+    Bulkhead(DatabaseLane lane, int maxConcurrentCalls, int queueCapacity, MeterRegistry meterRegistry) {
+        this.lane = lane;
+        String name = lane.name().toLowerCase(Locale.ROOT);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.admission = new Semaphore(maxConcurrentCalls + queueCapacity);
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    DatabaseLane.bind(lane);
+                    runnable.run();
+                }, "db-" + name + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("database.lane.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Database calls currently running in the lane")
+            .tag("lane", name)
+            .register(meterRegistry);
+        Gauge.builder("database.lane.queued", executor, e -> e.getQueue().size())
+            .description("Database calls waiting for a lane thread")
+            .tag("lane", name)
+            .register(meterRegistry);
+        this.rejected = Counter.builder("database.lane.rejected")
+            .description("Database calls rejected because the lane and its queue were full")
+            .tag("lane", name)
+            .register(meterRegistry);
+        this.deadlineExceeded = Counter.builder("database.deadline.exceeded")
+            .description("Database calls cut short because the request deadline ran out")
+            .tag("lane", name)
+            .register(meterRegistry);
+    }
+
+    /** Queues {@code call} to run on a lane thread bound to {@code deadline}. */
+    <T> Future<T> submit(Callable<T> call, Deadline deadline) {
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw new DatabaseUnavailableException("Too many concurrent " + lane.name().toLowerCase(Locale.ROOT)
+                + " calls");
+        }
+        AdmittedCall<T> task = new AdmittedCall<>(call, admission, deadline);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.cancel(false);
+            throw new DatabaseUnavailableException("Database " + lane.name().toLowerCase(Locale.ROOT)
+                + " lane is shut down", e);
+        }
+        return task;
+    }
+
+    void recordDeadlineExceeded() {
+        deadlineExceeded.increment();
+    }
+
+    int activeCalls() {
+        return executor.getActiveCount();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Holds one admission permit until the call finishes, or until it is
+     * cancelled before a worker picked it up.
+     */
+    private static final class AdmittedCall<T> extends FutureTask<T> {
+
+        private final Semaphore admission;
+        private final Deadline deadline;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile boolean started;
+
+        AdmittedCall(Callable<T> call, Semaphore admission, Deadline deadline) {
+            super(call);
+            this.admission = admission;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            Deadline previous = Deadline.bind(deadline);
+            try {
+                super.run();
+            } finally {
+                Deadline.bind(previous);
+                release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (!started) {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                admission.release();
+            }
+        }
+    }
+}
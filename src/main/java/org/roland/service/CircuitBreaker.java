@@ -0,0 +1,97 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free closed/open/half-open breaker. It opens after
+ * {@code failureThreshold} consecutive failures, rejects calls for
+ * {@code openDuration}, then lets a single probe through: success closes it,
+ * failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum Status { CLOSED, OPEN, HALF_OPEN }
+
+    private record State(Status status, int failures, long openedAt) {
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(Status.CLOSED, 0, 0));
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("failureThreshold must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns whether a call may proceed. When the open period has elapsed,
+     * exactly one caller wins the transition to half-open and becomes the
+     * probe.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            State current = state.get();
+            switch (current.status()) {
+                case CLOSED:
+                    return true;
+                case HALF_OPEN:
+                    return false;
+                default:
+                    if (nanoClock.getAsLong() - current.openedAt() < openNanos) {
+                        return false;
+                    }
+                    if (state.compareAndSet(current, new State(Status.HALF_OPEN, current.failures(), current.openedAt()))) {
+                        return true;
+                    }
+            }
+        }
+    }
+
+    public void onSuccess() {
+        State current = state.get();
+        if (current.status() != Status.CLOSED || current.failures() != 0) {
+            state.set(new State(Status.CLOSED, 0, 0));
+        }
+    }
+
+    public void onFailure() {
+        while (true) {
+            State current = state.get();
+            State next;
+            if (current.status() == Status.HALF_OPEN || current.failures() + 1 >= failureThreshold) {
+                next = new State(Status.OPEN, current.failures() + 1, nanoClock.getAsLong());
+            } else if (current.status() == Status.CLOSED) {
+                next = new State(Status.CLOSED, current.failures() + 1, 0);
+            } else {
+                return;
+            }
+            if (state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ends a call whose outcome says nothing about the database, such as one
+     * cut short by the caller's own deadline. A half-open probe goes back to
+     * open with its old open time, so the next call becomes the probe.
+     */
+    public void onAbandoned() {
+        State current = state.get();
+        if (current.status() == Status.HALF_OPEN) {
+            state.compareAndSet(current, new State(Status.OPEN, current.failures(), current.openedAt()));
+        }
+    }
+
+    public Status status() {
+        return state.get().status();
+    }
+}
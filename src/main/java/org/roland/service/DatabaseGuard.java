@@ -0,0 +1,186 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Runs repository calls behind a circuit breaker with a per-call time budget,
+ * so a stalled MySQL costs callers at most the budget instead of a blocked
+ * Tomcat thread. Reads and writes run in separate bounded lanes, each with
+ * its own connection pool (see {@link DatabaseLane}), so a slow scan can't
+ * starve writes, and the Tomcat threads left over keep serving non-database
+ * endpoints and health checks. When a lane is full, the breaker is open, or
+ * the budget runs out, the caller gets a {@link DatabaseUnavailableException}
+ * straight away. A full lane does not count against the breaker, which both
+ * lanes share, so a burst of reads can't shut out writes.
+ * <p>
+ * A call never outlives the request's {@link Deadline}: the budget shrinks to
+ * what is left of it, the lane thread runs under it so connection waits and
+ * query timeouts are capped too, and when it runs out the call's statements
+ * are cancelled and the caller gets a {@link DeadlineExceededException}.
+ */
+@Component
+public class DatabaseGuard implements DisposableBean {
+
+    private final CircuitBreaker breaker;
+    private final Duration readTimeout;
+    private final Duration writeTimeout;
+    private final Bulkhead readLane;
+    private final Bulkhead writeLane;
+    private final Counter rejected;
+    private final Counter timeouts;
+
+    public DatabaseGuard(
+            @Value("${database.guard.failure-threshold:5}") int failureThreshold,
+            @Value("${database.guard.open-duration:10s}") Duration openDuration,
+            @Value("${database.guard.read-timeout:2s}") Duration readTimeout,
+            @Value("${database.guard.write-timeout:3s}") Duration writeTimeout,
+            @Value("${database.lanes.read.max-concurrent-calls:32}") int readConcurrency,
+            @Value("${database.lanes.read.queue-capacity:64}") int readQueue,
+            @Value("${database.lanes.write.max-concurrent-calls:16}") int writeConcurrency,
+            @Value("${database.lanes.write.queue-capacity:32}") int writeQueue,
+            MeterRegistry meterRegistry) {
+        this.breaker = new CircuitBreaker(failureThreshold, openDuration, System::nanoTime);
+        this.readTimeout = readTimeout;
+        this.writeTimeout = writeTimeout;
+        this.readLane = new Bulkhead(DatabaseLane.READ, readConcurrency, readQueue, meterRegistry);
+        this.writeLane = new Bulkhead(DatabaseLane.WRITE, writeConcurrency, writeQueue, meterRegistry);
+        Gauge.builder("database.guard.state", breaker, b -> b.status().ordinal())
+            .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("database.guard.rejected")
+            .description("Calls rejected because the breaker was open")
+            .register(meterRegistry);
+        this.timeouts = Counter.builder("database.guard.timeouts")
+            .description("Calls that exceeded their time budget")
+            .register(meterRegistry);
+    }
+
+    public <T> T read(Callable<T> call) {
+        return call(readLane, call, readTimeout);
+    }
+
+    public <T> T write(Callable<T> call) {
+        return call(writeLane, call, writeTimeout);
+    }
+
+    public CircuitBreaker.Status status() {
+        return breaker.status();
+    }
+
+    int activeCalls() {
+        return readLane.activeCalls() + writeLane.activeCalls();
+    }
+
+    @Override
+    public void destroy() {
+        readLane.shutdown();
+        writeLane.shutdown();
+    }
+
+    private <T> T call(Bulkhead lane, Callable<T> call, Duration budget) {
+        long start = System.nanoTime();
+        try {
+            return guardedCall(lane, call, budget);
+        } finally {
+            DatabaseTime.add(System.nanoTime() - start);
+        }
+    }
+
+    private <T> T guardedCall(Bulkhead lane, Callable<T> call, Duration budget) {
+        Deadline request = Deadline.current();
+        if (request != null && request.expired()) {
+            lane.recordDeadlineExceeded();
+            throw new DeadlineExceededException("Request deadline passed before the database call");
+        }
+        boolean requestBound = request != null && request.remaining().compareTo(budget) < 0;
+        Duration limit = requestBound ? request.remaining() : budget;
+        if (!breaker.tryAcquire()) {
+            rejected.increment();
+            throw new DatabaseUnavailableException("Database circuit breaker is open");
+        }
+        Deadline deadline = Deadline.after(limit);
+        Future<T> future;
+        try {
+            future = lane.submit(call, deadline);
+        } catch (DatabaseUnavailableException e) {
+            // a full lane is our own back-pressure, not a sign the database is down
+            breaker.onAbandoned();
+            throw e;
+        }
+        try {
+            T result = future.get(limit.toNanos(), TimeUnit.NANOSECONDS);
+            breaker.onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            deadline.cancel();
+            future.cancel(true);
+            throw exceeded(lane, requestBound, limit, e);
+        } catch (InterruptedException e) {
+            deadline.cancel();
+            future.cancel(true);
+            // says nothing about the database, but a half-open probe must not stay in flight forever
+            breaker.onAbandoned();
+            Thread.currentThread().interrupt();
+            throw new DatabaseUnavailableException("Interrupted while waiting for the database", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (isAvailabilityFailure(cause)) {
+                if (deadline.expired()) {
+                    // the query or connection timeout derived from the deadline fired
+                    throw exceeded(lane, requestBound, limit, cause);
+                }
+                breaker.onFailure();
+                throw new DatabaseUnavailableException("Database call failed", cause);
+            }
+            breaker.onSuccess();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A call that ran out of time. When the request's own deadline was the
+     * limit, the caller asked for less than the guard allows, so it says
+     * nothing about the database and leaves the breaker alone.
+     */
+    private DatabaseUnavailableException exceeded(Bulkhead lane, boolean requestBound, Duration limit, Throwable cause) {
+        if (requestBound) {
+            lane.recordDeadlineExceeded();
+            breaker.onAbandoned();
+            return new DeadlineExceededException("Request deadline exceeded during the database call", cause);
+        }
+        timeouts.increment();
+        breaker.onFailure();
+        return new DatabaseUnavailableException("Database call exceeded " + limit.toMillis() + " ms", cause);
+    }
+
+    /** Whether a failed call says the database is unreachable or overloaded, rather than the call being wrong. */
+    public static boolean isAvailabilityFailure(Throwable cause) {
+        return cause instanceof TransientDataAccessException
+            || cause instanceof RecoverableDataAccessException
+            || cause instanceof DataAccessResourceFailureException
+            || cause instanceof CannotCreateTransactionException;
+    }
+}
@@ -0,0 +1,36 @@
+package org.roland.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Traffic classes that get their own execution lane and connection pool.
+ * Lane threads are bound to their lane for life; any other thread (Tomcat
+ * threads, health checks, startup work) uses {@link #DEFAULT}.
+ */
+public enum DatabaseLane {
+    READ, WRITE, DEFAULT;
+
+    private static final ThreadLocal<DatabaseLane> CURRENT = ThreadLocal.withInitial(() -> DEFAULT);
+
+    public static DatabaseLane current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs {@code work} on the current thread as if it were a {@code lane}
+     * thread, for helpers that fan a lane's work out to other threads.
+     */
+    public static <T> T supplyIn(DatabaseLane lane, Supplier<T> work) {
+        DatabaseLane previous = CURRENT.get();
+        CURRENT.set(lane);
+        try {
+            return work.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    static void bind(DatabaseLane lane) {
+        CURRENT.set(lane);
+    }
+}
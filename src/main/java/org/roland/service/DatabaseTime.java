@@ -0,0 +1,26 @@
+package org.roland.service;
+
+/**
+ * Time the current thread has spent in {@link DatabaseGuard} calls since the
+ * last {@link #reset()}, queueing included. Request threads reset it when a
+ * request starts and read it when it ends, to report DB time per request.
+ */
+public final class DatabaseTime {
+
+    private static final ThreadLocal<long[]> ELAPSED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DatabaseTime() {
+    }
+
+    public static void reset() {
+        ELAPSED.get()[0] = 0;
+    }
+
+    public static long elapsedNanos() {
+        return ELAPSED.get()[0];
+    }
+
+    static void add(long nanos) {
+        ELAPSED.get()[0] += nanos;
+    }
+}
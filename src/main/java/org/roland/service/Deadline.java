@@ -0,0 +1,101 @@
+package org.roland.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which work on the current thread must be done. A request
+ * filter binds one per request; {@link DatabaseGuard} derives a deadline per
+ * call from it and binds that on the lane thread, where the connection pool
+ * uses it to cap the connection wait and every statement's query timeout.
+ * Statements opened under a deadline are tracked so {@link #cancel()} can
+ * stop them on the database instead of leaving them to run to completion.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAt;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /** The deadline bound to this thread, or {@code null} if there is none. */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /** Binds {@code deadline} (or none) to this thread and returns the one it replaces. */
+    public static Deadline bind(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * Runs {@code work} on the current thread under {@code deadline}, for
+     * helpers that fan a call's work out to other threads.
+     */
+    public static <T> T supplyWithin(Deadline deadline, Supplier<T> work) {
+        Deadline previous = bind(deadline);
+        try {
+            return work.get();
+        } finally {
+            bind(previous);
+        }
+    }
+
+    public Duration remaining() {
+        return cancelled ? Duration.ZERO : Duration.ofNanos(Math.max(0, expiresAt - System.nanoTime()));
+    }
+
+    public boolean expired() {
+        return cancelled || System.nanoTime() - expiresAt >= 0;
+    }
+
+    /** Remaining time as a JDBC query timeout: whole seconds, rounded up, at least one. */
+    public int queryTimeoutSeconds() {
+        long nanos = remaining().toNanos();
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (nanos + 999_999_999L) / 1_000_000_000L));
+    }
+
+    public void track(Statement statement) {
+        statements.add(statement);
+        if (cancelled) {
+            cancel(statement);
+        }
+    }
+
+    public void untrack(Statement statement) {
+        statements.remove(statement);
+    }
+
+    /** Expires the deadline now and cancels every statement still open under it. */
+    public void cancel() {
+        cancelled = true;
+        statements.forEach(Deadline::cancel);
+    }
+
+    private static void cancel(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException | RuntimeException ignored) {
+            // already finished or closed
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.roland.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The request's deadline ran out before or during a database call. It is a
+ * {@link DatabaseUnavailableException}, so reads with a last good result
+ * still fall back to it.
+ */
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class DeadlineExceededException extends DatabaseUnavailableException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,156 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Read path for the message endpoints. Lists and counts cover the messages
+ * posted without a channel; channel messages are read through the
+ * {@code ShardedMessageStore}, even when their shard is the primary. Identical concurrent queries share one
+ * in-flight database call, so a refresh storm costs one query instead of one
+ * per request. A caller that joins an in-flight query may miss a message
+ * committed after that query started. The shared query runs under the
+ * guard's budget alone; each caller's request deadline only limits how long
+ * that caller waits for it (see {@link SingleFlight}).
+ * <p>
+ * Every call goes through the {@link DatabaseGuard}. When it refuses or
+ * fails a call, list and count reads are answered from the last good
+ * result, marked stale, instead of failing.
+ */
+@Service
+public class MessageQueryService implements DisposableBean {
+
+    private record Snapshot<T>(T value, long capturedAt) {
+    }
+
+    private final MessageRepository messageRepository;
+    private final DatabaseGuard databaseGuard;
+    private final ExecutorService queryExecutor = Executors.newCachedThreadPool(
+        Thread.ofPlatform().name("message-query-", 1).daemon(true).factory());
+    private final SingleFlight<String, List<Message>> listFlight = new SingleFlight<>(queryExecutor);
+    private final SingleFlight<String, Long> countFlight = new SingleFlight<>(queryExecutor);
+    private final AtomicReference<Snapshot<List<Message>>> lastList = new AtomicReference<>();
+    private final AtomicReference<Snapshot<Long>> lastCount = new AtomicReference<>();
+    private final Counter staleReads;
+
+    public MessageQueryService(MessageRepository messageRepository, DatabaseGuard databaseGuard,
+                               MeterRegistry meterRegistry) {
+        this.messageRepository = messageRepository;
+        this.databaseGuard = databaseGuard;
+        registerCounters(meterRegistry, "findByChannelIsNullOrderByTimestampDesc", listFlight);
+        registerCounters(meterRegistry, "countByChannelIsNull", countFlight);
+        this.staleReads = Counter.builder("messages.reads.stale")
+            .description("Reads answered from the last good snapshot while the database was unavailable")
+            .register(meterRegistry);
+    }
+
+    public ReadResult<List<Message>> findAllNewestFirst() {
+        return readWithFallback(lastList, () -> shared(listFlight, "findByChannelIsNullOrderByTimestampDesc",
+            messageRepository::findByChannelIsNullOrderByTimestampDesc));
+    }
+
+    public ReadResult<Long> count() {
+        return readWithFallback(lastCount, () -> shared(countFlight, "countByChannelIsNull",
+            messageRepository::countByChannelIsNull));
+    }
+
+    public Optional<Message> findById(Long id) {
+        return databaseGuard.read(() -> messageRepository.findById(id));
+    }
+
+    /**
+     * Drops deleted messages from the last good results, so a later stale
+     * read doesn't bring them back.
+     */
+    public void forget(Set<Long> deletedIds) {
+        lastList.updateAndGet(snapshot -> snapshot == null ? null : new Snapshot<>(
+            snapshot.value().stream().filter(message -> !deletedIds.contains(message.getId())).toList(),
+            snapshot.capturedAt()));
+        lastCount.updateAndGet(snapshot -> snapshot == null ? null : new Snapshot<>(
+            Math.max(0, snapshot.value() - deletedIds.size()), snapshot.capturedAt()));
+    }
+
+    /** The last good list, or null before the first successful read. */
+    public List<Message> lastList() {
+        Snapshot<List<Message>> snapshot = lastList.get();
+        return snapshot == null ? null : snapshot.value();
+    }
+
+    /** The last good count, or null before the first successful read. */
+    public Long lastCount() {
+        Snapshot<Long> snapshot = lastCount.get();
+        return snapshot == null ? null : snapshot.value();
+    }
+
+    /**
+     * Seeds the last good results from a warm-start snapshot, so stale reads
+     * have something to answer with before the first query succeeds. Results
+     * already read from the database are kept.
+     */
+    public void restore(List<Message> list, Long count) {
+        long now = System.nanoTime();
+        if (list != null) {
+            lastList.compareAndSet(null, new Snapshot<>(List.copyOf(list), now));
+        }
+        if (count != null) {
+            lastCount.compareAndSet(null, new Snapshot<>(count, now));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        queryExecutor.shutdownNow();
+    }
+
+    /** The guard call runs on a query thread, so the caller's wait for it is what counts as its database time. */
+    private <T> T shared(SingleFlight<String, T> flight, String query, Callable<T> call) {
+        long start = System.nanoTime();
+        try {
+            return flight.execute(query, () -> databaseGuard.read(call));
+        } finally {
+            DatabaseTime.add(System.nanoTime() - start);
+        }
+    }
+
+    private <T> ReadResult<T> readWithFallback(AtomicReference<Snapshot<T>> lastGood, Supplier<T> query) {
+        try {
+            T value = query.get();
+            lastGood.set(new Snapshot<>(value, System.nanoTime()));
+            return ReadResult.fresh(value);
+        } catch (DatabaseUnavailableException e) {
+            Snapshot<T> snapshot = lastGood.get();
+            if (snapshot == null) {
+                throw e;
+            }
+            staleReads.increment();
+            return new ReadResult<>(snapshot.value(), true, Duration.ofNanos(System.nanoTime() - snapshot.capturedAt()));
+        }
+    }
+
+    private static void registerCounters(MeterRegistry registry, String query, SingleFlight<?, ?> flight) {
+        FunctionCounter.builder("messages.reads.executed", flight, SingleFlight::executedCount)
+            .description("Repository reads that went to the database")
+            .tag("query", query)
+            .register(registry);
+        FunctionCounter.builder("messages.reads.coalesced", flight, SingleFlight::coalescedCount)
+            .description("Repository reads served by joining an identical in-flight query")
+            .tag("query", query)
+            .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package org.roland.service;
+
+import java.time.Duration;
+
+/**
+ * A read served either fresh from the database or, while the database is
+ * unavailable, from the last good snapshot together with its age.
+ */
+public record ReadResult<T>(T value, boolean stale, Duration age) {
+
+    public static <T> ReadResult<T> fresh(T value) {
+        return new ReadResult<>(value, false, Duration.ZERO);
+    }
+}
@@ -0,0 +1,57 @@
+package org.roland.shard;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.roland.analytics.Hashing;
+
+/**
+ * Immutable consistent-hash ring. Every node is placed at
+ * {@code virtualNodes} points so keys spread evenly, and adding or removing
+ * a node only moves the keys that land on its points (about 1/N of them).
+ * Lookups are a binary search over a sorted {@code long[]}.
+ */
+public final class ConsistentHashRing<N> {
+
+    private final long[] points;
+    private final Object[] owners;
+
+    public ConsistentHashRing(List<N> nodes, Function<N, String> nodeKey, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive, was " + virtualNodes);
+        }
+        int size = nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        for (int n = 0; n < nodes.size(); n++) {
+            String key = nodeKey.apply(nodes.get(n));
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[n * virtualNodes + v] = Hashing.hash64(key + "#" + v);
+            }
+        }
+        Integer[] sorted = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new Object[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[sorted[i]];
+            owners[i] = nodes.get(sorted[i] / virtualNodes);
+        }
+    }
+
+    /** The node owning the first ring point at or after the key's hash. */
+    @SuppressWarnings("unchecked")
+    public N nodeFor(String key) {
+        int index = Arrays.binarySearch(points, Hashing.hash64(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return (N) owners[index == points.length ? 0 : index];
+    }
+}
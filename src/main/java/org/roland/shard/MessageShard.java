@@ -0,0 +1,72 @@
+package org.roland.shard;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.roland.model.Message;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+/**
+ * One database holding a slice of the channels, accessed with plain JDBC so
+ * any number of shards can share the {@code messages} table layout without
+ * a persistence unit each.
+ */
+public final class MessageShard {
+
+    private static final String COLUMNS = "id, content, timestamp, channel";
+
+    private final String name;
+    private final JdbcTemplate jdbcTemplate;
+
+    public MessageShard(String name, DataSource dataSource, Duration queryTimeout) {
+        this.name = name;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setQueryTimeout((int) Math.max(1, queryTimeout.toSeconds()));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    Message insert(Message message) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO messages (content, timestamp, channel) VALUES (?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, message.getContent());
+            statement.setTimestamp(2, Timestamp.valueOf(message.getTimestamp()));
+            statement.setString(3, message.getChannel());
+            return statement;
+        }, keyHolder);
+        message.setId(keyHolder.getKeyAs(Number.class).longValue());
+        return message;
+    }
+
+    List<Message> newest(String channel, int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM messages WHERE channel = ?"
+            + " ORDER BY timestamp DESC, id DESC LIMIT ?", MessageShard::map, channel, limit);
+    }
+
+    /** Newest channel messages; the primary's unchanneled messages belong to {@code /api/messages}. */
+    List<Message> newest(int limit) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM messages WHERE channel IS NOT NULL"
+            + " ORDER BY timestamp DESC, id DESC LIMIT ?", MessageShard::map, limit);
+    }
+
+    private static Message map(ResultSet row, int rowNum) throws SQLException {
+        Message message = new Message(row.getString("content"), row.getString("channel"),
+            row.getObject("timestamp", LocalDateTime.class));
+        message.setId(row.getLong("id"));
+        return message;
+    }
+}
@@ -0,0 +1,148 @@
+package org.roland.shard;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roland.model.Message;
+import org.roland.service.DatabaseLane;
+import org.roland.service.DatabaseUnavailableException;
+import org.roland.service.Deadline;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Stores channel messages across shards. Each channel lives on exactly one
+ * shard, picked by a {@link ConsistentHashRing}, so channel reads and writes
+ * touch a single database. Listing across channels queries every shard in
+ * parallel and merges their newest-first streams.
+ */
+public class ShardedMessageStore implements DisposableBean {
+
+    /**
+     * Newest head first. Ids are only unique per shard, so equal timestamps
+     * are broken by shard order; within a shard the rows already come in
+     * {@code timestamp, id} order.
+     */
+    private static final Comparator<Cursor> NEWEST_FIRST =
+        Comparator.comparing((Cursor cursor) -> cursor.head().getTimestamp()).reversed()
+            .thenComparingInt(cursor -> cursor.shard);
+
+    private final List<MessageShard> shards;
+    private final ConsistentHashRing<MessageShard> ring;
+    private final List<? extends AutoCloseable> ownedResources;
+    private final ExecutorService scatterExecutor;
+
+    public ShardedMessageStore(List<MessageShard> shards, int virtualNodes, List<? extends AutoCloseable> ownedResources) {
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing<>(this.shards, MessageShard::name, virtualNodes);
+        this.ownedResources = List.copyOf(ownedResources);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scatterExecutor = Executors.newFixedThreadPool(Math.max(2, this.shards.size() * 2), runnable -> {
+            Thread thread = new Thread(runnable, "shard-scatter-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public List<String> shardNames() {
+        return shards.stream().map(MessageShard::name).toList();
+    }
+
+    public MessageShard shardFor(String channel) {
+        return ring.nodeFor(channel);
+    }
+
+    /** Whether the channel lives on the primary database, next to the outbox and the change feed. */
+    public boolean onPrimary(String channel) {
+        return shardFor(channel).name().equals(ShardingConfiguration.PRIMARY_SHARD);
+    }
+
+    public Message save(String channel, String content, LocalDateTime timestamp) {
+        return shardFor(channel).insert(new Message(content, channel, timestamp));
+    }
+
+    public List<Message> findByChannel(String channel, int limit) {
+        return shardFor(channel).newest(channel, limit);
+    }
+
+    /** Newest {@code limit} messages over all shards. */
+    public List<Message> findNewest(int limit) {
+        DatabaseLane lane = DatabaseLane.current();
+        Deadline deadline = Deadline.current();
+        List<CompletableFuture<List<Message>>> pending = shards.stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> DatabaseLane.supplyIn(lane,
+                () -> Deadline.supplyWithin(deadline, () -> shard.newest(limit))), scatterExecutor))
+            .toList();
+        List<List<Message>> perShard = new ArrayList<>(pending.size());
+        try {
+            for (CompletableFuture<List<Message>> future : pending) {
+                perShard.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            pending.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DatabaseUnavailableException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            pending.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return mergeNewestFirst(perShard, limit);
+    }
+
+    /** K-way merge of newest-first lists, one per shard in shard order, keeping the first {@code limit}. */
+    static List<Message> mergeNewestFirst(List<List<Message>> sources, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(NEWEST_FIRST);
+        for (int shard = 0; shard < sources.size(); shard++) {
+            if (!sources.get(shard).isEmpty()) {
+                heads.add(new Cursor(shard, sources.get(shard)));
+            }
+        }
+        List<Message> merged = new ArrayList<>(Math.min(limit, sources.stream().mapToInt(List::size).sum()));
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Cursor cursor = heads.poll();
+            merged.add(cursor.head());
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        scatterExecutor.shutdownNow();
+        for (AutoCloseable resource : ownedResources) {
+            resource.close();
+        }
+    }
+
+    private static final class Cursor {
+
+        private final int shard;
+        private final List<Message> messages;
+        private int position;
+
+        Cursor(int shard, List<Message> messages) {
+            this.shard = shard;
+            this.messages = messages;
+        }
+
+        Message head() {
+            return messages.get(position);
+        }
+
+        boolean advance() {
+            return ++position < messages.size();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.roland.shard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.roland.pool.DeadlineDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Builds the shard ring from the primary datasource (shard {@code primary})
+ * and one Hikari pool per {@code database.sharding.shards[n]} entry.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfiguration {
+
+    static final String PRIMARY_SHARD = "primary";
+
+    @Bean
+    ShardedMessageStore shardedMessageStore(DataSource dataSource, ShardingProperties properties,
+                                            ObjectProvider<MeterRegistry> meterRegistry) {
+        List<MessageShard> shards = new ArrayList<>();
+        List<HikariDataSource> pools = new ArrayList<>();
+        if (properties.includePrimary() || properties.shards().isEmpty()) {
+            shards.add(new MessageShard(PRIMARY_SHARD, dataSource, properties.queryTimeout()));
+        }
+        for (ShardingProperties.Shard shard : properties.shards()) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("messages-shard-" + shard.name());
+            pool.setJdbcUrl(shard.url());
+            pool.setUsername(shard.username());
+            pool.setPassword(shard.password());
+            pool.setMaximumPoolSize(shard.poolSize());
+            pool.setMinimumIdle(Math.min(2, shard.poolSize()));
+            pool.setConnectionTimeout(3000);
+            meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            pools.add(pool);
+            if (properties.initializeSchema()) {
+                DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("db/shard-schema.sql")), pool);
+            }
+            shards.add(new MessageShard(shard.name(), new DeadlineDataSource(pool), properties.queryTimeout()));
+        }
+        return new ShardedMessageStore(shards, properties.virtualNodes(), pools);
+    }
+}
@@ -0,0 +1,28 @@
+package org.roland.shard;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * {@code database.sharding.*}: the extra databases channel messages are
+ * spread over. With no shards configured every channel lives in the primary
+ * database.
+ */
+@ConfigurationProperties("database.sharding")
+public record ShardingProperties(
+        @DefaultValue("true") boolean includePrimary,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("2s") Duration queryTimeout,
+        @DefaultValue("true") boolean initializeSchema,
+        List<Shard> shards) {
+
+    public ShardingProperties {
+        shards = shards == null ? List.of() : List.copyOf(shards);
+    }
+
+    public record Shard(String name, String url, String username, String password, @DefaultValue("5") int poolSize) {
+    }
+}
@@ -0,0 +1,92 @@
+package org.roland.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * A payload behind a 16-byte header: magic, format version, payload length
+ * and the payload's CRC32C. Writes go to a temporary file that is forced to
+ * disk and then renamed over the old one, so a crash mid-write leaves the
+ * previous snapshot in place. Reads map the file instead of copying it onto
+ * the heap.
+ */
+final class SnapshotFile {
+
+    static final int MAGIC = 0x57534E50; // "WSNP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path file, byte[] payload) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(payload.length)
+                .putInt(checksum(ByteBuffer.wrap(payload)))
+                .flip();
+            ByteBuffer[] buffers = {header, ByteBuffer.wrap(payload)};
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffers[1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Maps {@code file} and returns its payload once the header and checksum
+     * check out. The buffer stays valid after the file is closed.
+     *
+     * @throws IOException if the file can't be read or isn't an intact snapshot
+     */
+    static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot: " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot: bad magic number");
+            }
+            int version = mapped.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int length = mapped.getInt();
+            if (length != size - HEADER_BYTES) {
+                throw new IOException("Truncated snapshot: header says " + length + " bytes, file has "
+                    + (size - HEADER_BYTES));
+            }
+            int expected = mapped.getInt();
+            ByteBuffer payload = mapped.slice(HEADER_BYTES, length);
+            if (checksum(payload.duplicate()) != expected) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            return payload;
+        }
+    }
+
+    private static int checksum(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,237 @@
+package org.roland.snapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.roland.analytics.MessageAnalytics;
+import org.roland.coherence.ChangeLog;
+import org.roland.coherence.ChangeWatcher;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.roland.service.MessageQueryService;
+import org.roland.stats.HitCounter;
+import org.roland.stats.MessageRateStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Saves this node's in-memory state to a local file every
+ * {@code snapshot.interval} and on shutdown, and loads it on the next start
+ * so the node does not have to rebuild it from MySQL. The file holds the
+ * {@code /api/counter} value, the rate windows, the analytics sketches and
+ * the last good message list and count, plus two watermarks: the highest
+ * message id and the change-feed sequence number applied when it was taken.
+ * <p>
+ * On start the file is memory-mapped and checked against its CRC32C. Only
+ * messages above the id watermark are then read, in keyset pages, and
+ * replayed on top. Deletes can't be found that way, so if the change feed
+ * shows any after the sequence watermark, the snapshot is older than
+ * {@code snapshot.max-age}, or anything fails, the message-derived state is
+ * left to the usual cold start. The counter is restored regardless.
+ */
+@Component
+@ConditionalOnProperty(name = "snapshot.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmStartSnapshot implements InitializingBean, SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(WarmStartSnapshot.class);
+    private static final Comparator<Message> NEWEST_FIRST =
+        Comparator.comparing(Message::getTimestamp).thenComparing(Message::getId).reversed();
+
+    private final MessageRepository messageRepository;
+    private final HitCounter hitCounter;
+    private final MessageRateStats messageRateStats;
+    private final MessageQueryService messageQueryService;
+    private final MessageAnalytics messageAnalytics;
+    private final ChangeLog changeLog;
+    private final LongSupplier changeWatermark;
+    private final Path file;
+    private final Duration interval;
+    private final Duration maxAge;
+    private final int maxMessages;
+    private final int maxDelta;
+    private final int batchSize;
+    private final Clock clock;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("warm-start-snapshot").daemon(true).factory());
+
+    @Autowired
+    public WarmStartSnapshot(
+            MessageRepository messageRepository,
+            HitCounter hitCounter,
+            MessageRateStats messageRateStats,
+            MessageQueryService messageQueryService,
+            MessageAnalytics messageAnalytics,
+            ChangeLog changeLog,
+            ObjectProvider<ChangeWatcher> changeWatcher,
+            @Value("${snapshot.file:data/warm-state.bin}") Path file,
+            @Value("${snapshot.interval:1m}") Duration interval,
+            @Value("${snapshot.max-age:30m}") Duration maxAge,
+            @Value("${snapshot.max-messages:1000}") int maxMessages,
+            @Value("${snapshot.max-delta:100000}") int maxDelta,
+            @Value("${snapshot.batch-size:1000}") int batchSize) {
+        this(messageRepository, hitCounter, messageRateStats, messageQueryService, messageAnalytics, changeLog,
+            () -> {
+                ChangeWatcher watcher = changeWatcher.getIfAvailable();
+                return watcher == null ? -1 : watcher.appliedThrough();
+            },
+            file, interval, maxAge, maxMessages, maxDelta, batchSize, Clock.systemDefaultZone());
+    }
+
+    WarmStartSnapshot(MessageRepository messageRepository, HitCounter hitCounter,
+                      MessageRateStats messageRateStats, MessageQueryService messageQueryService,
+                      MessageAnalytics messageAnalytics, ChangeLog changeLog, LongSupplier changeWatermark,
+                      Path file, Duration interval, Duration maxAge, int maxMessages, int maxDelta, int batchSize,
+                      Clock clock) {
+        this.messageRepository = messageRepository;
+        this.hitCounter = hitCounter;
+        this.messageRateStats = messageRateStats;
+        this.messageQueryService = messageQueryService;
+        this.messageAnalytics = messageAnalytics;
+        this.changeLog = changeLog;
+        this.changeWatermark = changeWatermark;
+        this.file = file;
+        this.interval = interval;
+        this.maxAge = maxAge;
+        this.maxMessages = maxMessages;
+        this.maxDelta = maxDelta;
+        this.batchSize = batchSize;
+        this.clock = clock;
+    }
+
+    /** Runs before any {@code afterSingletonsInstantiated}, so the rate stats know not to seed. */
+    @Override
+    public void afterPropertiesSet() {
+        restore();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        executor.scheduleWithFixedDelay(this::save, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        save();
+    }
+
+    /**
+     * Writes the current state. The watermarks are read just before it: a
+     * message recorded in between is counted again on load, and one committed
+     * but not yet applied here is missed.
+     */
+    void save() {
+        try {
+            long appliedSeq = changeWatermark.getAsLong();
+            long maxId = messageRepository.findMaxId();
+            List<Message> list = messageQueryService.lastList();
+            WarmState state = new WarmState(clock.millis(), maxId, appliedSeq, hitCounter.get(),
+                messageRateStats.window(), messageAnalytics.export(), messageQueryService.lastCount(),
+                list == null || list.size() > maxMessages ? null : list);
+            SnapshotFile.write(file, WarmStateCodec.encode(state));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write the warm-start snapshot {}: {}", file, e.toString());
+        }
+    }
+
+    /** @return whether the message-derived state was restored */
+    boolean restore() {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        long started = System.nanoTime();
+        WarmState saved;
+        try {
+            saved = WarmStateCodec.decode(SnapshotFile.read(file));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Ignoring warm-start snapshot {}: {}", file, e.getMessage());
+            return false;
+        }
+        hitCounter.restore(saved.counter());
+        Duration age = Duration.ofMillis(clock.millis() - saved.savedAt());
+        if (age.isNegative() || age.compareTo(maxAge) > 0) {
+            log.info("Warm-start snapshot {} is {} s old; starting cold", file, age.toSeconds());
+            return false;
+        }
+        List<Message> delta;
+        try {
+            if (saved.changeWatermark() < 0 || changeLog.deletedAfter(saved.changeWatermark())) {
+                log.info("Messages may have been deleted since the warm-start snapshot; starting cold");
+                return false;
+            }
+            delta = newerThan(saved.messageWatermark());
+        } catch (DataAccessException e) {
+            log.warn("Could not read the messages newer than the warm-start snapshot: {}", e.toString());
+            return false;
+        }
+        if (delta == null) {
+            log.info("More than {} messages were written since the warm-start snapshot; starting cold", maxDelta);
+            return false;
+        }
+        apply(saved, delta);
+        log.info("Warm start from {} ({} s old): {} newer messages read in {} ms", file, age.toSeconds(),
+            delta.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return true;
+    }
+
+    /** Messages with ids above {@code watermark}, or null if there are more than {@code maxDelta}. */
+    private List<Message> newerThan(long watermark) {
+        List<Message> delta = new ArrayList<>();
+        List<Message> batch;
+        long lastId = watermark;
+        do {
+            batch = messageRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(batchSize));
+            delta.addAll(batch);
+            if (delta.size() > maxDelta) {
+                return null;
+            }
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == batchSize);
+        return delta;
+    }
+
+    private void apply(WarmState saved, List<Message> delta) {
+        messageRateStats.restore(saved.rates());
+        boolean analytics = messageAnalytics.restore(saved.analytics());
+        for (Message message : delta) {
+            messageRateStats.record(message.getTimestamp());
+            if (analytics) {
+                messageAnalytics.record(message);
+            }
+        }
+        // the list and count cover unchanneled messages, as MessageQueryService does
+        List<Message> unchanneled = delta.stream().filter(message -> message.getChannel() == null).toList();
+        List<Message> list = saved.messages();
+        if (list != null && list.size() + unchanneled.size() <= maxMessages) {
+            list = new ArrayList<>(list);
+            list.addAll(unchanneled);
+            list.sort(NEWEST_FIRST);
+        } else {
+            list = null;
+        }
+        messageQueryService.restore(list, saved.count() == null ? null : saved.count() + unchanneled.size());
+    }
+}
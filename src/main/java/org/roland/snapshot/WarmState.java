@@ -0,0 +1,23 @@
+package org.roland.snapshot;
+
+import java.util.List;
+
+import org.roland.analytics.SketchState;
+import org.roland.model.Message;
+import org.roland.stats.RateWindow;
+
+/**
+ * What a warm-start snapshot holds.
+ *
+ * @param savedAt          wall-clock time the snapshot was taken, epoch millis
+ * @param messageWatermark the highest message id when it was taken; newer
+ *                         messages are fetched on load
+ * @param changeWatermark  the change-feed sequence number this node had
+ *                         applied, or -1 without a feed
+ * @param count            last good message count, or null
+ * @param messages         last good message list, or null when there was none
+ *                         or it was too long to keep
+ */
+record WarmState(long savedAt, long messageWatermark, long changeWatermark, long counter, RateWindow rates,
+                 SketchState analytics, Long count, List<Message> messages) {
+}
@@ -0,0 +1,187 @@
+package org.roland.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.roland.analytics.SketchState;
+import org.roland.dto.TermCount;
+import org.roland.model.Message;
+import org.roland.stats.RateWindow;
+
+/**
+ * Binary layout of a {@link WarmState}, big-endian. Rate seconds are stored
+ * sparsely as (age, count) pairs since most of an hour is usually empty;
+ * sketch counters and registers are stored as they are. Strings are a
+ * length followed by UTF-8 bytes, with -1 for null.
+ */
+final class WarmStateCodec {
+
+    private WarmStateCodec() {
+    }
+
+    static byte[] encode(WarmState state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(state.savedAt());
+            out.writeLong(state.messageWatermark());
+            out.writeLong(state.changeWatermark());
+            out.writeLong(state.counter());
+            writeRates(out, state.rates());
+            writeAnalytics(out, state.analytics());
+            out.writeLong(state.count() == null ? -1 : state.count());
+            writeMessages(out, state.messages());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload ends early or holds
+     *                                  impossible lengths
+     */
+    static WarmState decode(ByteBuffer in) {
+        try {
+            long savedAt = in.getLong();
+            long messageWatermark = in.getLong();
+            long changeWatermark = in.getLong();
+            long counter = in.getLong();
+            RateWindow rates = readRates(in);
+            SketchState analytics = readAnalytics(in);
+            long count = in.getLong();
+            List<Message> messages = readMessages(in);
+            return new WarmState(savedAt, messageWatermark, changeWatermark, counter, rates, analytics,
+                count < 0 ? null : count, messages);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                | DateTimeException e) {
+            throw new IllegalArgumentException("Malformed snapshot payload", e);
+        }
+    }
+
+    private static void writeRates(DataOutputStream out, RateWindow rates) throws IOException {
+        out.writeLong(rates.endSecond());
+        out.writeLong(rates.total());
+        long[] perSecond = rates.perSecond();
+        int used = 0;
+        for (long count : perSecond) {
+            used += count > 0 ? 1 : 0;
+        }
+        out.writeInt(perSecond.length);
+        out.writeInt(used);
+        for (int age = 0; age < perSecond.length; age++) {
+            if (perSecond[age] > 0) {
+                out.writeInt(age);
+                out.writeLong(perSecond[age]);
+            }
+        }
+    }
+
+    private static RateWindow readRates(ByteBuffer in) {
+        long endSecond = in.getLong();
+        long total = in.getLong();
+        long[] perSecond = new long[in.getInt()];
+        int used = in.getInt();
+        for (int i = 0; i < used; i++) {
+            perSecond[in.getInt()] = in.getLong();
+        }
+        return new RateWindow(endSecond, total, perSecond);
+    }
+
+    private static void writeAnalytics(DataOutputStream out, SketchState analytics) throws IOException {
+        out.writeLong(analytics.messages());
+        out.writeInt(analytics.width());
+        out.writeInt(analytics.depth());
+        out.writeInt(analytics.counts().length);
+        for (long count : analytics.counts()) {
+            out.writeLong(count);
+        }
+        out.writeInt(analytics.precision());
+        out.writeInt(analytics.registers().length);
+        out.write(analytics.registers());
+        out.writeInt(analytics.topTerms().size());
+        for (TermCount term : analytics.topTerms()) {
+            writeString(out, term.term());
+            out.writeLong(term.count());
+        }
+    }
+
+    private static SketchState readAnalytics(ByteBuffer in) {
+        long messages = in.getLong();
+        int width = in.getInt();
+        int depth = in.getInt();
+        long[] counts = new long[in.getInt()];
+        in.asLongBuffer().get(counts);
+        in.position(in.position() + counts.length * Long.BYTES);
+        int precision = in.getInt();
+        byte[] registers = new byte[in.getInt()];
+        in.get(registers);
+        int terms = in.getInt();
+        List<TermCount> topTerms = new ArrayList<>(Math.min(terms, 1024));
+        for (int i = 0; i < terms; i++) {
+            topTerms.add(new TermCount(readString(in), in.getLong()));
+        }
+        return new SketchState(messages, width, depth, counts, precision, registers, topTerms);
+    }
+
+    private static void writeMessages(DataOutputStream out, List<Message> messages) throws IOException {
+        if (messages == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(messages.size());
+        for (Message message : messages) {
+            out.writeLong(message.getId());
+            LocalDateTime timestamp = message.getTimestamp();
+            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(timestamp.getNano());
+            writeString(out, message.getContent());
+            writeString(out, message.getChannel());
+        }
+    }
+
+    private static List<Message> readMessages(ByteBuffer in) {
+        int size = in.getInt();
+        if (size < 0) {
+            return null;
+        }
+        List<Message> messages = new ArrayList<>(Math.min(size, 1 << 16));
+        for (int i = 0; i < size; i++) {
+            long id = in.getLong();
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            Message message = new Message(readString(in), readString(in), timestamp);
+            message.setId(id);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,28 @@
+package org.roland.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@code /api/counter} value: one more on every call, carried across
+ * restarts by the warm-start snapshot.
+ */
+@Component
+public class HitCounter {
+
+    private final AtomicLong value = new AtomicLong();
+
+    public long increment() {
+        return value.incrementAndGet();
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    /** Continues from a saved value; it never goes backwards. */
+    public void restore(long saved) {
+        value.accumulateAndGet(saved, Math::max);
+    }
+}
@@ -0,0 +1,148 @@
+package org.roland.stats;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.roland.dto.MessageStatsResponse;
+import org.roland.model.MessageCounts;
+import org.roland.model.MessageRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Message rates over sliding second/minute/hour windows, maintained in memory
+ * from {@code addMessage} so reading them never touches the database. The
+ * counters are seeded once at startup from a single aggregate query, unless
+ * they were already restored from a warm-start snapshot.
+ */
+@Component
+public class MessageRateStats implements SmartInitializingSingleton {
+
+    static final int MINUTE = 60;
+    static final int HOUR = 3600;
+    static final int MAX_RECORD_LAG = 5;
+
+    private final MessageRepository messageRepository;
+    private final Clock clock;
+    private final RollingCounter counter;
+    private final LongAdder total = new LongAdder();
+    private volatile boolean restored;
+
+    @Autowired
+    public MessageRateStats(MessageRepository messageRepository) {
+        this(messageRepository, Clock.systemDefaultZone());
+    }
+
+    MessageRateStats(MessageRepository messageRepository, Clock clock) {
+        this.messageRepository = messageRepository;
+        this.clock = clock;
+        this.counter = new RollingCounter(HOUR, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (restored) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        MessageCounts counts = messageRepository.countRecent(now.minusMinutes(1), now.minusHours(1));
+        if (counts != null) {
+            seed(counts);
+        }
+    }
+
+    /**
+     * Seeds the windows from aggregate counts. Per-second detail isn't known,
+     * so messages are spread evenly over their window; the estimate ages out
+     * of the ring within an hour.
+     */
+    void seed(MessageCounts counts) {
+        long nowSecond = clock.instant().getEpochSecond();
+        long lastMinute = counts.sinceMinute();
+        long olderInHour = Math.max(0, counts.sinceHour() - lastMinute);
+        spread(nowSecond, 0, MINUTE, lastMinute);
+        spread(nowSecond, MINUTE, HOUR, olderInHour);
+        total.add(counts.total());
+    }
+
+    public void record() {
+        counter.add(clock.instant().getEpochSecond(), 1);
+        total.increment();
+    }
+
+    /**
+     * Records a message at its own timestamp rather than now, for messages
+     * written while this node was not running. Seconds that have left the
+     * hour only count towards the total.
+     */
+    public void record(LocalDateTime timestamp) {
+        long second = timestamp.atZone(clock.getZone()).toEpochSecond();
+        if (second > clock.instant().getEpochSecond() - HOUR) {
+            counter.add(second, 1);
+        }
+        total.increment();
+    }
+
+    /**
+     * Takes deleted messages back out of the total and, for those still
+     * inside the hour, out of the window. A message is recorded when its
+     * write returns, which can be a few seconds after its timestamp, so the
+     * seconds just after the timestamp are tried too.
+     */
+    public void forget(Collection<LocalDateTime> timestamps) {
+        for (LocalDateTime timestamp : timestamps) {
+            long second = timestamp.atZone(clock.getZone()).toEpochSecond();
+            for (int lag = 0; lag <= MAX_RECORD_LAG && counter.remove(second + lag, 1) == 0; lag++) {
+                // nothing recorded in that second; try the next one
+            }
+        }
+        total.add(-timestamps.size());
+    }
+
+    public MessageStatsResponse snapshot() {
+        long[] windows = counter.sum(clock.instant().getEpochSecond(), 1, MINUTE, HOUR);
+        return new MessageStatsResponse(
+            total.sum(),
+            windows[0],
+            windows[1],
+            windows[2],
+            windows[1] / (double) MINUTE,
+            windows[2] / (double) (HOUR / MINUTE)
+        );
+    }
+
+    public RateWindow window() {
+        long nowSecond = clock.instant().getEpochSecond();
+        return new RateWindow(nowSecond, total.sum(), counter.perSecond(nowSecond, HOUR));
+    }
+
+    /**
+     * Loads a saved window in place of the startup seed. Seconds that have
+     * left the hour since it was saved are skipped.
+     */
+    public void restore(RateWindow window) {
+        long oldest = clock.instant().getEpochSecond() - HOUR;
+        long[] perSecond = window.perSecond();
+        for (int age = 0; age < Math.min(perSecond.length, HOUR); age++) {
+            long second = window.endSecond() - age;
+            if (second > oldest) {
+                counter.add(second, perSecond[age]);
+            }
+        }
+        total.add(window.total());
+        restored = true;
+    }
+
+    private void spread(long nowSecond, int fromAge, int toAge, long amount) {
+        int width = toAge - fromAge;
+        long each = amount / width;
+        long remainder = amount % width;
+        for (int age = fromAge; age < toAge; age++) {
+            long share = each + (age - fromAge < remainder ? 1 : 0);
+            counter.add(nowSecond - age, share);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.roland.stats;
+
+/**
+ * The state of {@link MessageRateStats}: the running total and the count of
+ * each second of the hour ending at {@code endSecond}, newest first.
+ */
+public record RateWindow(long endSecond, long total, long[] perSecond) {
+}
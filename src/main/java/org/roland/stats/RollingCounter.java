@@ -0,0 +1,146 @@
+package org.roland.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free sliding-window counter built from a ring of one-second buckets.
+ * Each bucket packs its epoch second (high 32 bits) and count (low 32 bits)
+ * into a single long, so a stale bucket is reset by the same CAS that
+ * increments it. Writers are spread over several stripes to avoid contention.
+ */
+public class RollingCounter {
+
+    private static final long LOW_MASK = 0xFFFF_FFFFL;
+
+    private final int buckets;
+    private final AtomicLongArray[] stripes;
+
+    public RollingCounter(int buckets, int stripes) {
+        if (buckets <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("buckets and stripes must be positive");
+        }
+        this.buckets = buckets;
+        this.stripes = new AtomicLongArray[stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new AtomicLongArray(buckets);
+        }
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    public void add(long epochSecond, long delta) {
+        if (delta <= 0) {
+            return;
+        }
+        AtomicLongArray stripe = stripes[stripeIndex()];
+        int index = (int) Math.floorMod(epochSecond, buckets);
+        long stamp = epochSecond & LOW_MASK;
+        while (true) {
+            long current = stripe.get(index);
+            long count = (current >>> 32) == stamp ? current & LOW_MASK : 0;
+            long next = (stamp << 32) | Math.min(LOW_MASK, count + delta);
+            if (stripe.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes up to {@code delta} back out of the bucket for {@code epochSecond},
+     * across stripes, for events that turned out not to count (e.g. deleted
+     * messages). A bucket that has already rolled over is left alone.
+     *
+     * @return how much was actually removed
+     */
+    public long remove(long epochSecond, long delta) {
+        int index = (int) Math.floorMod(epochSecond, buckets);
+        long stamp = epochSecond & LOW_MASK;
+        long remaining = delta;
+        for (int i = 0; i < stripes.length && remaining > 0; i++) {
+            AtomicLongArray stripe = stripes[(stripeIndex() + i) & (stripes.length - 1)];
+            while (true) {
+                long current = stripe.get(index);
+                if ((current >>> 32) != stamp || (current & LOW_MASK) == 0) {
+                    break;
+                }
+                long taken = Math.min(remaining, current & LOW_MASK);
+                if (stripe.compareAndSet(index, current, current - taken)) {
+                    remaining -= taken;
+                    break;
+                }
+            }
+        }
+        return delta - remaining;
+    }
+
+    /**
+     * Sums the buckets for the {@code windowSeconds} seconds ending at (and
+     * including) {@code epochSecond}.
+     */
+    public long sum(long epochSecond, int windowSeconds) {
+        return sum(epochSecond, new int[] {windowSeconds})[0];
+    }
+
+    /**
+     * Sums several nested windows in a single pass over the ring. The result
+     * has one entry per requested window, in the same order.
+     */
+    public long[] sum(long epochSecond, int... windowSeconds) {
+        int longest = 0;
+        for (int window : windowSeconds) {
+            if (window <= 0 || window > buckets) {
+                throw new IllegalArgumentException("window must be between 1 and " + buckets);
+            }
+            longest = Math.max(longest, window);
+        }
+        long[] totals = new long[windowSeconds.length];
+        for (int age = 0; age < longest; age++) {
+            long second = epochSecond - age;
+            int index = (int) Math.floorMod(second, buckets);
+            long stamp = second & LOW_MASK;
+            long count = 0;
+            for (AtomicLongArray stripe : stripes) {
+                long value = stripe.get(index);
+                if ((value >>> 32) == stamp) {
+                    count += value & LOW_MASK;
+                }
+            }
+            for (int w = 0; w < windowSeconds.length; w++) {
+                if (age < windowSeconds[w]) {
+                    totals[w] += count;
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * The count of each of the {@code windowSeconds} seconds ending at
+     * {@code epochSecond}, newest first.
+     */
+    public long[] perSecond(long epochSecond, int windowSeconds) {
+        if (windowSeconds <= 0 || windowSeconds > buckets) {
+            throw new IllegalArgumentException("window must be between 1 and " + buckets);
+        }
+        long[] counts = new long[windowSeconds];
+        for (int age = 0; age < windowSeconds; age++) {
+            long second = epochSecond - age;
+            int index = (int) Math.floorMod(second, buckets);
+            long stamp = second & LOW_MASK;
+            for (AtomicLongArray stripe : stripes) {
+                long value = stripe.get(index);
+                if ((value >>> 32) == stamp) {
+                    counts[age] += value & LOW_MASK;
+                }
+            }
+        }
+        return counts;
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,13 @@
+package org.roland.time;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class ClockConfiguration {
+
+    @Bean
+    public CoarseClock coarseClock() {
+        return CoarseClock.systemDefault();
+    }
+}
@@ -0,0 +1,113 @@
+package org.roland.time;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A clock that reads a cached "now", truncated to the millisecond, instead
+ * of asking the system clock and building a new {@link LocalDateTime} (and,
+ * for responses, a new ISO string) on every call. A ticker thread refreshes
+ * the cached values whenever the millisecond changes, so reading the time
+ * allocates nothing.
+ * <p>
+ * Stored timestamps need more than that: messages are ordered by them, and
+ * several saved in the same millisecond would tie. {@link #exactNow()} reads
+ * the source at full precision for those.
+ * <p>
+ * {@link #systemDefault()} is the shared ticking instance used by the
+ * application. Tests create a manual clock over
+ * a fixed or adjustable source and call {@link #tick()} themselves, which
+ * makes the time deterministic.
+ */
+public class CoarseClock extends Clock {
+
+    private static final Duration TICK_INTERVAL = Duration.ofMillis(1);
+
+    private record Tick(long millis, Instant instant, LocalDateTime dateTime, String iso) {
+    }
+
+    private static final class SystemHolder {
+        static final CoarseClock INSTANCE = ticking(Clock.systemDefaultZone(), TICK_INTERVAL);
+    }
+
+    private final Clock source;
+    private volatile Tick current;
+
+    private CoarseClock(Clock source) {
+        this.source = source;
+        this.current = read(source.millis());
+    }
+
+    /** The process-wide clock over the system default zone, ticking every millisecond. */
+    public static CoarseClock systemDefault() {
+        return SystemHolder.INSTANCE;
+    }
+
+    /** A clock that only moves when {@link #tick()} is called. */
+    public static CoarseClock manual(Clock source) {
+        return new CoarseClock(source);
+    }
+
+    static CoarseClock ticking(Clock source, Duration interval) {
+        CoarseClock clock = new CoarseClock(source);
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("coarse-clock").daemon(true).factory());
+        ticker.scheduleAtFixedRate(clock::tick, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+        return clock;
+    }
+
+    /** Re-reads the source clock; a no-op unless the millisecond has changed. */
+    public void tick() {
+        long millis = source.millis();
+        if (millis != current.millis()) {
+            current = read(millis);
+        }
+    }
+
+    public LocalDateTime now() {
+        return current.dateTime();
+    }
+
+    /** The source's time at full precision, uncached, for timestamps that are stored and sorted on. */
+    public LocalDateTime exactNow() {
+        return LocalDateTime.now(source);
+    }
+
+    /** {@link #now()} as {@link LocalDateTime#toString()} formats it. */
+    public String nowIso() {
+        return current.iso();
+    }
+
+    @Override
+    public long millis() {
+        return current.millis();
+    }
+
+    @Override
+    public Instant instant() {
+        return current.instant();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return source.getZone();
+    }
+
+    /** Returns a plain (uncached) clock in {@code zone}. */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return source.withZone(zone);
+    }
+
+    private Tick read(long millis) {
+        Instant instant = Instant.ofEpochMilli(millis);
+        LocalDateTime dateTime = LocalDateTime.ofInstant(instant, source.getZone());
+        return new Tick(millis, instant, dateTime, dateTime.toString());
+    }
+}
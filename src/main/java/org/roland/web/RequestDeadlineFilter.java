@@ -0,0 +1,99 @@
+package org.roland.web;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.roland.service.Deadline;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Binds a {@link Deadline} to each {@code /api} request, taken from the
+ * client's timeout header (for example {@code 1500ms} or {@code 2s}; a bare
+ * number is milliseconds) or the endpoint's configured default. Database
+ * calls made for the request never run past it: once a client has given up
+ * its queries are cancelled instead of running to completion.
+ */
+@Component
+@ConditionalOnProperty(name = "request-deadline.enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(RequestDeadlineProperties.class)
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private record Rule(String method, PathPattern path, Duration timeout) {
+    }
+
+    private final RequestDeadlineProperties properties;
+    private final List<Rule> rules;
+
+    public RequestDeadlineFilter(RequestDeadlineProperties properties) {
+        this.properties = properties;
+        this.rules = properties.endpoints().stream()
+            .map(endpoint -> new Rule(endpoint.method(), PathPatternParser.defaultInstance.parse(endpoint.path()),
+                endpoint.timeout()))
+            .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Duration timeout;
+        try {
+            timeout = timeout(request);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                "Invalid " + properties.header() + " header: " + e.getMessage());
+            return;
+        }
+        if (timeout == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        Deadline previous = Deadline.bind(Deadline.after(timeout));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Deadline.bind(previous);
+        }
+    }
+
+    /** The request's timeout, or {@code null} if it has none. */
+    Duration timeout(HttpServletRequest request) {
+        String header = request.getHeader(properties.header());
+        if (header != null) {
+            Duration requested = DurationStyle.detectAndParse(header.trim(), ChronoUnit.MILLIS);
+            if (requested.isNegative() || requested.isZero()) {
+                throw new IllegalArgumentException("must be positive");
+            }
+            return requested.compareTo(properties.maxTimeout()) > 0 ? properties.maxTimeout() : requested;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (Rule rule : rules) {
+            if ((rule.method() == null || rule.method().equalsIgnoreCase(request.getMethod()))
+                    && rule.path().matches(path)) {
+                return rule.timeout();
+            }
+        }
+        return properties.defaultTimeout();
+    }
+}
@@ -0,0 +1,33 @@
+package org.roland.web;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * {@code request-deadline.*}: how long an {@code /api} request may keep the
+ * database busy. A client's {@code header} wins (capped at
+ * {@code max-timeout}); otherwise the first matching endpoint's timeout
+ * applies, then {@code default-timeout}. Without any of them the request has
+ * no deadline and only the per-call guard budgets apply.
+ */
+@ConfigurationProperties("request-deadline")
+public record RequestDeadlineProperties(
+        @DefaultValue("X-Request-Timeout") String header,
+        @DefaultValue("30s") Duration maxTimeout,
+        Duration defaultTimeout,
+        List<Endpoint> endpoints) {
+
+    public RequestDeadlineProperties {
+        endpoints = endpoints == null ? List.of() : List.copyOf(endpoints);
+    }
+
+    /**
+     * @param method HTTP method, or {@code null} for any
+     * @param path   path pattern such as {@code /api/channels/**}
+     */
+    public record Endpoint(String method, String path, Duration timeout) {
+    }
+}
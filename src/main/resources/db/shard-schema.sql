@@ -0,0 +1,9 @@
+-- Schema for additional message shards (the primary database is managed by Hibernate)
+CREATE TABLE IF NOT EXISTS messages (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    content VARCHAR(1000) NOT NULL,
+    timestamp DATETIME(6) NOT NULL,
+    channel VARCHAR(64),
+    PRIMARY KEY (id),
+    INDEX idx_messages_channel_timestamp (channel, timestamp)
+);
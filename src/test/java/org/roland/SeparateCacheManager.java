@@ -0,0 +1,43 @@
+package org.roland;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import javax.cache.Caching;
+
+/**
+ * For tests that start several application instances in one JVM. Hibernate
+ * closes its JCache manager with the context, and by default every context
+ * in the JVM shares one. Each instance gets its own so the instances do not
+ * share a cache, and closing them leaves the other test contexts' cache
+ * open.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class SeparateCacheManager {
+
+    // the provider keys managers by class loader and only holds it weakly
+    private final ClassLoader cacheClassLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheManager() {
+        return properties -> properties.put("hibernate.javax.cache.cache_manager",
+            Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager(
+                toUri(cacheClassLoader.getResource("caffeine.conf")), cacheClassLoader));
+    }
+
+    private static URI toUri(URL url) {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.roland.accesslog;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mockito;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.roland.service.DatabaseGuard;
+import org.roland.time.CoarseClock;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class AccessLogFilterTest {
+
+    private AccessLog accessLog;
+    private DatabaseGuard databaseGuard;
+    private AccessLogFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        accessLog = Mockito.mock(AccessLog.class);
+        when(accessLog.sampled(anyInt())).thenReturn(true);
+        databaseGuard = new DatabaseGuard(
+            5, Duration.ofMinutes(1), Duration.ofSeconds(2), Duration.ofSeconds(2), 2, 2, 2, 2, new SimpleMeterRegistry());
+        filter = new AccessLogFilter(accessLog,
+            CoarseClock.manual(Clock.fixed(Instant.ofEpochMilli(1_000), ZoneOffset.UTC)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseGuard.destroy();
+    }
+
+    @Test
+    void testRecordsStatusBytesLatencyAndDatabaseTime() throws Exception {
+        // Givet - en endpoint som gör ett långsamt databasanrop och skriver fem byte
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/messages");
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws java.io.IOException {
+                databaseGuard.write(() -> {
+                    Thread.sleep(30);
+                    return null;
+                });
+                resp.setStatus(201);
+                resp.getOutputStream().write("hallå".getBytes(java.nio.charset.StandardCharsets.UTF_8), 0, 5);
+            }
+        });
+
+        // När
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Då
+        ArgumentCaptor<Long> latency = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Long> dbTime = ArgumentCaptor.forClass(Long.class);
+        verify(accessLog).record(eq(1_000L), eq("POST"), eq("/api/messages"), eq(201), eq(5L),
+            latency.capture(), dbTime.capture());
+        assertTrue(dbTime.getValue() >= Duration.ofMillis(30).toNanos(), "db " + dbTime.getValue());
+        assertTrue(latency.getValue() >= dbTime.getValue());
+    }
+
+    @Test
+    void testIgnoresNonApiPaths() throws Exception {
+        // När
+        filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(),
+            new MockFilterChain());
+
+        // Då
+        verify(accessLog, never()).record(anyLong(), anyString(), anyString(), anyInt(), anyLong(), anyLong(), anyLong());
+    }
+}
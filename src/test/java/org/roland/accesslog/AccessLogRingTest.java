@@ -0,0 +1,70 @@
+package org.roland.accesslog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class AccessLogRingTest {
+
+    @Test
+    void testFullRingRejectsUntilDrained() {
+        // Givet
+        AccessLogRing ring = new AccessLogRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i, "GET", "/api/" + i, 200, 0, 0, 0));
+        }
+
+        // När / Då - femte posten får inte plats
+        assertFalse(ring.offer(4, "GET", "/api/4", 200, 0, 0, 0));
+        List<String> paths = new ArrayList<>();
+        assertEquals(2, ring.drain(entry -> paths.add(entry.path), 2));
+        assertTrue(ring.offer(5, "POST", "/api/5", 201, 0, 0, 0));
+        assertEquals(3, ring.drain(entry -> paths.add(entry.path), 10));
+        assertEquals(List.of("/api/0", "/api/1", "/api/2", "/api/3", "/api/5"), paths);
+    }
+
+    @Test
+    void testConcurrentProducersLoseNothingThatWasAccepted() throws InterruptedException {
+        // Givet
+        AccessLogRing ring = new AccessLogRing(64);
+        int producers = 4;
+        int perProducer = 20_000;
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i, "GET", "/api/messages", 200, 0, 0, 0)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+
+        // När - en konsument tömmer medan producenterna skriver
+        long expected = (long) producers * perProducer;
+        while (seen.size() < expected) {
+            ring.drain(entry -> assertTrue(seen.add(entry.epochMillis), "duplicate " + entry.epochMillis), 32);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Då
+        assertEquals(expected, seen.size());
+        assertEquals(0, ring.drain(entry -> { }, 32));
+    }
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogRing(1000));
+    }
+}
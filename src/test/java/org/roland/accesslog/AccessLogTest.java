@@ -0,0 +1,105 @@
+package org.roland.accesslog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AccessLogTest {
+
+    @TempDir
+    private Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testWritesOneJsonLinePerEntry() throws Exception {
+        // Givet
+        Path file = dir.resolve("access.log");
+        AccessLog accessLog = new AccessLog(new AccessLogRing(16), new AccessLogFile(file, 1_000_000, 2),
+            1.0, 8, Duration.ofMillis(1), meterRegistry);
+
+        // När
+        accessLog.record(1_767_268_800_123L, "POST", "/api/messages/\"x\"", 201, 57, 2_345_678, 1_000);
+        accessLog.destroy();
+
+        // Då
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1, lines.size());
+        JsonNode entry = new ObjectMapper().readTree(lines.get(0));
+        assertEquals("2026-01-01T12:00:00.123Z", entry.get("ts").asText());
+        assertEquals("POST", entry.get("method").asText());
+        assertEquals("/api/messages/\"x\"", entry.get("path").asText());
+        assertEquals(201, entry.get("status").asInt());
+        assertEquals(57, entry.get("bytes").asLong());
+        assertEquals(2.345, entry.get("latencyMs").asDouble());
+        assertEquals(0.001, entry.get("dbMs").asDouble());
+        assertEquals(1.0, meterRegistry.get("access.log.written").counter().count());
+    }
+
+    @Test
+    void testRotatesBySizeAndKeepsLimitedHistory() throws Exception {
+        // Givet - ungefär tre rader per fil
+        Path file = dir.resolve("access.log");
+        AccessLog accessLog = new AccessLog(new AccessLogRing(64), new AccessLogFile(file, 400, 2),
+            1.0, 1, Duration.ofMillis(1), meterRegistry);
+
+        // När
+        for (int i = 0; i < 30; i++) {
+            accessLog.record(0, "GET", "/api/messages/" + i, 200, 10, 1_000_000, 0);
+        }
+        accessLog.destroy();
+
+        // Då
+        assertTrue(Files.exists(dir.resolve("access.log.1")));
+        assertTrue(Files.exists(dir.resolve("access.log.2")));
+        assertFalse(Files.exists(dir.resolve("access.log.3")));
+        for (String name : List.of("access.log", "access.log.1", "access.log.2")) {
+            assertTrue(Files.size(dir.resolve(name)) <= 400, name);
+        }
+        assertTrue(Files.readString(file).contains("/api/messages/29"));
+    }
+
+    @Test
+    void testFullBufferDropsAndCountsInsteadOfBlocking() throws IOException, InterruptedException {
+        // Givet - skrivaren sover länge, bufferten rymmer två poster
+        AccessLog accessLog = new AccessLog(new AccessLogRing(2), new AccessLogFile(dir.resolve("access.log"), 1_000_000, 1),
+            1.0, 8, Duration.ofHours(1), meterRegistry);
+
+        // När
+        int dropped = 0;
+        for (int i = 0; i < 100; i++) {
+            dropped += accessLog.record(0, "GET", "/api/hello", 200, 0, 0, 0) ? 0 : 1;
+        }
+
+        // Då
+        assertTrue(dropped >= 96, "dropped " + dropped);
+        assertEquals(dropped, meterRegistry.get("access.log.dropped").tag("reason", "buffer-full").counter().count());
+        accessLog.destroy();
+    }
+
+    @Test
+    void testSamplingAlwaysKeepsServerErrors() throws IOException, InterruptedException {
+        // Givet
+        AccessLog accessLog = new AccessLog(new AccessLogRing(2), new AccessLogFile(dir.resolve("access.log"), 1_000_000, 1),
+            0.0, 8, Duration.ofMillis(1), meterRegistry);
+
+        // Då
+        assertFalse(accessLog.sampled(200));
+        assertFalse(accessLog.sampled(404));
+        assertTrue(accessLog.sampled(503));
+        accessLog.destroy();
+    }
+}
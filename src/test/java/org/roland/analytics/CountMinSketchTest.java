@@ -0,0 +1,39 @@
+package org.roland.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class CountMinSketchTest {
+
+    @Test
+    void testEstimatesNeverUndercount() {
+        // Givet
+        CountMinSketch sketch = new CountMinSketch(256, 4);
+        for (int i = 0; i < 2_000; i++) {
+            sketch.add(Hashing.hash64("term" + (i % 500)));
+        }
+
+        // Då
+        for (int i = 0; i < 500; i++) {
+            assertTrue(sketch.estimate(Hashing.hash64("term" + i)) >= 4);
+        }
+    }
+
+    @Test
+    void testAddReturnsUpdatedEstimate() {
+        CountMinSketch sketch = new CountMinSketch(1024, 3);
+        long hash = Hashing.hash64("docker");
+
+        assertEquals(1, sketch.add(hash));
+        assertEquals(2, sketch.add(hash));
+        assertEquals(2, sketch.estimate(hash));
+        assertEquals(0, sketch.estimate(Hashing.hash64("mysql")));
+    }
+
+    @Test
+    void testRejectsWidthThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(1000, 4));
+    }
+}
@@ -0,0 +1,39 @@
+package org.roland.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+    @Test
+    void testEstimateIsWithinErrorBound() {
+        // Givet
+        HyperLogLog hll = new HyperLogLog(14);
+
+        // När
+        for (int i = 0; i < 100_000; i++) {
+            hll.add(Hashing.hash64("message-" + i));
+        }
+
+        // Då - standardfelet är ~0.8%, tillåt 3%
+        assertEquals(100_000, hll.estimate(), 3_000);
+    }
+
+    @Test
+    void testDuplicatesAreNotCounted() {
+        HyperLogLog hll = new HyperLogLog(12);
+
+        for (int i = 0; i < 10_000; i++) {
+            hll.add(Hashing.hash64("same-" + (i % 10)));
+        }
+
+        assertEquals(10, hll.estimate());
+    }
+
+    @Test
+    void testEmptyEstimateIsZero() {
+        assertEquals(0, new HyperLogLog(14).estimate());
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+    }
+}
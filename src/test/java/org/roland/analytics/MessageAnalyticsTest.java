@@ -0,0 +1,153 @@
+package org.roland.analytics;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import org.mockito.Mockito;
+import static org.mockito.Mockito.when;
+import org.roland.dto.MessageAnalyticsResponse;
+import org.roland.dto.TermCount;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.roland.service.DatabaseGuard;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageAnalyticsTest {
+
+    private MessageRepository messageRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private DatabaseGuard databaseGuard;
+    private MessageAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = Mockito.mock(MessageRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        databaseGuard = new DatabaseGuard(
+            5, Duration.ofMinutes(1), Duration.ofSeconds(5), Duration.ofSeconds(5), 2, 2, 2, 2, meterRegistry);
+        analytics = new MessageAnalytics(messageRepository, databaseGuard, meterRegistry, 1024, 4, 3, 12, 2, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        analytics.destroy();
+        databaseGuard.destroy();
+    }
+
+    @Test
+    void testTracksTopTermsAndDistinctMessages() {
+        // När
+        analytics.record(message(1L, "Docker och MySQL"));
+        analytics.record(message(2L, "docker compose"));
+        analytics.record(message(3L, "Docker, docker!"));
+        analytics.record(message(4L, "docker compose"));
+        analytics.record(message(5L, "ok"));
+
+        // Då
+        MessageAnalyticsResponse snapshot = analytics.snapshot();
+        assertEquals(5, snapshot.messagesSeen());
+        assertEquals(4, snapshot.distinctMessages());
+        List<TermCount> top = snapshot.topTerms();
+        assertEquals(3, top.size());
+        assertEquals(new TermCount("docker", 5), top.get(0));
+        assertEquals(new TermCount("compose", 2), top.get(1));
+        assertTrue(top.stream().noneMatch(term -> term.term().equals("ok")));
+    }
+
+    @Test
+    void testTopKEvictsSmallestEntry() {
+        TopK topK = new TopK(2);
+        topK.offer("a", 1);
+        topK.offer("b", 2);
+        topK.offer("c", 3);
+        topK.offer("a", 1);
+
+        assertEquals(List.of(new TermCount("c", 3), new TermCount("b", 2)), topK.top());
+    }
+
+    @Test
+    void testRebuildScansRepositoryInKeysetBatches() {
+        // Givet
+        analytics.record(message(99L, "gammalt innehåll"));
+        when(messageRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+            .thenReturn(List.of(message(1L, "alpha beta"), message(2L, "alpha")));
+        when(messageRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any()))
+            .thenReturn(List.of(message(3L, "alpha")));
+
+        // När
+        MessageAnalyticsResponse rebuilt = analytics.rebuild().join();
+
+        // Då
+        assertEquals(3, rebuilt.messagesSeen());
+        assertEquals(2, rebuilt.distinctMessages());
+        assertEquals(new TermCount("alpha", 3), rebuilt.topTerms().getFirst());
+        Mockito.verify(messageRepository, Mockito.times(2)).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    @Test
+    void testRebuildsRequestedWhileOneRunsShareTheNextOne() throws Exception {
+        // Givet - första genomsökningen fastnar tills vi släpper den
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenAnswer(invocation -> {
+            scanning.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(message(1L, "alpha"));
+        });
+        CompletableFuture<MessageAnalyticsResponse> running = analytics.rebuild();
+        assertTrue(scanning.await(5, TimeUnit.SECONDS));
+
+        // När
+        CompletableFuture<MessageAnalyticsResponse> next = analytics.rebuild();
+        CompletableFuture<MessageAnalyticsResponse> alsoNext = analytics.rebuild();
+
+        // Då
+        assertNotSame(running, next);
+        assertSame(next, alsoNext);
+        assertEquals(1.0, meterRegistry.get("messages.analytics.rebuilding").gauge().value());
+        release.countDown();
+        assertEquals(1, next.get(5, TimeUnit.SECONDS).messagesSeen());
+        assertFalse(analytics.rebuilding());
+        Mockito.verify(messageRepository, Mockito.times(2)).findByIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    @Test
+    void testSeedsOnStartUnlessRestored() {
+        // Givet
+        when(messageRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any()))
+            .thenReturn(List.of(message(1L, "alpha beta")));
+        MessageAnalytics restored = new MessageAnalytics(messageRepository, databaseGuard, meterRegistry,
+            1024, 4, 3, 12, 2, true);
+        assertTrue(restored.restore(analytics.export()));
+
+        // När
+        analytics.afterSingletonsInstantiated();
+        restored.afterSingletonsInstantiated();
+
+        // Då
+        assertEquals(1, analytics.rebuild().join().messagesSeen());
+        assertFalse(restored.rebuilding());
+        assertEquals(0, restored.snapshot().messagesSeen());
+        restored.destroy();
+    }
+
+    private static Message message(Long id, String content) {
+        Message message = new Message(content);
+        message.setId(id);
+        return message;
+    }
+}
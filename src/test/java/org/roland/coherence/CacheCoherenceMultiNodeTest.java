@@ -0,0 +1,198 @@
+package org.roland.coherence;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.roland.DemoApplication;
+import org.roland.SeparateCacheManager;
+import org.roland.model.Message;
+import org.roland.outbox.OutboxWriter;
+import org.roland.purge.MessagePurger;
+import org.roland.purge.PurgeCriteria;
+import org.roland.service.MessageQueryService;
+import org.roland.stats.MessageRateStats;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Two application instances sharing one embedded database, each with its own
+ * second-level cache, standing in for two replicas behind a load
+ * balancer.
+ */
+class CacheCoherenceMultiNodeTest {
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @Test
+    void testInsertOnOneNodeReachesTheOthersStats() {
+        // Givet
+        MessageRateStats statsB = nodeB.getBean(MessageRateStats.class);
+        long before = statsB.snapshot().totalMessages();
+
+        // När
+        nodeA.getBean(OutboxWriter.class).save(new Message("hej från nod a"));
+
+        // Då - inom några pollningsintervall, och uppmätt
+        await(() -> statsB.snapshot().totalMessages() == before + 1);
+        Timer staleness = nodeB.getBean(MeterRegistry.class).get("cache.coherence.staleness").timer();
+        assertTrue(staleness.count() >= 1);
+        assertTrue(staleness.max(TimeUnit.MILLISECONDS) < 2_000, staleness.max(TimeUnit.MILLISECONDS) + " ms");
+    }
+
+    @Test
+    void testPurgeOnOneNodeEvictsTheOthersCachedMessage() {
+        // Givet - nod b har meddelandet i sin andranivåcache
+        Message saved = nodeA.getBean(OutboxWriter.class).save(new Message("ska rensas bort"));
+        MessageQueryService queryB = nodeB.getBean(MessageQueryService.class);
+        Cache cacheB = nodeB.getBean(EntityManagerFactory.class).getCache();
+        assertTrue(queryB.findById(saved.getId()).isPresent());
+        assertTrue(cacheB.contains(Message.class, saved.getId()));
+
+        // När
+        nodeA.getBean(MessagePurger.class).start(new PurgeCriteria(null, "ska rensas bort"), null, Duration.ZERO);
+
+        // Då
+        await(() -> !cacheB.contains(Message.class, saved.getId()));
+        assertTrue(queryB.findById(saved.getId()).isEmpty());
+    }
+
+    @Test
+    void testChangeCommittedOutOfOrderIsNotMissed() throws Exception {
+        // Givet - nod b har ett meddelande cachat
+        Message saved = nodeA.getBean(OutboxWriter.class).save(new Message("sen commit"));
+        Cache cacheB = nodeB.getBean(EntityManagerFactory.class).getCache();
+        nodeB.getBean(MessageQueryService.class).findById(saved.getId());
+        assertTrue(cacheB.contains(Message.class, saved.getId()));
+        ChangeWatcher watcherB = nodeB.getBean(ChangeWatcher.class);
+        await(() -> watcherB.pendingGaps() == 0);
+
+        // När - en ändring får sitt sekvensnummer men committar efter en senare
+        TransactionTemplate transaction = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class));
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowWriter = Thread.ofPlatform().start(() -> transaction.executeWithoutResult(status -> {
+            nodeA.getBean(ChangeLog.class).deleted(Map.of(saved.getId(), saved.getTimestamp()));
+            written.countDown();
+            await(release);
+        }));
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        Message later = nodeA.getBean(OutboxWriter.class).save(new Message("committar först"));
+
+        // Då - nod b har passerat luckan men väntar fortfarande på den
+        await(() -> watcherB.lastSeq() > 0 && watcherB.pendingGaps() == 1);
+        assertTrue(cacheB.contains(Message.class, saved.getId()));
+        release.countDown();
+        slowWriter.join();
+        await(() -> !cacheB.contains(Message.class, saved.getId()));
+        assertEquals(0, watcherB.pendingGaps());
+        assertTrue(later.getId() > saved.getId());
+    }
+
+    @Test
+    void testCacheIsDroppedAgainWhileTheFeedStaysUnreadable() {
+        // Givet - en egen nod med egen databas, och ett cachat meddelande
+        try (ConfigurableApplicationContext node = startNode("node-c", "coherence-outage",
+                "--coherence.max-staleness=300ms")) {
+            Message saved = node.getBean(OutboxWriter.class).save(new Message("under avbrottet"));
+            MessageQueryService query = node.getBean(MessageQueryService.class);
+            Cache cache = node.getBean(EntityManagerFactory.class).getCache();
+            query.findById(saved.getId());
+            assertTrue(cache.contains(Message.class, saved.getId()));
+            JdbcTemplate jdbc = new JdbcTemplate(node.getBean(DataSource.class));
+            Counter invalidations = node.getBean(MeterRegistry.class).get("cache.coherence.invalidations").counter();
+
+            // När - ändringstabellen går inte att läsa
+            jdbc.execute("ALTER TABLE message_changes RENAME TO message_changes_away");
+            try {
+                // Då - cachen töms, och töms igen efter att den fyllts på
+                await(() -> !cache.contains(Message.class, saved.getId()));
+                double first = invalidations.count();
+                query.findById(saved.getId());
+                assertTrue(cache.contains(Message.class, saved.getId()));
+                await(() -> !cache.contains(Message.class, saved.getId()));
+                assertTrue(invalidations.count() > first);
+            } finally {
+                jdbc.execute("ALTER TABLE message_changes_away RENAME TO message_changes");
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String name) {
+        return startNode(name, "coherence");
+    }
+
+    private static ConfigurableApplicationContext startNode(String name, String database, String... extra) {
+        return new SpringApplicationBuilder(DemoApplication.class, SeparateCacheManager.class)
+            .web(WebApplicationType.NONE)
+            .run(Stream.concat(Stream.of(
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.main.banner-mode=off",
+                "--coherence.node-id=" + name,
+                "--coherence.poll-interval=50ms",
+                "--outbox.relay.enabled=false",
+                "--access-log.enabled=false",
+                "--snapshot.enabled=false",
+                "--database.pool.adaptive.enabled=false"), Stream.of(extra)).toArray(String[]::new));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10 s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package org.roland.controller;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roland.analytics.MessageAnalytics;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Per-endpoint budgets for SQL statements and heap allocation, run against
+ * the whole application on an embedded database with
+ * {@value #MESSAGES} messages in it. Statements are counted by a proxy
+ * around the application's {@code DataSource}; a request's cost is the most
+ * statements any one call needed. Allocation is the bytes allocated by the
+ * request thread and the database lane threads it hands work to, averaged
+ * over {@value #MEASURED} calls after {@value #WARMUP} warm-up
+ * calls.
+ * <p>
+ * A budget that fails means an endpoint started issuing more queries (an
+ * N+1, a second count) or allocating noticeably more per call. If the
+ * increase is intended, raise the budget in the same change.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:budget;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "outbox.relay.enabled=false",
+    "access-log.enabled=false",
+    "snapshot.enabled=false",
+    "database.pool.adaptive.enabled=false",
+    "coherence.poll-interval=1h",
+    "coherence.prune-interval=1h",
+    // MockMvc only reaches actuator when it shares the application's port
+    "management.server.port="
+})
+@AutoConfigureMockMvc
+class EndpointBudgetTest {
+
+    private static final Logger log = LoggerFactory.getLogger(EndpointBudgetTest.class);
+
+    static final int MESSAGES = 50;
+    static final int WARMUP = 300;
+    static final int MEASURED = 200;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final AtomicLong STATEMENTS = new AtomicLong();
+    /** Threads that ran statements against this test's database, so lane threads of other cached contexts don't count. */
+    private static final Set<Thread> STATEMENT_THREADS = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MessageAnalytics messageAnalytics;
+
+    private Message first;
+
+    @BeforeEach
+    void setUp() {
+        IntStream.range(0, MESSAGES).forEach(i ->
+            messageRepository.save(new Message("budget message number " + i, LocalDateTime.now().minusSeconds(i))));
+        first = messageRepository.findAll().get(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM message_changes");
+        messageRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testHello() throws Exception {
+        assertWithinBudget("GET /api/hello", get("/api/hello"), 0, 110_000);
+    }
+
+    @Test
+    void testCounter() throws Exception {
+        assertWithinBudget("GET /api/counter", get("/api/counter"), 0, 110_000);
+    }
+
+    @Test
+    void testListMessages() throws Exception {
+        assertWithinBudget("GET /api/messages", get("/api/messages"), 1, 340_000);
+    }
+
+    @Test
+    void testGetMessage() throws Exception {
+        assertWithinBudget("GET /api/messages/{id}", get("/api/messages/{id}", first.getId()), 1, 160_000);
+    }
+
+    @Test
+    void testAddMessage() throws Exception {
+        assertWithinBudget("POST /api/messages", post("/api/messages")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"content\":\"a new message\"}"), 2, 220_000);
+    }
+
+    @Test
+    void testInfo() throws Exception {
+        assertWithinBudget("GET /api/info", get("/api/info"), 1, 170_000);
+    }
+
+    @Test
+    void testStats() throws Exception {
+        assertWithinBudget("GET /api/messages/stats", get("/api/messages/stats"), 0, 115_000);
+    }
+
+    @Test
+    void testAnalytics() throws Exception {
+        assertWithinBudget("GET /api/messages/analytics", get("/api/messages/analytics"), 0, 115_000);
+    }
+
+    /** The scan runs in the background; each call waits for it so its statements land in the call's count. */
+    @Test
+    void testAnalyticsRebuild() throws Exception {
+        assertWithinBudget("POST /api/messages/analytics/rebuild", post("/api/messages/analytics/rebuild"), 1,
+            580_000, this::awaitAnalyticsRebuilt);
+    }
+
+    /** The only shard here is the primary, so the message is written with its change-feed row like {@code POST /api/messages}. */
+    @Test
+    void testAddChannelMessage() throws Exception {
+        assertWithinBudget("POST /api/channels/{channel}/messages", post("/api/channels/{channel}/messages", "budget")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"content\":\"a channel message\"}"), 2, 220_000);
+    }
+
+    @Test
+    void testChannelMessages() throws Exception {
+        assertWithinBudget("GET /api/channels/{channel}/messages", get("/api/channels/{channel}/messages", "budget"),
+            1, 150_000);
+    }
+
+    @Test
+    void testAllChannelMessages() throws Exception {
+        assertWithinBudget("GET /api/channels/messages", get("/api/channels/messages"), 1, 180_000);
+    }
+
+    @Test
+    void testPurgeList() throws Exception {
+        assertWithinBudget("GET /actuator/purges", get("/actuator/purges"), 0, 115_000);
+    }
+
+    private void assertWithinBudget(String endpoint, RequestBuilder request, long maxStatements, long maxBytes)
+            throws Exception {
+        assertWithinBudget(endpoint, request, maxStatements, maxBytes, () -> { });
+    }
+
+    private void assertWithinBudget(String endpoint, RequestBuilder request, long maxStatements, long maxBytes,
+                                    Runnable afterCall) throws Exception {
+        // Givet
+        for (int i = 0; i < WARMUP; i++) {
+            mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+            afterCall.run();
+        }
+
+        // När
+        long mostStatements = 0;
+        long bytesBefore = allocatedBytes();
+        for (int i = 0; i < MEASURED; i++) {
+            long statementsBefore = STATEMENTS.get();
+            mockMvc.perform(request).andExpect(status().is2xxSuccessful());
+            afterCall.run();
+            mostStatements = Math.max(mostStatements, STATEMENTS.get() - statementsBefore);
+        }
+        long bytesPerCall = (allocatedBytes() - bytesBefore) / MEASURED;
+
+        // Då
+        log.info(String.format("%-40s %2d statements (budget %d), %,8d bytes (budget %,d)",
+            endpoint, mostStatements, maxStatements, bytesPerCall, maxBytes));
+        assertTrue(mostStatements <= maxStatements,
+            endpoint + " ran " + mostStatements + " SQL statements; budget is " + maxStatements);
+        assertTrue(bytesPerCall <= maxBytes,
+            endpoint + " allocated " + bytesPerCall + " bytes per call; budget is " + maxBytes);
+    }
+
+    /**
+     * Polls rather than spins: once another test has mocked {@code MessageAnalytics}
+     * the inline mock maker's dispatch allocates on every call.
+     */
+    private void awaitAnalyticsRebuilt() {
+        while (messageAnalytics.rebuilding()) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Bytes allocated so far by this thread, the database lane threads
+     * ({@code db-read-1}, ...) that ran statements for this test and the
+     * analytics rebuild thread.
+     */
+    private static long allocatedBytes() {
+        long[] ids = Thread.getAllStackTraces().keySet().stream()
+            .filter(thread -> thread == Thread.currentThread() || STATEMENT_THREADS.contains(thread)
+                || thread.getName().equals("analytics-rebuild"))
+            .mapToLong(Thread::threadId)
+            .toArray();
+        long total = 0;
+        for (long bytes : THREADS.getThreadAllocatedBytes(ids)) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    /** Wraps the application's data source so every executed statement is counted. */
+    @TestConfiguration(proxyBeanMethods = false)
+    static class StatementCounting {
+
+        @Bean
+        static BeanPostProcessor countStatements() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && beanName.equals("dataSource")
+                        ? new CountingDataSource(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static final class CountingDataSource extends DelegatingDataSource {
+
+        CountingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counting(Connection.class, super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counting(Connection.class, super.getConnection(username, password));
+        }
+
+        /** Proxies connections and the statements they create; each {@code execute*} call counts once. */
+        @SuppressWarnings("unchecked")
+        private static <T> T counting(Class<T> type, T target) {
+            return (T) Proxy.newProxyInstance(EndpointBudgetTest.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                            if (method.getName().startsWith("execute")) {
+                                STATEMENTS.incrementAndGet();
+                                STATEMENT_THREADS.add(Thread.currentThread());
+                            }
+                        }
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof CallableStatement statement) {
+                        return counting(CallableStatement.class, statement);
+                    }
+                    if (result instanceof PreparedStatement statement) {
+                        return counting(PreparedStatement.class, statement);
+                    }
+                    return result instanceof Statement statement ? counting(Statement.class, statement) : result;
+                });
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package org.roland.controller;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.sql.DataSource;
+
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
@@ -11,19 +18,40 @@ import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
 import org.mockito.Mockito;
+import org.roland.analytics.MessageAnalytics;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import org.roland.coherence.ChangeLog;
+import org.roland.dto.MessageRequest;
 import org.roland.model.Message;
 import org.roland.model.MessageRepository;
+import org.roland.outbox.OutboxEventRepository;
+import org.roland.outbox.OutboxWriter;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.MessageQueryService;
+import org.roland.shard.MessageShard;
+import org.roland.shard.ShardedMessageStore;
+import org.roland.stats.HitCounter;
+import org.roland.stats.MessageRateStats;
+import org.roland.time.ClockConfiguration;
+import org.roland.web.WireFormatConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -34,12 +62,20 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @WebMvcTest(SimpleController.class)
-@ContextConfiguration(classes = {SimpleController.class, SimpleControllerIntegrationTest.TestConfig.class})
+@ContextConfiguration(classes = {SimpleController.class, OutboxWriter.class, DatabaseGuard.class, MessageQueryService.class, MessageRateStats.class, MessageAnalytics.class, HitCounter.class,
+        WireFormatConfiguration.class, ClockConfiguration.class, SimpleControllerIntegrationTest.TestConfig.class})
 @SuppressWarnings("null")
 class SimpleControllerIntegrationTest {
 
@@ -51,6 +87,35 @@ class SimpleControllerIntegrationTest {
             return Mockito.mock(MessageRepository.class);
         }
 
+        @Bean
+        public OutboxEventRepository outboxEventRepository() {
+            return Mockito.mock(OutboxEventRepository.class);
+        }
+
+        @Bean
+        public ChangeLog changeLog() {
+            return Mockito.mock(ChangeLog.class);
+        }
+
+        @Bean(destroyMethod = "destroy")
+        public ShardedMessageStore shardedMessageStore() {
+            List<MessageShard> shards = Stream.of("it-shard-a", "it-shard-b")
+                    .map(name -> {
+                        DataSource dataSource = new DriverManagerDataSource(
+                                "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+                        DatabasePopulatorUtils.execute(
+                                new ResourceDatabasePopulator(new ClassPathResource("db/shard-schema.sql")), dataSource);
+                        return new MessageShard(name, dataSource, Duration.ofSeconds(2));
+                    })
+                    .toList();
+            return new ShardedMessageStore(shards, 64, List.of());
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
         @Bean
         @Primary
         public ObjectMapper objectMapper() {
@@ -132,7 +197,7 @@ class SimpleControllerIntegrationTest {
         message.setTimestamp(LocalDateTime.now());
 
         when(messageRepository.save(any(Message.class))).thenReturn(message);
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Arrays.asList(message));
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Arrays.asList(message));
 
         // Testa att lägga till ett meddelande - send only content field
         mockMvc.perform(post("/api/messages")
@@ -217,7 +282,7 @@ class SimpleControllerIntegrationTest {
 
     @Test
     void testGetMessagesWhenEmpty() throws Exception {
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Collections.emptyList());
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/api/messages"))
                 .andExpect(status().isOk())
@@ -234,7 +299,7 @@ class SimpleControllerIntegrationTest {
         Message message2 = new Message("Andra meddelandet");
         message2.setTimestamp(LocalDateTime.now());
 
-        when(messageRepository.findAllByOrderByTimestampDesc())
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc())
                 .thenReturn(Arrays.asList(message2, message1)); // Desc order
 
         mockMvc.perform(get("/api/messages"))
@@ -246,7 +311,7 @@ class SimpleControllerIntegrationTest {
 
     @Test
     void testInfoEndpoint() throws Exception {
-        when(messageRepository.count()).thenReturn(0L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
 
         mockMvc.perform(get("/api/info"))
                 .andExpect(status().isOk())
@@ -259,7 +324,7 @@ class SimpleControllerIntegrationTest {
 
     @Test
     void testInfoEndpointWithMessages() throws Exception {
-        when(messageRepository.count()).thenReturn(5L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(5L);
 
         mockMvc.perform(get("/api/info"))
                 .andExpect(status().isOk())
@@ -268,7 +333,7 @@ class SimpleControllerIntegrationTest {
 
     @Test
     void testInfoEndpointStructure() throws Exception {
-        when(messageRepository.count()).thenReturn(0L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
 
         mockMvc.perform(get("/api/info"))
                 .andExpect(status().isOk())
@@ -306,7 +371,7 @@ class SimpleControllerIntegrationTest {
     @Test
     void testCompleteWorkflow() throws Exception {
         // Steg 1: Kontrollera initial state
-        when(messageRepository.count()).thenReturn(0L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
         mockMvc.perform(get("/api/info"))
                 .andExpect(jsonPath("$.totalMessages", is(0)));
 
@@ -314,8 +379,8 @@ class SimpleControllerIntegrationTest {
         Message message = new Message("Workflow test");
         message.setTimestamp(LocalDateTime.now());
         when(messageRepository.save(any(Message.class))).thenReturn(message);
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Arrays.asList(message));
-        when(messageRepository.count()).thenReturn(1L);
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Arrays.asList(message));
+        when(messageRepository.countByChannelIsNull()).thenReturn(1L);
 
         mockMvc.perform(post("/api/messages")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -363,8 +428,8 @@ class SimpleControllerIntegrationTest {
     @Test
     void testMultipleSimultaneousRequests() throws Exception {
         // Simulera flera samtidiga requests till olika endpoints
-        when(messageRepository.count()).thenReturn(0L);
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Collections.emptyList());
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Collections.emptyList());
 
         // Kör flera requests "samtidigt"
         mockMvc.perform(get("/api/hello")).andExpect(status().isOk());
@@ -473,4 +538,171 @@ class SimpleControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.count", greaterThan(0)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testMessageStatsEndpointCountsNewMessages() throws Exception {
+        Message message = new Message("Stats");
+        message.setTimestamp(LocalDateTime.now());
+        when(messageRepository.save(any(Message.class))).thenReturn(message);
+
+        String before = mockMvc.perform(get("/api/messages/stats"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasKey("lastSecond")))
+                .andExpect(jsonPath("$", hasKey("lastMinute")))
+                .andExpect(jsonPath("$", hasKey("lastHour")))
+                .andReturn().getResponse().getContentAsString();
+        long totalBefore = objectMapper.readTree(before).get("totalMessages").asLong();
+
+        mockMvc.perform(post("/api/messages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Stats\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/messages/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalMessages", is((int) totalBefore + 1)))
+                .andExpect(jsonPath("$.lastHour", greaterThan(0)));
+
+        Mockito.verify(messageRepository, Mockito.never()).count();
+    }
+
+    @Test
+    void testMessageAnalyticsEndpoint() throws Exception {
+        Message message = new Message("Analytics analytics test");
+        message.setTimestamp(LocalDateTime.now());
+        when(messageRepository.save(any(Message.class))).thenReturn(message);
+
+        mockMvc.perform(post("/api/messages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Analytics analytics test\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/messages/analytics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.messagesSeen", greaterThan(0)))
+                .andExpect(jsonPath("$.distinctMessages", greaterThan(0)))
+                .andExpect(jsonPath("$.topTerms[?(@.term == 'analytics')].count", contains(2)));
+    }
+
+    @Test
+    void testGetMessageById() throws Exception {
+        Message message = new Message("Ett meddelande");
+        message.setId(42L);
+        message.setTimestamp(LocalDateTime.now());
+        when(messageRepository.findById(42L)).thenReturn(Optional.of(message));
+        when(messageRepository.findById(43L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/messages/42"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.id", is(42)))
+                .andExpect(jsonPath("$.content", is("Ett meddelande")));
+
+        mockMvc.perform(get("/api/messages/43"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/messages/not-a-number"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testMessagesServedStaleWhenDatabaseFails() throws Exception {
+        Message message = new Message("Senast kända");
+        message.setTimestamp(LocalDateTime.now());
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc())
+                .thenReturn(Arrays.asList(message))
+                .thenThrow(new DataAccessResourceFailureException("Communications link failure"));
+
+        mockMvc.perform(get("/api/messages"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Data-Stale"));
+
+        mockMvc.perform(get("/api/messages"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Data-Stale", "true"))
+                .andExpect(header().exists("Age"))
+                .andExpect(jsonPath("$[0].content", is("Senast kända")));
+    }
+
+    @Test
+    void testAddMessageReturnsServiceUnavailableWhenDatabaseFails() throws Exception {
+        when(messageRepository.save(any(Message.class)))
+                .thenThrow(new DataAccessResourceFailureException("Communications link failure"));
+
+        mockMvc.perform(post("/api/messages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Test\"}"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testAddMessageAcceptsAndReturnsCbor() throws Exception {
+        Message message = new Message("Binärt meddelande");
+        message.setId(7L);
+        message.setTimestamp(LocalDateTime.of(2026, 3, 1, 12, 30, 15));
+        when(messageRepository.save(any(Message.class))).thenReturn(message);
+        CBORMapper cbor = new CBORMapper();
+
+        byte[] body = mockMvc.perform(post("/api/messages")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cbor.writeValueAsBytes(new MessageRequest("Binärt meddelande"))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode response = cbor.readTree(body);
+        assertEquals(7L, response.get("id").asLong());
+        assertEquals("Binärt meddelande", response.get("content").asText());
+        assertEquals(List.of(2026, 3, 1, 12, 30, 15),
+                cbor.convertValue(response.get("timestamp"), new TypeReference<List<Integer>>() { }));
+    }
+
+    @Test
+    void testGetMessagesNegotiatesSmileAndDefaultsToJson() throws Exception {
+        Message message = new Message("Smile");
+        message.setTimestamp(LocalDateTime.now());
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Arrays.asList(message, message));
+
+        byte[] body = mockMvc.perform(get("/api/messages").accept(WireFormatConfiguration.APPLICATION_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WireFormatConfiguration.APPLICATION_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        JsonNode messages = new SmileMapper().readTree(body);
+        assertEquals(2, messages.size());
+        assertEquals("Smile", messages.get(1).get("content").asText());
+
+        mockMvc.perform(get("/api/messages").accept(MediaType.ALL))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void testChannelMessagesRoundTripThroughShards() throws Exception {
+        mockMvc.perform(post("/api/channels/nyheter/messages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Första nyheten\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.channel", is("nyheter")));
+        mockMvc.perform(post("/api/messages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Andra nyheten\",\"channel\":\"nyheter\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/channels/väder/messages")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\":\"Ogiltig kanal\"}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/channels/nyheter/messages"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].content", is("Andra nyheten")));
+        mockMvc.perform(get("/api/channels/messages").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        mockMvc.perform(get("/api/channels/messages").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        verify(messageRepository, never()).save(any(Message.class));
+    }
+}
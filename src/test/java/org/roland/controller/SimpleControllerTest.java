@@ -1,34 +1,62 @@
 
 package org.roland.controller;
 
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roland.analytics.MessageAnalytics;
+import org.roland.coherence.ChangeLog;
 import org.roland.dto.CounterResponse;
 import org.roland.dto.HelloResponse;
 import org.roland.dto.InfoResponse;
+import org.roland.dto.MessageAnalyticsResponse;
 import org.roland.dto.MessageRequest;
 import org.roland.dto.MessageResponse;
+import org.roland.dto.MessageStatsResponse;
 import org.roland.model.Message;
 import org.roland.model.MessageRepository;
+import org.roland.outbox.OutboxEvent;
+import org.roland.outbox.OutboxEventRepository;
+import org.roland.outbox.OutboxProperties;
+import org.roland.outbox.OutboxWriter;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.MessageQueryService;
+import org.roland.shard.ShardedMessageStore;
+import org.roland.stats.HitCounter;
+import org.roland.stats.MessageRateStats;
+import org.roland.time.CoarseClock;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("null")
 class SimpleControllerTest {
@@ -36,8 +64,40 @@ class SimpleControllerTest {
     @Mock
     private MessageRepository messageRepository;
 
-    @InjectMocks
+    @Mock
+    private MessageRateStats messageRateStats;
+
+    @Mock
+    private MessageAnalytics messageAnalytics;
+
+    @Mock
+    private ShardedMessageStore shardedMessageStore;
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private ChangeLog changeLog;
+
     private SimpleController simpleController;
+    private final CoarseClock clock = CoarseClock.manual(
+        Clock.fixed(Instant.parse("2026-03-01T12:00:00.123Z"), ZoneOffset.UTC));
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DatabaseGuard databaseGuard = new DatabaseGuard(
+            5, Duration.ofSeconds(10), Duration.ofSeconds(2), Duration.ofSeconds(3), 4, 8, 4, 8, meterRegistry);
+        MessageQueryService messageQueryService = new MessageQueryService(messageRepository, databaseGuard, meterRegistry);
+        OutboxProperties outboxProperties = new OutboxProperties(
+            List.of(new OutboxProperties.Endpoint("sok", URI.create("http://localhost:9/hook"), 50, 4)),
+            200, Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofMinutes(5), 10, 10);
+        OutboxWriter outboxWriter = new OutboxWriter(messageRepository, outboxEventRepository,
+            new ObjectMapper().registerModule(new JavaTimeModule()), changeLog, outboxProperties);
+        simpleController = new SimpleController(
+            outboxWriter, databaseGuard, messageQueryService, messageRateStats, messageAnalytics,
+            shardedMessageStore, clock, new HitCounter());
+    }
 
     @Test
     void testHello() {
@@ -116,6 +176,8 @@ class SimpleControllerTest {
         assertNotNull(body.timestamp());
 
         verify(messageRepository).save(any(Message.class));
+        verify(messageRateStats).record();
+        verify(messageAnalytics).record(savedMessage);
     }
 
     @Test
@@ -189,19 +251,30 @@ class SimpleControllerTest {
     void testAddMessageSetsTimestamp() {
         // Givet
         MessageRequest request = new MessageRequest("Test");
-        LocalDateTime beforeCall = LocalDateTime.now().minusSeconds(1);
 
         when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> invocation.<Message>getArgument(0));
 
         // När
         ResponseEntity<MessageResponse> response = simpleController.addMessage(request);
-        LocalDateTime afterCall = LocalDateTime.now().plusSeconds(1);
 
-        // Då
+        // Då - tiden kommer från den injicerade klockan
         MessageResponse body = response.getBody();
         assertNotNull(body);
-        LocalDateTime timestamp = body.timestamp();
-        assertTrue(timestamp.isAfter(beforeCall) && timestamp.isBefore(afterCall));
+        assertEquals(LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_000_000), body.timestamp());
+    }
+
+    @Test
+    void testHelloAndInfoUseTheClocksPreformattedTimestamp() {
+        // Givet
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
+
+        // När
+        String helloTimestamp = simpleController.hello().getBody().timestamp();
+        String infoTimestamp = simpleController.getInfo().getBody().timestamp();
+
+        // Då
+        assertEquals("2026-03-01T12:00:00.123", helloTimestamp);
+        assertSame(helloTimestamp, infoTimestamp);
     }
 
     @Test
@@ -211,7 +284,7 @@ class SimpleControllerTest {
         Message message2 = new Message("Andra meddelandet");
         List<Message> messages = Arrays.asList(message1, message2);
 
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(messages);
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(messages);
 
         // När
         ResponseEntity<List<MessageResponse>> response = simpleController.getMessages();
@@ -224,13 +297,13 @@ class SimpleControllerTest {
         assertEquals("Första meddelandet", body.get(0).content());
         assertEquals("Andra meddelandet", body.get(1).content());
 
-        verify(messageRepository).findAllByOrderByTimestampDesc();
+        verify(messageRepository).findByChannelIsNullOrderByTimestampDesc();
     }
 
     @Test
     void testGetMessagesWhenEmpty() {
         // Givet
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Collections.emptyList());
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Collections.emptyList());
 
         // När
         ResponseEntity<List<MessageResponse>> response = simpleController.getMessages();
@@ -241,14 +314,14 @@ class SimpleControllerTest {
         assertNotNull(body);
         assertTrue(body.isEmpty());
 
-        verify(messageRepository).findAllByOrderByTimestampDesc();
+        verify(messageRepository).findByChannelIsNullOrderByTimestampDesc();
     }
 
     @Test
     void testGetMessagesSingleMessage() {
         // Givet
         Message message = new Message("Enda meddelandet");
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Collections.singletonList(message));
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Collections.singletonList(message));
 
         // När
         ResponseEntity<List<MessageResponse>> response = simpleController.getMessages();
@@ -264,7 +337,7 @@ class SimpleControllerTest {
     @Test
     void testInfo() {
         // Givet
-        when(messageRepository.count()).thenReturn(1L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(1L);
 
         simpleController.getCounter(); // ökar räknaren till 1
 
@@ -280,13 +353,13 @@ class SimpleControllerTest {
         assertEquals(1L, body.totalMessages());
         assertNotNull(body.timestamp());
 
-        verify(messageRepository).count();
+        verify(messageRepository).countByChannelIsNull();
     }
 
     @Test
     void testInfoWithZeroMessages() {
         // Givet
-        when(messageRepository.count()).thenReturn(0L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
 
         // När
         ResponseEntity<InfoResponse> response = simpleController.getInfo();
@@ -299,13 +372,13 @@ class SimpleControllerTest {
         assertEquals("simple-java-docker", body.app());
         assertEquals("1.0.0", body.version());
 
-        verify(messageRepository).count();
+        verify(messageRepository).countByChannelIsNull();
     }
 
     @Test
     void testInfoWithManyMessages() {
         // Givet
-        when(messageRepository.count()).thenReturn(100L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(100L);
 
         // När
         ResponseEntity<InfoResponse> response = simpleController.getInfo();
@@ -316,13 +389,13 @@ class SimpleControllerTest {
         assertNotNull(body);
         assertEquals(100L, body.totalMessages());
 
-        verify(messageRepository).count();
+        verify(messageRepository).countByChannelIsNull();
     }
 
     @Test
     void testInfoTimestampFormat() {
         // Givet
-        when(messageRepository.count()).thenReturn(0L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(0L);
 
         // När
         ResponseEntity<InfoResponse> response = simpleController.getInfo();
@@ -339,7 +412,7 @@ class SimpleControllerTest {
     @Test
     void testInfoContainsAllRequiredFields() {
         // Givet
-        when(messageRepository.count()).thenReturn(5L);
+        when(messageRepository.countByChannelIsNull()).thenReturn(5L);
 
         // När
         ResponseEntity<InfoResponse> response = simpleController.getInfo();
@@ -382,8 +455,8 @@ class SimpleControllerTest {
         MessageRequest req2 = new MessageRequest("Andra");
 
         when(messageRepository.save(any(Message.class))).thenReturn(msg1, msg2);
-        when(messageRepository.findAllByOrderByTimestampDesc()).thenReturn(Arrays.asList(msg2, msg1));
-        when(messageRepository.count()).thenReturn(2L);
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(Arrays.asList(msg2, msg1));
+        when(messageRepository.countByChannelIsNull()).thenReturn(2L);
 
         // Lägg till meddelanden
         simpleController.addMessage(req1);
@@ -402,7 +475,139 @@ class SimpleControllerTest {
         assertEquals(2L, infoBody.totalMessages());
 
         verify(messageRepository, times(2)).save(any(Message.class));
-        verify(messageRepository).findAllByOrderByTimestampDesc();
-        verify(messageRepository).count();
+        verify(messageRepository).findByChannelIsNullOrderByTimestampDesc();
+        verify(messageRepository).countByChannelIsNull();
+    }
+
+    @Test
+    void testGetMessageStats() {
+        // Givet
+        MessageStatsResponse stats = new MessageStatsResponse(10L, 1L, 3L, 7L, 0.05, 7 / 60.0);
+        when(messageRateStats.snapshot()).thenReturn(stats);
+
+        // När
+        ResponseEntity<MessageStatsResponse> response = simpleController.getMessageStats();
+
+        // Då
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(stats, response.getBody());
+        verify(messageRepository, times(0)).countByChannelIsNull();
+    }
+
+    @Test
+    void testGetAndRebuildMessageAnalytics() {
+        // Givet
+        MessageAnalyticsResponse analytics = new MessageAnalyticsResponse(2L, 2L, List.of());
+        when(messageAnalytics.snapshot()).thenReturn(analytics);
+
+        // När
+        ResponseEntity<MessageAnalyticsResponse> rebuild = simpleController.rebuildMessageAnalytics();
+
+        // Då
+        assertEquals(analytics, simpleController.getMessageAnalytics().getBody());
+        assertEquals(HttpStatus.ACCEPTED, rebuild.getStatusCode());
+        assertEquals(URI.create("/api/messages/analytics"), rebuild.getHeaders().getLocation());
+        assertEquals(analytics, rebuild.getBody());
+        verify(messageAnalytics).rebuild();
+    }
+
+    @Test
+    void testGetMessageById() {
+        // Givet
+        Message message = new Message("Cachat meddelande");
+        message.setId(7L);
+        when(messageRepository.findById(7L)).thenReturn(Optional.of(message));
+        when(messageRepository.findById(8L)).thenReturn(Optional.empty());
+
+        // När
+        ResponseEntity<MessageResponse> found = simpleController.getMessage(7L);
+        ResponseEntity<MessageResponse> missing = simpleController.getMessage(8L);
+
+        // Då
+        assertEquals(HttpStatus.OK, found.getStatusCode());
+        MessageResponse body = found.getBody();
+        assertNotNull(body);
+        assertEquals(7L, body.id());
+        assertEquals("Cachat meddelande", body.content());
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    @Test
+    void testChannelMessageIsStoredOnItsShard() {
+        // Givet
+        Message saved = new Message("Hej kanalen", "sport");
+        saved.setId(3L);
+        when(shardedMessageStore.save("sport", "Hej kanalen", clock.exactNow())).thenReturn(saved);
+
+        // När
+        ResponseEntity<MessageResponse> response = simpleController.addMessage(new MessageRequest("Hej kanalen", "sport"));
+
+        // Då
+        MessageResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals("sport", body.channel());
+        verify(messageRepository, never()).save(any(Message.class));
+        verify(outboxEventRepository, never()).saveAll(any());
+        verify(messageRateStats).record();
+        verify(messageAnalytics).record(saved);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChannelMessageOnPrimaryWritesOutboxEvent() {
+        // Givet - kanalen ligger på primärdatabasen, där outboxen finns
+        Message saved = new Message("Hej kanalen", "sport");
+        saved.setId(5L);
+        when(shardedMessageStore.onPrimary("sport")).thenReturn(true);
+        when(messageRepository.save(any(Message.class))).thenReturn(saved);
+
+        // När
+        simpleController.addMessage(new MessageRequest("Hej kanalen", "sport"));
+
+        // Då
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxEventRepository).saveAll(events.capture());
+        assertEquals(5L, events.getValue().get(0).getMessageId());
+        assertTrue(events.getValue().get(0).getPayload().contains("\"channel\":\"sport\""));
+        verify(changeLog).created(saved);
+        verify(shardedMessageStore, never()).save(any(), any(), any());
+    }
+
+    @Test
+    void testGetChannelMessages() {
+        // Givet
+        Message message = new Message("Mål!", "sport");
+        message.setId(1L);
+        when(shardedMessageStore.findByChannel("sport", 50)).thenReturn(List.of(message));
+        when(shardedMessageStore.findNewest(50)).thenReturn(List.of(message));
+
+        // När
+        List<MessageResponse> channel = simpleController.getChannelMessages("sport", 50).getBody();
+        List<MessageResponse> all = simpleController.getAllChannelMessages(50).getBody();
+
+        // Då
+        assertNotNull(channel);
+        assertEquals("Mål!", channel.get(0).content());
+        assertEquals(all, channel);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAddMessageWritesOutboxEvent() {
+        // Givet
+        Message saved = new Message("Till webhook");
+        saved.setId(42L);
+        when(messageRepository.save(any(Message.class))).thenReturn(saved);
+
+        // När
+        simpleController.addMessage(new MessageRequest("Till webhook"));
+
+        // Då
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxEventRepository).saveAll(events.capture());
+        OutboxEvent event = events.getValue().get(0);
+        assertEquals("sok", event.getEndpoint());
+        assertEquals(42L, event.getMessageId());
+        assertTrue(event.getPayload().contains("\"content\":\"Till webhook\""));
     }
-}
\ No newline at end of file
+}
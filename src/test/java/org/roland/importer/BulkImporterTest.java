@@ -0,0 +1,150 @@
+package org.roland.importer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkImporterTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @TempDir
+    private Path tempDir;
+
+    private BulkImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        importer = new BulkImporter(dataSource, transactionManager,
+            Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM import_chunks");
+        messageRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testImportsNdjsonAndRejectsInvalidRows() throws Exception {
+        // Givet
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2_500; i++) {
+            lines.add("{\"content\":\"historik " + i + "\",\"timestamp\":\"2020-01-01T00:00:00\"}");
+        }
+        lines.add("{\"content\":\"\"}");
+        lines.add("{\"content\":\"" + "x".repeat(1001) + "\"}");
+        lines.add("{trasig json");
+        lines.add("");
+        lines.add("{\"content\":\"kanal\",\"channel\":\"sport\"}");
+        Path file = Files.write(tempDir.resolve("messages.ndjson"), lines);
+
+        // När
+        ImportReport report = importer.run(spec(file, ImportFormat.NDJSON, "ndjson", 300));
+
+        // Då
+        assertEquals(2_500, report.inserted());
+        assertEquals(4, report.rejected());
+        assertEquals(2_500, messageRepository.count());
+        assertEquals(9, report.chunksThisRun());
+        assertTrue(report.rowsPerSecond() > 0);
+        assertTrue(messageRepository.findAll().stream()
+            .allMatch(message -> message.getTimestamp().equals(LocalDateTime.of(2020, 1, 1, 0, 0))));
+    }
+
+    @Test
+    void testImportsCsvWithQuotedFields() throws Exception {
+        // Givet
+        Path file = Files.writeString(tempDir.resolve("messages.csv"),
+            "timestamp,content\r\n"
+                + "2021-05-01T10:00:00,\"Hej, världen\"\r\n"
+                + "2021-05-01T10:00:01,\"Hon sa \"\"hej\"\"\"\r\n"
+                + "2021-05-01T10:00:02,\"två\nrader\"\r\n"
+                + "inte-en-tid,fel\r\n");
+
+        // När
+        ImportReport report = importer.run(spec(file, ImportFormat.of("auto", file), "csv", 2));
+
+        // Då
+        assertEquals(3, report.inserted());
+        assertEquals(1, report.rejected());
+        assertEquals(List.of("Hej, världen", "Hon sa \"hej\"", "två\nrader"),
+            messageRepository.findByChannelIsNullOrderByTimestampDesc().reversed().stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void testInterruptedImportResumesWithoutDuplicates() throws Exception {
+        // Givet
+        int rows = 20_000;
+        List<String> lines = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            lines.add("{\"content\":\"rad " + i + "\"}");
+        }
+        Path file = Files.write(tempDir.resolve("stor.ndjson"), lines);
+        ImportSpec spec = spec(file, ImportFormat.NDJSON, "resume", 100);
+
+        // När - avbryt när en del av filen är importerad
+        AtomicReference<Throwable> outcome = new AtomicReference<>();
+        Thread first = Thread.ofPlatform().start(() -> {
+            try {
+                importer.run(spec);
+            } catch (Throwable e) {
+                outcome.set(e);
+            }
+        });
+        while (messageRepository.count() < 2_000 && first.isAlive()) {
+            Thread.sleep(5);
+        }
+        first.interrupt();
+        first.join();
+        long afterInterrupt = messageRepository.count();
+        ImportReport resumed = importer.run(spec);
+
+        // Då
+        assertTrue(outcome.get() instanceof InterruptedException, "first run: " + outcome.get());
+        assertTrue(afterInterrupt > 0 && afterInterrupt < rows, "imported before interrupt: " + afterInterrupt);
+        assertTrue(resumed.resumedChunks() > 0);
+        assertEquals(rows / 100, resumed.resumedChunks() + resumed.chunksThisRun());
+        assertEquals(rows, resumed.inserted());
+        assertEquals(rows, messageRepository.count());
+        assertEquals(rows, messageRepository.findAll().stream().map(Message::getContent).distinct().count());
+    }
+
+    private static ImportSpec spec(Path file, ImportFormat format, String jobId, int chunkSize) {
+        return new ImportSpec(file, format, jobId, chunkSize, 4, Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,116 @@
+package org.roland.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Measures how many database loads the second-level cache saves for
+ * {@code findById} when keys follow a Zipfian (s = 1) popularity curve, which
+ * is what single-message lookups from shared links tend to look like.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Tag("benchmark")
+class MessageCacheBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageCacheBenchmarkTest.class);
+
+    private static final int MESSAGES = 2_000;
+    private static final int LOOKUPS = 20_000;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp() {
+        entityManagerFactory.getCache().evictAll();
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            messages.add(new Message("Meddelande " + i));
+        }
+        ids = messageRepository.saveAll(messages).stream().map(Message::getId).toList();
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        messageRepository.deleteAllInBatch();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void testSecondLevelCacheAvoidsDatabaseLoadsUnderZipfianKeys() {
+        // Givet
+        int[] keys = zipfianKeys(MESSAGES, LOOKUPS, new Random(42));
+        Set<Integer> distinct = new HashSet<>();
+
+        // När
+        long start = System.nanoTime();
+        for (int key : keys) {
+            distinct.add(key);
+            assertTrue(messageRepository.findById(ids.get(key)).isPresent());
+        }
+        long elapsedMicros = (System.nanoTime() - start) / 1_000;
+
+        // Då - varje nyckel laddas från databasen bara första gången
+        long dbLoads = statistics.getEntityLoadCount();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        double hitRatio = hits / (double) LOOKUPS;
+        log.info(String.format(
+            "L2 cache benchmark: %d lookups over %d distinct keys, %d DB loads, %d avoided, hit ratio %.3f, %d us/lookup",
+            LOOKUPS, distinct.size(), dbLoads, LOOKUPS - dbLoads, hitRatio, elapsedMicros / LOOKUPS));
+
+        assertEquals(distinct.size(), dbLoads);
+        assertEquals(LOOKUPS - distinct.size(), hits);
+        assertTrue(hitRatio > 0.9, "hit ratio " + hitRatio);
+    }
+
+    /**
+     * Draws {@code count} ranks in {@code [0, n)} with probability
+     * proportional to {@code 1 / (rank + 1)} by inverting the cumulative
+     * distribution.
+     */
+    private static int[] zipfianKeys(int n, int count, Random random) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            keys[i] = index >= 0 ? index : Math.min(n - 1, -index - 1);
+        }
+        return keys;
+    }
+}
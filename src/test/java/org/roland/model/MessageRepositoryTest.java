@@ -0,0 +1,81 @@
+package org.roland.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+@DataJpaTest
+class MessageRepositoryTest {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Test
+    void testCountRecentAggregatesWindows() {
+        // Givet
+        LocalDateTime now = LocalDateTime.now();
+        save("ny", now.minusSeconds(10));
+        save("nyligen", now.minusMinutes(30));
+        save("gammal", now.minusDays(2));
+
+        // När
+        MessageCounts counts = messageRepository.countRecent(now.minusMinutes(1), now.minusHours(1));
+
+        // Då
+        assertEquals(3L, counts.total());
+        assertEquals(1L, counts.sinceMinute());
+        assertEquals(2L, counts.sinceHour());
+    }
+
+    @Test
+    void testCountRecentOnEmptyTable() {
+        LocalDateTime now = LocalDateTime.now();
+        MessageCounts counts = messageRepository.countRecent(now.minusMinutes(1), now.minusHours(1));
+
+        assertEquals(0L, counts.total());
+        assertEquals(0L, counts.sinceMinute());
+        assertEquals(0L, counts.sinceHour());
+    }
+
+    @Test
+    void testKeysetScanReturnsBatchesInIdOrder() {
+        // Givet
+        LocalDateTime now = LocalDateTime.now();
+        save("ett", now);
+        save("två", now);
+        save("tre", now);
+
+        // När
+        List<Message> first = messageRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+        List<Message> second = messageRepository.findByIdGreaterThanOrderByIdAsc(first.get(1).getId(), Limit.of(2));
+
+        // Då
+        assertEquals(List.of("ett", "två"), first.stream().map(Message::getContent).toList());
+        assertEquals(List.of("tre"), second.stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void testListAndCountLeaveOutChannelMessages() {
+        // Givet - primärdatabasen är också en kanalshard
+        LocalDateTime now = LocalDateTime.now();
+        save("äldre", now.minusMinutes(1));
+        save("nyare", now);
+        messageRepository.save(new Message("i kanalen", "nyheter", now.plusMinutes(1)));
+
+        // När / Då
+        assertEquals(List.of("nyare", "äldre"), messageRepository.findByChannelIsNullOrderByTimestampDesc().stream()
+            .map(Message::getContent).toList());
+        assertEquals(2L, messageRepository.countByChannelIsNull());
+    }
+
+    private void save(String content, LocalDateTime timestamp) {
+        Message message = new Message(content);
+        message.setTimestamp(timestamp);
+        messageRepository.save(message);
+    }
+}
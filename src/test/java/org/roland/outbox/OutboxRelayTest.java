@@ -0,0 +1,288 @@
+package org.roland.outbox;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roland.coherence.ChangeLog;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("\"eventId\":(\\d+)");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    private HttpServer stub;
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private volatile IntSupplier status = () -> 200;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.createContext("/hook", exchange -> {
+            int running = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(running, Math::max);
+            try {
+                bodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                Thread.sleep(50);
+                exchange.sendResponseHeaders(status.getAsInt(), -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+                exchange.close();
+            }
+        });
+        stub.start();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (relay != null) {
+            relay.destroy();
+        }
+        stub.stop(0);
+        outboxEventRepository.deleteAllInBatch();
+        messageRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testDeliversEveryEventOnceInPipelinedBatches() throws Exception {
+        // Givet - 95 meddelanden, 10 per POST, högst 2 POST samtidigt
+        OutboxProperties properties = properties(10, 2, 3, Duration.ofSeconds(1));
+        OutboxWriter writer = writer(properties);
+        IntStream.range(0, 95).forEach(i -> writer.save(new Message("händelse " + i)));
+        relay = relay(properties);
+
+        // När
+        relay.relay();
+        awaitIdle();
+
+        // Då
+        assertEquals(10, bodies.size());
+        List<Long> delivered = bodies.stream().flatMap(body -> eventIds(body).stream()).sorted().toList();
+        assertEquals(95, delivered.size());
+        assertEquals(95, delivered.stream().distinct().count());
+        assertEquals(2, maxConcurrent.get());
+        assertEquals(0, outboxEventRepository.count());
+        assertEquals(95.0, meterRegistry.get("outbox.delivered").tag("endpoint", "stub").counter().count());
+    }
+
+    @Test
+    void testOneRunClaimsAtMostMaxBatchesPerRun() throws Exception {
+        // Givet - 50 meddelanden, 10 per anspråk, högst 2 anspråk per körning
+        OutboxProperties properties = properties(10, 1, 3, Duration.ofSeconds(1), 10, 2);
+        OutboxWriter writer = writer(properties);
+        IntStream.range(0, 50).forEach(i -> writer.save(new Message("kö " + i)));
+        relay = relay(properties);
+
+        // När
+        relay.relay();
+        awaitIdle();
+
+        // Då - resten väntar på nästa körning
+        assertEquals(2, bodies.size());
+        assertEquals(30, outboxEventRepository.count());
+
+        // När
+        relay.relay();
+        awaitIdle();
+
+        // Då
+        assertEquals(4, bodies.size());
+        assertEquals(10, outboxEventRepository.count());
+    }
+
+    @Test
+    void testControlCharactersAtMaxLengthFitThePayload() throws Exception {
+        // Givet - 1000 styrtecken escapas till sex tecken vardera i JSON
+        String content = IntStream.range(0, 1000).mapToObj(i -> String.valueOf((char) (1 + i % 31)))
+            .collect(Collectors.joining());
+        OutboxProperties properties = properties(10, 1, 3, Duration.ofSeconds(1));
+        writer(properties).save(new Message(content));
+        relay = relay(properties);
+
+        // När
+        relay.relay();
+        awaitIdle();
+
+        // Då
+        assertEquals(1, bodies.size());
+        assertTrue(bodies.get(0).length() > 4000);
+        assertEquals(content, new ObjectMapper().readTree(bodies.get(0)).findValue("content").asText());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedWithBackoffThenDead() throws Exception {
+        // Givet
+        status = () -> 503;
+        OutboxProperties properties = properties(50, 1, 2, Duration.ZERO);
+        writer(properties).save(new Message("misslyckas"));
+        relay = relay(properties);
+
+        // När - första försöket
+        relay.relay();
+        awaitIdle();
+
+        // Då
+        OutboxEvent retried = outboxEventRepository.findAll().get(0);
+        assertEquals(OutboxStatus.PENDING, retried.getStatus());
+        assertEquals(1, retried.getAttempts());
+        assertEquals("HTTP 503", retried.getLastError());
+
+        // När - andra försöket ger upp
+        relay.relay();
+        awaitIdle();
+
+        // Då
+        assertEquals(1, outboxEventRepository.findByStatus(OutboxStatus.DEAD).size());
+        assertEquals(1.0, meterRegistry.get("outbox.dead").tag("endpoint", "stub").counter().count());
+        assertEquals(2, bodies.size());
+    }
+
+    @Test
+    void testConcurrentClaimsSkipLockedRows() throws Exception {
+        // Givet
+        OutboxProperties properties = properties(50, 1, 3, Duration.ofSeconds(1));
+        OutboxWriter writer = writer(properties);
+        IntStream.range(0, 10).forEach(i -> writer.save(new Message("delad " + i)));
+        OutboxStore store = new OutboxStore(dataSource, transactionManager);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService otherNode = Executors.newSingleThreadExecutor();
+
+        // När - en nod håller låset på fyra rader medan en annan gör anspråk
+        Future<List<ClaimedEvent>> first = otherNode.submit(() -> transaction.execute(tx -> {
+            List<ClaimedEvent> claimed = store.claim(List.of("stub"), 4, LocalDateTime.now(), Duration.ofSeconds(30));
+            locked.countDown();
+            await(release);
+            return claimed;
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        List<ClaimedEvent> second = store.claim(List.of("stub"), 100, LocalDateTime.now(), Duration.ofSeconds(30));
+        release.countDown();
+
+        // Då - raderna är disjunkta och täcker allt
+        List<Long> firstIds = first.get(10, TimeUnit.SECONDS).stream().map(ClaimedEvent::id).toList();
+        List<Long> secondIds = second.stream().map(ClaimedEvent::id).toList();
+        otherNode.shutdown();
+        assertEquals(4, firstIds.size());
+        assertEquals(6, secondIds.size());
+        assertTrue(secondIds.stream().noneMatch(firstIds::contains));
+    }
+
+    @Test
+    void testBackoffGrowsExponentiallyWithinCap() {
+        // När / Då
+        assertEquals(Duration.ofMillis(500), OutboxStore.backoff(1, Duration.ofSeconds(1), Duration.ofMinutes(5), 0));
+        assertEquals(Duration.ofSeconds(8), OutboxStore.backoff(4, Duration.ofSeconds(1), Duration.ofMinutes(5), 1));
+        assertEquals(Duration.ofMinutes(5), OutboxStore.backoff(20, Duration.ofSeconds(1), Duration.ofMinutes(5), 1));
+    }
+
+    private OutboxProperties properties(int batchSize, int maxConcurrency, int maxAttempts, Duration initialBackoff) {
+        return properties(batchSize, maxConcurrency, maxAttempts, initialBackoff, 200, 10);
+    }
+
+    private OutboxProperties properties(int batchSize, int maxConcurrency, int maxAttempts, Duration initialBackoff,
+                                        int claimBatchSize, int maxBatchesPerRun) {
+        URI url = URI.create("http://127.0.0.1:" + stub.getAddress().getPort() + "/hook");
+        return new OutboxProperties(List.of(new OutboxProperties.Endpoint("stub", url, batchSize, maxConcurrency)),
+            claimBatchSize, Duration.ofSeconds(30), Duration.ofSeconds(5), initialBackoff, Duration.ofMinutes(5),
+            maxAttempts, maxBatchesPerRun);
+    }
+
+    private OutboxWriter writer(OutboxProperties properties) {
+        return new OutboxWriter(messageRepository, outboxEventRepository,
+            new ObjectMapper().registerModule(new JavaTimeModule()), new ChangeLog(dataSource, false, "test"), properties);
+    }
+
+    private OutboxRelay relay(OutboxProperties properties) {
+        return new OutboxRelay(new OutboxStore(dataSource, transactionManager), properties, meterRegistry,
+            HttpClient.newHttpClient(), Clock.systemDefaultZone(), Duration.ofMillis(500));
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (relay.inFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, relay.inFlight());
+    }
+
+    private static List<Long> eventIds(String body) {
+        Matcher matcher = EVENT_ID.matcher(body);
+        List<Long> ids = new ArrayList<>();
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        return ids;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
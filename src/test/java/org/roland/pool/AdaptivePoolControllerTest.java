@@ -0,0 +1,81 @@
+package org.roland.pool;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdaptivePoolControllerTest {
+
+    private HikariDataSource readPool;
+    private HikariDataSource writePool;
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptivePoolController controller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        readPool = pool("test-pool-read");
+        writePool = pool("test-pool-write");
+        controller = new AdaptivePoolController(List.of(readPool, writePool), meterRegistry,
+            new PoolSizingPolicy(2, 16, 0.2, 5, 4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        readPool.close();
+        writePool.close();
+    }
+
+    @Test
+    void testResizesOnlyTheLoadedPool() {
+        // När
+        PoolSizingDecision decision = controller.apply("test-pool-read", new PoolSample(200, 50, 20, 4, 3, 4));
+
+        // Då
+        assertEquals(8, decision.targetSize());
+        assertEquals(8, readPool.getHikariConfigMXBean().getMaximumPoolSize());
+        assertEquals(4, writePool.getHikariConfigMXBean().getMaximumPoolSize());
+        assertEquals(8.0, meterRegistry.get("db.pool.target.size").tag("pool", "test-pool-read").gauge().value());
+        assertEquals(4.0, meterRegistry.get("db.pool.target.size").tag("pool", "test-pool-write").gauge().value());
+        assertEquals(13.0, meterRegistry.get("db.pool.demand").tag("pool", "test-pool-read").gauge().value());
+        assertEquals(1.0, meterRegistry.get("db.pool.decisions")
+            .tag("pool", "test-pool-read").tag("action", "grow").counter().count());
+    }
+
+    @Test
+    void testAdjustSamplesEveryLivePool() throws Exception {
+        // Givet
+        try (var connection = readPool.getConnection()) {
+            connection.createStatement().execute("SELECT 1");
+        }
+        try (var connection = writePool.getConnection()) {
+            connection.createStatement().execute("SELECT 1");
+        }
+
+        // När
+        controller.adjust();
+
+        // Då - lediga pooler krymper en anslutning var
+        assertEquals(3, readPool.getMaximumPoolSize());
+        assertEquals(3, writePool.getMaximumPoolSize());
+        assertEquals(1.0, meterRegistry.get("db.pool.decisions")
+            .tag("pool", "test-pool-write").tag("action", "shrink").counter().count());
+    }
+
+    private HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + name);
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(4);
+        pool.setMinimumIdle(1);
+        pool.setMetricRegistry(meterRegistry);
+        return pool;
+    }
+}
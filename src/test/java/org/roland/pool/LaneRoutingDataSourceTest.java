@@ -0,0 +1,166 @@
+package org.roland.pool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.DatabaseLane;
+import org.roland.service.Deadline;
+import org.roland.service.DeadlineExceededException;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LaneRoutingDataSourceTest {
+
+    private LaneRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new LaneRoutingDataSource(Map.of(
+            DatabaseLane.READ, pool("lanes-read"),
+            DatabaseLane.WRITE, pool("lanes-write"),
+            DatabaseLane.DEFAULT, pool("lanes-default")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    void testCallerThreadUsesDefaultPool() throws Exception {
+        // När
+        try (Connection connection = dataSource.getConnection()) {
+            connection.createStatement().execute("SELECT 1");
+        }
+
+        // Då
+        assertEquals(1, dataSource.pools().get(DatabaseLane.DEFAULT).getHikariPoolMXBean().getTotalConnections());
+        assertNull(dataSource.pools().get(DatabaseLane.READ).getHikariPoolMXBean());
+    }
+
+    @Test
+    void testGuardLanesUseTheirOwnPools() throws Exception {
+        // Givet
+        DatabaseGuard guard = new DatabaseGuard(5, Duration.ofSeconds(10), Duration.ofSeconds(5),
+            Duration.ofSeconds(5), 2, 2, 2, 2, new SimpleMeterRegistry());
+
+        // När
+        String readUrl = guard.read(() -> url());
+        String writeUrl = guard.write(() -> url());
+        guard.destroy();
+
+        // Då
+        assertEquals("jdbc:h2:mem:lanes-read", readUrl);
+        assertEquals("jdbc:h2:mem:lanes-write", writeUrl);
+    }
+
+    @Test
+    void testLaneIsBoundPerThread() throws Exception {
+        // När
+        try (var executor = Executors.newSingleThreadExecutor()) {
+            Future<DatabaseLane> lane = executor.submit(DatabaseLane::current);
+
+            // Då
+            assertEquals(DatabaseLane.DEFAULT, lane.get());
+        }
+    }
+
+    @Test
+    void testStatementsGetTheRemainingDeadlineAsQueryTimeout() throws Exception {
+        // Givet
+        Deadline deadline = Deadline.after(Duration.ofMillis(2_500));
+        Deadline.bind(deadline);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            // Då - tre sekunder kvar avrundat uppåt, längre tidsgränser kapas
+            assertEquals(3, statement.getQueryTimeout());
+            statement.setQueryTimeout(60);
+            assertEquals(3, statement.getQueryTimeout());
+            statement.setQueryTimeout(1);
+            assertEquals(1, statement.getQueryTimeout());
+        } finally {
+            Deadline.bind(null);
+        }
+    }
+
+    @Test
+    void testPoolWaitIsCappedByDeadline() throws Exception {
+        // Givet - default-poolen har två anslutningar, båda upptagna
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            Deadline.bind(Deadline.after(Duration.ofMillis(200)));
+            long start = System.nanoTime();
+
+            // När / Då - väntan slutar vid deadline, inte efter poolens 30 sekunder
+            assertThrows(SQLException.class, dataSource::getConnection);
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2_000);
+        } finally {
+            Deadline.bind(null);
+        }
+    }
+
+    @Test
+    void testExpiredDeadlineCancelsRunningQuery() {
+        // Givet
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DatabaseGuard guard = new DatabaseGuard(5, Duration.ofSeconds(10), Duration.ofSeconds(30),
+            Duration.ofSeconds(30), 2, 2, 2, 2, meterRegistry);
+        Deadline.bind(Deadline.after(Duration.ofMillis(300)));
+        long start = System.nanoTime();
+
+        // När - en fråga som skulle ta minuter
+        try {
+            assertThrows(DeadlineExceededException.class, () -> guard.read(() -> {
+                try (Connection connection = dataSource.getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.executeQuery("SELECT SUM(X) FROM SYSTEM_RANGE(1, 100000000000)");
+                }
+                return null;
+            }));
+        } finally {
+            Deadline.bind(null);
+        }
+
+        // Då - frågan avbröts i databasen och lanetråden blev ledig
+        while (activeReads(meterRegistry) > 0 && System.nanoTime() - start < Duration.ofSeconds(5).toNanos()) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0.0, activeReads(meterRegistry));
+        assertEquals(1.0, meterRegistry.get("database.deadline.exceeded").tag("lane", "read").counter().count());
+        guard.destroy();
+    }
+
+    private static double activeReads(SimpleMeterRegistry meterRegistry) {
+        return meterRegistry.get("database.lane.active").tag("lane", "read").gauge().value();
+    }
+
+    private String url() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+
+    private static HikariDataSource pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + name);
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(2);
+        pool.setMinimumIdle(0);
+        return pool;
+    }
+}
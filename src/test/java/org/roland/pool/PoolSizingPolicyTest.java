@@ -0,0 +1,106 @@
+package org.roland.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class PoolSizingPolicyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PoolSizingPolicyTest.class);
+
+    private final PoolSizingPolicy policy = new PoolSizingPolicy(2, 40, 0.2, 5, 4);
+
+    @Test
+    void testGrowsTowardsLittlesLawDemandInBoundedSteps() {
+        // 300 req/s x 50 ms = 15 anslutningar, +20% = 18
+        PoolSizingDecision decision = policy.decide(new PoolSample(300, 50, 0, 10, 0, 10));
+
+        assertEquals(15.0, decision.demand(), 1e-9);
+        assertEquals(18, decision.targetSize());
+        assertEquals("littles-law", decision.reason());
+        assertTrue(decision.changed());
+
+        // Som mest en fördubbling per beslut
+        assertEquals(8, policy.decide(new PoolSample(300, 50, 0, 4, 0, 4)).targetSize());
+    }
+
+    @Test
+    void testGrowsWhenCallersQueueEvenIfThroughputLooksLow() {
+        PoolSizingDecision decision = policy.decide(new PoolSample(20, 10, 40, 4, 1, 4));
+
+        assertEquals(8, decision.targetSize());
+        assertEquals("queueing", decision.reason());
+    }
+
+    @Test
+    void testShrinksByHalfTheGap() {
+        assertEquals(11, policy.decide(new PoolSample(1, 5, 0, 0, 0, 20)).targetSize());
+        assertEquals(2, policy.decide(new PoolSample(0, 0, 0, 0, 0, 3)).targetSize());
+    }
+
+    @Test
+    void testHoldsWithinBounds() {
+        assertEquals(2, policy.decide(new PoolSample(0, 0, 0, 0, 0, 2)).targetSize());
+        assertEquals(40, policy.decide(new PoolSample(10_000, 100, 50, 40, 30, 40)).targetSize());
+        assertFalse(policy.decide(new PoolSample(100, 50, 0, 5, 0, 6)).changed());
+    }
+
+    /**
+     * Load-test scenario: a fluid model of a pool serving 40 ms queries
+     * through a quiet / spike / quiet traffic pattern. At most 200 callers
+     * (Tomcat's default thread count) can wait for a connection; the rest of
+     * the backlog is queued in front of the server. The adaptive pool
+     * should queue far less than a small static pool while holding far fewer
+     * connections than a static pool sized for the peak.
+     */
+    @Test
+    void testAdaptiveSizingBeatsStaticPoolsUnderSpike() {
+        SimulationResult small = simulate(null, 10);
+        SimulationResult large = simulate(null, 40);
+        SimulationResult adaptive = simulate(policy, 10);
+
+        log.info(String.format("Pool scenario (waiting request-seconds / connection-seconds): "
+            + "static-10 %.0f / %.0f, static-40 %.0f / %.0f, adaptive %.0f / %.0f (final size %d)",
+            small.waitSeconds, small.connectionSeconds, large.waitSeconds, large.connectionSeconds,
+            adaptive.waitSeconds, adaptive.connectionSeconds, adaptive.finalSize));
+
+        assertTrue(adaptive.waitSeconds < small.waitSeconds / 10, "adaptive should queue far less than static-10");
+        assertTrue(adaptive.connectionSeconds < large.connectionSeconds * 0.6, "adaptive should hold fewer connections");
+        assertTrue(adaptive.finalSize <= 4, "adaptive should shrink after the spike");
+    }
+
+    private record SimulationResult(double waitSeconds, double connectionSeconds, int finalSize) {
+    }
+
+    private static SimulationResult simulate(PoolSizingPolicy policy, int initialSize) {
+        double serviceSeconds = 0.040;
+        int size = initialSize;
+        double backlog = 0;
+        double waitSeconds = 0;
+        double connectionSeconds = 0;
+        double completedInInterval = 0;
+        double waitInInterval = 0;
+        for (int second = 0; second < 360; second++) {
+            double arrivals = second >= 120 && second < 240 ? 400 : 50;
+            double capacity = size / serviceSeconds;
+            double completed = Math.min(arrivals + backlog, capacity);
+            backlog = arrivals + backlog - completed;
+            double meanWait = backlog / capacity;
+            waitSeconds += backlog;
+            connectionSeconds += size;
+            completedInInterval += completed;
+            waitInInterval += meanWait;
+            if (policy != null && second % 10 == 9) {
+                PoolSample sample = new PoolSample(completedInInterval / 10, serviceSeconds * 1000,
+                    waitInInterval / 10 * 1000, (int) Math.min(size, completed * serviceSeconds), (int) Math.min(backlog, 200), size);
+                size = policy.decide(sample).targetSize();
+                completedInInterval = 0;
+                waitInInterval = 0;
+            }
+        }
+        return new SimulationResult(waitSeconds, connectionSeconds, size);
+    }
+}
@@ -0,0 +1,206 @@
+package org.roland.profiling;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roland.dto.ProfileResponse;
+import org.roland.dto.ProfileSummary;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jdk.jfr.consumer.RecordingFile;
+
+@SpringBootTest(properties = {
+    // MockMvc only reaches actuator when it shares the application's port
+    "management.server.port=",
+    "spring.datasource.url=jdbc:h2:mem:profiling;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "outbox.relay.enabled=false",
+    "access-log.enabled=false",
+    "snapshot.enabled=false",
+    "database.pool.adaptive.enabled=false",
+    "coherence.poll-interval=1h",
+    "coherence.prune-interval=1h",
+    "profiling.directory=target/profiling-test",
+    "profiling.max-duration=10s"
+})
+@AutoConfigureMockMvc
+class ProfilingEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    private Path directory;
+
+    /** The monitor the contention workload fights over, so it is easy to find in the summary. */
+    private static final class ContendedMonitor {
+    }
+
+    @Test
+    void testRecordingSummarizesTheRequestsItSawAndLeavesOutTheEnvironment() throws Exception {
+        // Givet
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 8, 0);
+        messageRepository.saveAll(IntStream.range(0, 20)
+            .mapToObj(i -> new Message("Profilerat meddelande " + i, start.plusMinutes(i)))
+            .toList());
+
+        // När
+        String started = mockMvc.perform(start("3s"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.status").value("RUNNING"))
+            .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readValue(started, ProfileResponse.class).id();
+        mockMvc.perform(start("1s"))
+            .andExpect(status().isConflict());
+        contend(new ContendedMonitor(), new ReentrantLock());
+        for (int i = 0; i < 50; i++) {
+            mockMvc.perform(get("/api/messages")).andExpect(status().isOk());
+        }
+        System.gc();
+        ProfileResponse finished = awaitFinished(id);
+
+        // Då
+        assertEquals("COMPLETED", finished.status(), () -> "error: " + finished.error());
+        ProfileSummary summary = finished.summary();
+        assertTrue(summary.executionSamples() > 0);
+        assertFalse(summary.hotMethods().isEmpty());
+        assertFalse(summary.allocationSites().isEmpty());
+        assertTrue(summary.gcPauses().collections() > 0);
+        assertTrue(summary.repositoryCalls().stream()
+            .anyMatch(call -> call.name().equals("MessageRepository.findByChannelIsNullOrderByTimestampDesc")),
+            summary.repositoryCalls()::toString);
+        assertTrue(summary.serialization().stream().anyMatch(write -> write.name().startsWith("json ")),
+            summary.serialization()::toString);
+        assertTrue(summary.lockContention().stream()
+            .anyMatch(lock -> lock.lockClass().equals(ContendedMonitor.class.getName())),
+            summary.lockContention()::toString);
+        assertTrue(summary.lockContention().stream()
+            .anyMatch(lock -> lock.lockClass().startsWith(ReentrantLock.class.getName())),
+            summary.lockContention()::toString);
+        mockMvc.perform(get("/actuator/profiling"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value(id))
+            .andExpect(jsonPath("$[0].recording").value("/actuator/profiling/" + id));
+        byte[] recording = mockMvc.perform(get("/actuator/profiling/" + id + "/jfr"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/octet-stream"))
+            .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(finished.recordingBytes(), recording.length);
+        assertEquals("FLR", new String(recording, 0, 3));
+        Path file = Files.write(directory.resolve("download.jfr"), recording);
+        assertTrue(RecordingFile.readAllEvents(file).stream()
+            .noneMatch(event -> JfrProfiler.SENSITIVE_EVENTS.contains(event.getEventType().getName())));
+        mockMvc.perform(start("1s"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    void testRejectsBadDurationsAndUnknownRecordings() throws Exception {
+        mockMvc.perform(start("1h"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").exists());
+        mockMvc.perform(start("0s"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/actuator/profiling/999"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/profiling/999/jfr"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/actuator/profiling/999/pdf"))
+            .andExpect(status().isNotFound());
+    }
+
+    private static MockHttpServletRequestBuilder start(String duration) {
+        return post("/actuator/profiling")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"duration\": \"" + duration + "\"}");
+    }
+
+    /** Two threads taking turns holding each lock for longer than the 20 ms the default settings record. */
+    private static void contend(Object monitor, ReentrantLock lock) throws InterruptedException {
+        inTwoThreads(() -> {
+            synchronized (monitor) {
+                sleep(40);
+            }
+        });
+        inTwoThreads(() -> {
+            lock.lock();
+            try {
+                sleep(40);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private static void inTwoThreads(Runnable work) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            threads.add(Thread.ofPlatform().name("contender-" + t).start(() -> {
+                for (int i = 0; i < 3; i++) {
+                    work.run();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ProfileResponse awaitFinished(long id) throws Exception {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            ProfileResponse run = objectMapper.readValue(mockMvc.perform(get("/actuator/profiling/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), ProfileResponse.class);
+            if (!"RUNNING".equals(run.status())) {
+                return run;
+            }
+            Thread.sleep(100);
+        }
+        return fail("Recording " + id + " did not finish");
+    }
+}
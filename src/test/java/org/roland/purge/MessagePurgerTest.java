@@ -0,0 +1,259 @@
+package org.roland.purge;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roland.analytics.MessageAnalytics;
+import org.roland.coherence.ChangeLog;
+import org.roland.dto.PurgeResponse;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.MessageQueryService;
+import org.roland.stats.MessageRateStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessagePurgerTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DatabaseGuard databaseGuard;
+    private MessageRateStats messageRateStats;
+    private MessageAnalytics messageAnalytics;
+    private MessagePurger purger;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        databaseGuard = new DatabaseGuard(
+            5, Duration.ofMinutes(1), Duration.ofSeconds(5), Duration.ofSeconds(5), 2, 2, 2, 2, meterRegistry);
+        messageRateStats = new MessageRateStats(messageRepository);
+        messageAnalytics = new MessageAnalytics(messageRepository, databaseGuard, meterRegistry, 1024, 4, 10, 10, 100,
+            false);
+        purger = purger(databaseGuard);
+    }
+
+    @AfterEach
+    void tearDown() {
+        purger.destroy();
+        messageAnalytics.destroy();
+        databaseGuard.destroy();
+        messageRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testPurgesByAgeInChunksAndKeepsCountsConsistent() throws Exception {
+        // Givet - sju gamla och tre nya meddelanden
+        List<Message> old = IntStream.range(0, 7).mapToObj(i -> save("gammal " + i, LocalDateTime.now().minusDays(2))).toList();
+        IntStream.range(0, 3).forEach(i -> save("ny " + i, LocalDateTime.now()));
+        messageRateStats.afterSingletonsInstantiated();
+        messageAnalytics.rebuild().join();
+        Long cachedId = old.get(0).getId();
+        messageRepository.findById(cachedId);
+        assertTrue(entityManagerFactory.getCache().contains(Message.class, cachedId));
+
+        // När
+        PurgeResponse purge = awaitFinished(purger.start(
+            new PurgeCriteria(LocalDateTime.now().minusDays(1), null), 3, null));
+
+        // Då
+        assertEquals("COMPLETED", purge.status());
+        assertEquals(7, purge.deleted());
+        assertEquals(3, purge.chunks());
+        assertEquals(1.0, purge.progress());
+        assertEquals(3, messageRepository.count());
+        assertTrue(messageRepository.findAll().stream().allMatch(message -> message.getContent().startsWith("ny")));
+        assertFalse(entityManagerFactory.getCache().contains(Message.class, cachedId));
+        assertTrue(messageRepository.findById(cachedId).isEmpty());
+        assertEquals(3, messageRateStats.snapshot().totalMessages());
+        assertEquals(3, messageAnalytics.snapshot().messagesSeen());
+        assertEquals(7.0, meterRegistry.get("messages.purged").counter().count());
+    }
+
+    @Test
+    void testContentMatchIsLiteral() throws Exception {
+        // Givet
+        save("100% spam", LocalDateTime.now());
+        save("1000 spam", LocalDateTime.now());
+        save("hej", LocalDateTime.now());
+
+        // När
+        PurgeResponse purge = awaitFinished(purger.start(new PurgeCriteria(null, "0% spam"), null, null));
+
+        // Då
+        assertEquals(1, purge.deleted());
+        assertEquals(List.of("1000 spam", "hej"),
+            messageRepository.findAll().stream().map(Message::getContent).sorted().toList());
+    }
+
+    @Test
+    void testCancelStopsAfterTheChunkInFlight() throws Exception {
+        // Givet
+        IntStream.range(0, 6).forEach(i -> save("spam " + i, LocalDateTime.now()));
+
+        // När - lång paus efter första chunken
+        PurgeResponse started = purger.start(new PurgeCriteria(null, "spam"), 2, Duration.ofSeconds(30));
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (purger.find(started.id()).orElseThrow().chunks() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        purger.cancel(started.id());
+        PurgeResponse purge = awaitFinished(started);
+
+        // Då
+        assertEquals("CANCELLED", purge.status());
+        assertEquals(2, purge.deleted());
+        assertEquals(4, messageRepository.count());
+        assertTrue(purge.progress() > 0 && purge.progress() < 1);
+    }
+
+    @Test
+    void testSparseMatchesAreFoundOneKeyWindowAtATime() throws Exception {
+        // Givet - tio meddelanden där bara det sista matchar
+        IntStream.range(0, 9).forEach(i -> save("hej " + i, LocalDateTime.now()));
+        save("spam sist", LocalDateTime.now());
+        MessagePurger windowed = purger(databaseGuard, 3, Duration.ofSeconds(30));
+
+        try {
+            // När - fönster om tre id:n och lång paus mellan chunkar
+            PurgeResponse purge = awaitFinished(windowed,
+                windowed.start(new PurgeCriteria(null, "spam"), 2, null));
+
+            // Då - fyra fönster, och de tomma går vidare utan paus
+            assertEquals("COMPLETED", purge.status());
+            assertEquals(1, purge.deleted());
+            assertEquals(4, purge.chunks());
+            assertEquals(9, messageRepository.count());
+        } finally {
+            windowed.destroy();
+        }
+    }
+
+    @Test
+    void testNewPurgeIsRefusedWhileOneIsQueuedOrRunning() throws Exception {
+        // Givet - en rensning som väntar länge efter första chunken
+        IntStream.range(0, 4).forEach(i -> save("spam " + i, LocalDateTime.now()));
+        PurgeResponse running = purger.start(new PurgeCriteria(null, "spam"), 2, Duration.ofSeconds(30));
+
+        // När / Då
+        assertThrows(IllegalStateException.class, () -> purger.start(new PurgeCriteria(null, "hej"), null, null));
+        purger.cancel(running.id());
+        awaitFinished(running);
+        assertEquals("COMPLETED", awaitFinished(purger.start(new PurgeCriteria(null, "hej"), null, null)).status());
+    }
+
+    @Test
+    void testHistoryKeepsOnlyRecentFinishedPurges() throws Exception {
+        // När
+        PurgeResponse first = awaitFinished(purger.start(new PurgeCriteria(null, "x"), null, null));
+        awaitFinished(purger.start(new PurgeCriteria(null, "y"), null, null));
+        PurgeResponse third = awaitFinished(purger.start(new PurgeCriteria(null, "z"), null, null));
+
+        // Då
+        assertTrue(purger.find(first.id()).isEmpty());
+        assertEquals(2, purger.list().size());
+        assertEquals(third.id(), purger.list().get(0).id());
+    }
+
+    @Test
+    void testChunksWaitTheirTurnOnTheWriteLane() throws Exception {
+        // Givet - skrivfilens enda plats är upptagen av en annan skrivning
+        save("spam", LocalDateTime.now());
+        SimpleMeterRegistry laneRegistry = new SimpleMeterRegistry();
+        DatabaseGuard busyGuard = new DatabaseGuard(
+            5, Duration.ofMinutes(1), Duration.ofSeconds(5), Duration.ofSeconds(5), 2, 2, 1, 0, laneRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = Thread.ofPlatform().start(() -> busyGuard.write(() -> {
+            release.await();
+            return 1;
+        }));
+        while (laneRegistry.get("database.lane.active").tag("lane", "write").gauge().value() == 0) {
+            Thread.onSpinWait();
+        }
+        MessagePurger busyPurger = purger(busyGuard);
+
+        try {
+            // När
+            PurgeResponse purge = awaitFinished(busyPurger, busyPurger.start(new PurgeCriteria(null, "spam"), null, null));
+
+            // Då - rensningen går inte förbi skrivfilen
+            assertEquals("FAILED", purge.status());
+            assertEquals(0, purge.deleted());
+            assertEquals(1, messageRepository.count());
+            assertEquals(1.0, laneRegistry.get("database.lane.rejected").tag("lane", "write").counter().count());
+        } finally {
+            release.countDown();
+            writer.join();
+            busyPurger.destroy();
+            busyGuard.destroy();
+        }
+    }
+
+    private MessagePurger purger(DatabaseGuard guard) {
+        return purger(guard, 1000, Duration.ZERO);
+    }
+
+    private MessagePurger purger(DatabaseGuard guard, int keyWindow, Duration pause) {
+        return new MessagePurger(new PurgeStore(dataSource, transactionManager,
+            new ChangeLog(dataSource, false, "test"), Duration.ofSeconds(5)),
+            guard, messageRateStats, new MessageQueryService(messageRepository, guard, meterRegistry),
+            messageAnalytics, entityManagerFactory, meterRegistry, 1000, keyWindow, pause, 2, true,
+            Clock.systemDefaultZone());
+    }
+
+    private Message save(String content, LocalDateTime timestamp) {
+        Message message = new Message(content);
+        message.setTimestamp(timestamp);
+        return messageRepository.save(message);
+    }
+
+    private PurgeResponse awaitFinished(PurgeResponse purge) throws InterruptedException {
+        return awaitFinished(purger, purge);
+    }
+
+    private static PurgeResponse awaitFinished(MessagePurger purger, PurgeResponse purge) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (System.nanoTime() < deadline) {
+            PurgeResponse current = purger.find(purge.id()).orElseThrow();
+            if (PurgeStatus.valueOf(current.status()).finished()) {
+                return current;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Purge " + purge.id() + " did not finish");
+    }
+}
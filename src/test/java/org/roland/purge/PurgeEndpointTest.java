@@ -0,0 +1,114 @@
+package org.roland.purge;
+
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.roland.dto.PurgeResponse;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:purge-endpoint;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "outbox.relay.enabled=false",
+    "access-log.enabled=false",
+    "snapshot.enabled=false",
+    "database.pool.adaptive.enabled=false",
+    "coherence.poll-interval=1h",
+    "coherence.prune-interval=1h",
+    "purge.pause=0ms",
+    // MockMvc only reaches actuator when it shares the application's port
+    "management.server.port="
+})
+@AutoConfigureMockMvc
+class PurgeEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testPurgeRunsThroughActuator() throws Exception {
+        // Givet
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 8, 0);
+        messageRepository.saveAll(IntStream.range(0, 10)
+            .mapToObj(i -> new Message((i < 4 ? "gammal " : "ny ") + i, start.plusMinutes(i)))
+            .toList());
+
+        // När
+        String started = mockMvc.perform(purge("{\"olderThan\": \"2026-01-01T08:04:00\", \"chunkSize\": 3}"))
+            .andExpect(status().isAccepted())
+            .andReturn().getResponse().getContentAsString();
+        PurgeResponse finished = awaitFinished(objectMapper.readValue(started, PurgeResponse.class).id());
+
+        // Då
+        assertEquals("COMPLETED", finished.status(), () -> "error: " + finished.error());
+        assertEquals(4, finished.deleted());
+        mockMvc.perform(get("/actuator/purges"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value(finished.id()));
+        mockMvc.perform(delete("/actuator/purges/" + finished.id()))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.status").value("COMPLETED"));
+    }
+
+    @Test
+    void testRejectsMissingCriteriaAndUnknownPurges() throws Exception {
+        mockMvc.perform(purge("{\"chunkSize\": 10}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Give olderThan and/or contentContains"));
+        mockMvc.perform(purge("{\"contentContains\": \"x\", \"chunkSize\": 0}"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/actuator/purges/999"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/actuator/purges/999"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/messages/purges")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"contentContains\": \"x\"}"))
+            .andExpect(status().is4xxClientError());
+    }
+
+    private static MockHttpServletRequestBuilder purge(String body) {
+        return post("/actuator/purges").contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    private PurgeResponse awaitFinished(long id) throws Exception {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            PurgeResponse purge = objectMapper.readValue(mockMvc.perform(get("/actuator/purges/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), PurgeResponse.class);
+            if (!"QUEUED".equals(purge.status()) && !"RUNNING".equals(purge.status())) {
+                return purge;
+            }
+            Thread.sleep(20);
+        }
+        return fail("Purge " + id + " did not finish");
+    }
+}
@@ -0,0 +1,191 @@
+package org.roland.reactive;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.roland.DemoApplication;
+import org.roland.SeparateCacheManager;
+import org.roland.dto.MessageResponse;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@code GET /api/messages} on the blocking stack (Spring MVC, JPA, Tomcat)
+ * and on the {@code reactive} profile (WebFlux, R2DBC, Netty), both started
+ * against one embedded database and hit by many concurrent clients.
+ * Throughput, latency and the number of server threads each stack needed are
+ * printed, not asserted; the responses have to match. Time budgets are
+ * lifted on both, so a loaded machine shows up as latency rather than as
+ * shed requests. The H2 R2DBC driver runs queries on the calling thread, so
+ * here the reactive stack pays for blocking on its event loop, which the
+ * MySQL driver does not do.
+ */
+@Tag("benchmark")
+class ReactiveMessageBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveMessageBenchmarkTest.class);
+
+    private static final int MESSAGES = 100;
+    private static final int CLIENTS = 100;
+    private static final int WARMUP_REQUESTS = 300;
+    private static final int REQUESTS_PER_CLIENT = 10;
+    private static final TypeReference<List<MessageResponse>> LIST = new TypeReference<>() { };
+
+    private static ConfigurableApplicationContext blocking;
+    private static ConfigurableApplicationContext reactive;
+    private static HttpClient httpClient;
+
+    @BeforeAll
+    static void startBothStacks() {
+        blocking = start(new SpringApplicationBuilder(DemoApplication.class, SeparateCacheManager.class));
+        reactive = start(new SpringApplicationBuilder(DemoApplication.class, SeparateCacheManager.class)
+            .profiles("reactive"));
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 8, 0);
+        blocking.getBean(MessageRepository.class).saveAll(IntStream.range(0, MESSAGES)
+            .mapToObj(i -> new Message("Meddelande nummer " + i + " från benchmarken", start.plusSeconds(i * 37L)))
+            .toList());
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterAll
+    static void stopBothStacks() {
+        httpClient.close();
+        reactive.close();
+        blocking.close();
+    }
+
+    @Test
+    void testBothStacksServeTheSameListUnderConcurrency() throws Exception {
+        // Givet
+        ObjectMapper mapper = blocking.getBean(ObjectMapper.class);
+        URI blockingUri = uri(blocking);
+        URI reactiveUri = uri(reactive);
+
+        // När
+        Result blockingResult = run(blockingUri, "http-nio-");
+        Result reactiveResult = run(reactiveUri, "reactor-http-");
+
+        // Då
+        List<MessageResponse> expected = mapper.readValue(get(blockingUri).body(), LIST);
+        assertEquals(MESSAGES, expected.size());
+        assertEquals(expected, mapper.readValue(get(reactiveUri).body(), LIST));
+        blockingResult.print("mvc + jpa");
+        reactiveResult.print("webflux + r2dbc");
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT, blockingResult.ok());
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT, reactiveResult.ok());
+    }
+
+    private record Result(int ok, double requestsPerSecond, long[] sortedNanos, long serverThreads) {
+
+        void print(String stack) {
+            log.info(String.format(
+                "GET /api/messages %-16s %6.0f req/s, p50 %6.2f ms, p99 %6.2f ms, %3d server threads",
+                stack, requestsPerSecond, percentile(0.50), percentile(0.99), serverThreads));
+        }
+
+        private double percentile(double p) {
+            return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1)] / 1e6;
+        }
+    }
+
+    /** {@value #CLIENTS} clients sending {@value #REQUESTS_PER_CLIENT} requests each, after a warm-up. */
+    private static Result run(URI uri, String serverThreadPrefix) throws Exception {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Callable<long[]>> warmup = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                warmup.add(() -> send(uri, WARMUP_REQUESTS / CLIENTS));
+            }
+            for (Future<long[]> future : clients.invokeAll(warmup)) {
+                future.get();
+            }
+            List<Callable<long[]>> measured = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                measured.add(() -> send(uri, REQUESTS_PER_CLIENT));
+            }
+            long start = System.nanoTime();
+            List<Future<long[]>> futures = clients.invokeAll(measured, 2, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - start;
+            long[] nanos = new long[CLIENTS * REQUESTS_PER_CLIENT];
+            int ok = 0;
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get()) {
+                    if (latency > 0) {
+                        nanos[ok++] = latency;
+                    }
+                }
+            }
+            long[] sorted = Arrays.copyOf(nanos, Math.max(ok, 1));
+            Arrays.sort(sorted);
+            long threads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(serverThreadPrefix))
+                .count();
+            return new Result(ok, ok / (elapsed / 1e9), sorted, threads);
+        }
+    }
+
+    /** @return each request's latency in nanoseconds, or 0 for a non-200 response */
+    private static long[] send(URI uri, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            HttpResponse<byte[]> response = httpClient.send(HttpRequest.newBuilder(uri).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+            latencies[i] = response.statusCode() == 200 ? System.nanoTime() - start : 0;
+        }
+        return latencies;
+    }
+
+    private static HttpResponse<String> get(URI uri) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static URI uri(ConfigurableApplicationContext context) {
+        return URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+            + "/api/messages");
+    }
+
+    private static ConfigurableApplicationContext start(SpringApplicationBuilder builder) {
+        return builder.run("--server.port=0",
+            "--management.server.port=0",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+            "--spring.jpa.hibernate.ddl-auto=update",
+            "--spring.r2dbc.url=r2dbc:h2:mem:///benchmark?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+            "--spring.main.banner-mode=off",
+            "--outbox.relay.enabled=false",
+            "--access-log.enabled=false",
+            "--snapshot.enabled=false",
+            "--database.pool.adaptive.enabled=false",
+            "--coherence.poll-interval=1h",
+            "--coherence.prune-interval=1h",
+            "--request-deadline.enabled=false",
+            "--database.guard.read-timeout=1m");
+    }
+}
@@ -0,0 +1,154 @@
+package org.roland.reactive;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roland.dto.MessageResponse;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.roland.service.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.r2dbc.url=r2dbc:h2:mem:///reactive?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "outbox.relay.enabled=false",
+    "access-log.enabled=false",
+    "snapshot.enabled=false",
+    "database.pool.adaptive.enabled=false",
+    "coherence.poll-interval=1h",
+    "coherence.prune-interval=1h"
+})
+@ActiveProfiles("reactive")
+class ReactiveMessageRoutesTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReactiveMessageHandler handler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Message oldest;
+    private Message newest;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime now = LocalDateTime.now().withNano(123_456_000);
+        oldest = messageRepository.save(new Message("första", now.minusMinutes(2)));
+        messageRepository.save(new Message("andra", "kanal", now.minusMinutes(1)));
+        newest = messageRepository.save(new Message("tredje", now));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM message_changes");
+        messageRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void testListIsServedFromR2dbcNewestFirst() {
+        // Givet
+        double rowsBefore = meterRegistry.get("messages.reactive.rows").counter().count();
+
+        // När
+        List<MessageResponse> messages = webTestClient.get().uri("/api/messages")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBodyList(MessageResponse.class)
+            .returnResult()
+            .getResponseBody();
+
+        // Då - samma innehåll och ordning som det blockerande API:t, via R2DBC, utan kanalmeddelandet
+        assertEquals(messageRepository.findByChannelIsNullOrderByTimestampDesc().stream().map(MessageResponse::fromEntity).toList(),
+            messages);
+        assertEquals(newest.getId(), messages.get(0).id());
+        assertEquals(List.of("tredje", "första"), messages.stream().map(MessageResponse::content).toList());
+        assertEquals(2, meterRegistry.get("messages.reactive.rows").counter().count() - rowsBefore);
+        assertEquals(CircuitBreaker.Status.CLOSED, handler.breakerStatus());
+    }
+
+    @Test
+    void testListAsNdjsonWritesOneMessagePerLine() {
+        // När
+        String body = webTestClient.get().uri("/api/messages")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        // Då
+        String[] lines = body.strip().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"tredje\""), lines[0]);
+        assertTrue(lines[1].contains("\"första\""), lines[1]);
+    }
+
+    @Test
+    void testGetById() {
+        // När / Då
+        webTestClient.get().uri("/api/messages/{id}", oldest.getId())
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(MessageResponse.class)
+            .isEqualTo(MessageResponse.fromEntity(oldest));
+        webTestClient.get().uri("/api/messages/{id}", newest.getId() + 1000)
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testOtherEndpointsAreStillServedByTheControllers() {
+        // När - skrivningen går genom SimpleController och outboxen
+        webTestClient.post().uri("/api/messages")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"content\":\"skrivet reaktivt\"}")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.content").isEqualTo("skrivet reaktivt");
+
+        // Då - och syns i den reaktiva listan; stats matchas inte som ett id
+        webTestClient.get().uri("/api/messages")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$[0].content").isEqualTo("skrivet reaktivt");
+        webTestClient.get().uri("/api/messages/stats")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.totalMessages").isNumber();
+        webTestClient.post().uri("/api/messages")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"content\":\"\"}")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+}
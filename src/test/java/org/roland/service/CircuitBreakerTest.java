@@ -0,0 +1,84 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+    private AtomicLong now;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong();
+        breaker = new CircuitBreaker(3, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.Status.CLOSED, breaker.status());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.Status.OPEN, breaker.status());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void testHalfOpenAllowsSingleProbeAndRecovers() {
+        // Givet
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // När / Då
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.Status.HALF_OPEN, breaker.status());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.Status.CLOSED, breaker.status());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void testFailedProbeReopens() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.Status.OPEN, breaker.status());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void testAbandonedProbeLetsNextCallProbe() {
+        openBreaker();
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onAbandoned();
+
+        assertEquals(CircuitBreaker.Status.OPEN, breaker.status());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.Status.HALF_OPEN, breaker.status());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+    }
+}
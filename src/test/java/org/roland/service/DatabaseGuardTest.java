@@ -0,0 +1,261 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class DatabaseGuardTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DatabaseGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new DatabaseGuard(2, Duration.ofMinutes(1), Duration.ofMillis(100), Duration.ofMillis(100), 2, 0, 2, 0, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        guard.destroy();
+    }
+
+    @Test
+    void testSlowCallExceedsBudget() {
+        // När
+        long start = System.nanoTime();
+        assertThrows(DatabaseUnavailableException.class, () -> guard.read(() -> {
+            Thread.sleep(5_000);
+            return 1;
+        }));
+
+        // Då
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2_000);
+        assertEquals(1.0, meterRegistry.get("database.guard.timeouts").counter().count());
+    }
+
+    @Test
+    void testRequestDeadlineShorterThanBudgetDoesNotTripBreaker() {
+        // När - klienten ger bara 50 ms, guardens budget är 100 ms
+        try {
+            for (int i = 0; i < 3; i++) {
+                Deadline.bind(Deadline.after(Duration.ofMillis(50)));
+                assertThrows(DeadlineExceededException.class, () -> guard.read(() -> {
+                    Thread.sleep(5_000);
+                    return 1;
+                }));
+            }
+        } finally {
+            Deadline.bind(null);
+        }
+
+        // Då
+        assertEquals(CircuitBreaker.Status.CLOSED, guard.status());
+        assertEquals(3.0, meterRegistry.get("database.deadline.exceeded").tag("lane", "read").counter().count());
+        assertEquals(0.0, meterRegistry.get("database.guard.timeouts").counter().count());
+    }
+
+    @Test
+    void testExpiredDeadlineSkipsTheCall() {
+        // Givet
+        AtomicInteger calls = new AtomicInteger();
+        Deadline expired = Deadline.after(Duration.ZERO);
+
+        // När / Då
+        assertThrows(DeadlineExceededException.class,
+            () -> Deadline.supplyWithin(expired, () -> guard.write(calls::incrementAndGet)));
+        assertEquals(0, calls.get());
+        assertEquals(1.0, meterRegistry.get("database.deadline.exceeded").tag("lane", "write").counter().count());
+    }
+
+    @Test
+    void testLaneThreadRunsUnderTheCallDeadline() {
+        // När
+        Deadline onLane = Deadline.supplyWithin(Deadline.after(Duration.ofSeconds(30)), () -> guard.read(Deadline::current));
+
+        // Då - budgeten på 100 ms är kortare än klientens 30 s
+        assertTrue(onLane.remaining().toMillis() <= 100);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void testOpenBreakerFailsFastForWrites() {
+        // Givet
+        for (int i = 0; i < 2; i++) {
+            assertThrows(DatabaseUnavailableException.class, () -> guard.read(() -> {
+                throw new DataAccessResourceFailureException("down");
+            }));
+        }
+
+        // När / Då
+        assertEquals(CircuitBreaker.Status.OPEN, guard.status());
+        assertThrows(DatabaseUnavailableException.class, () -> guard.write(() -> "sparat"));
+        assertEquals(1.0, meterRegistry.get("database.guard.rejected").counter().count());
+    }
+
+    @Test
+    void testNonAvailabilityErrorsPassThroughWithoutTrippingBreaker() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(DataIntegrityViolationException.class, () -> guard.write(() -> {
+                throw new DataIntegrityViolationException("duplicate");
+            }));
+        }
+
+        assertEquals(CircuitBreaker.Status.CLOSED, guard.status());
+        assertEquals("ok", guard.read(() -> "ok"));
+    }
+
+    @Test
+    void testInterruptedProbeLetsTheNextCallProbe() throws Exception {
+        // Givet - brytaren öppnas och öppettiden har gått ut
+        DatabaseGuard probeGuard = new DatabaseGuard(
+            1, Duration.ofMillis(20), Duration.ofSeconds(10), Duration.ofSeconds(10), 2, 0, 1, 0, meterRegistry);
+        assertThrows(DatabaseUnavailableException.class, () -> probeGuard.read(() -> {
+            throw new DataAccessResourceFailureException("down");
+        }));
+        Thread.sleep(50);
+        CountDownLatch probing = new CountDownLatch(1);
+        Thread prober = Thread.ofPlatform().start(() -> assertThrows(DatabaseUnavailableException.class,
+            () -> probeGuard.read(() -> {
+                probing.countDown();
+                Thread.sleep(10_000);
+                return 1;
+            })));
+        probing.await();
+
+        // När - anroparen som provar avbryts
+        prober.interrupt();
+        prober.join();
+
+        // Då - brytaren väntar inte på provet för evigt
+        assertEquals(CircuitBreaker.Status.OPEN, probeGuard.status());
+        assertEquals("ok", probeGuard.read(() -> "ok"));
+        assertEquals(CircuitBreaker.Status.CLOSED, probeGuard.status());
+        probeGuard.destroy();
+    }
+
+    @Test
+    void testSaturatedPoolRejectsImmediately() throws Exception {
+        // Givet
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseGuard slowGuard = new DatabaseGuard(
+            10, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(10), 1, 0, 1, 0, meterRegistry);
+        Thread holder = Thread.ofPlatform().start(() -> slowGuard.read(() -> {
+            release.await();
+            return 1;
+        }));
+        while (slowGuard.activeCalls() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // När / Då
+        assertThrows(DatabaseUnavailableException.class, () -> slowGuard.read(() -> 2));
+        assertEquals(1.0, meterRegistry.get("database.lane.rejected").tag("lane", "read").counter().count());
+        release.countDown();
+        holder.join();
+        slowGuard.destroy();
+    }
+
+    @Test
+    void testSaturatedReadLaneDoesNotBlockWrites() throws Exception {
+        // Givet
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseGuard laneGuard = new DatabaseGuard(
+            10, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(10), 1, 1, 1, 0, meterRegistry);
+        Thread holder = Thread.ofPlatform().start(() -> laneGuard.read(() -> {
+            release.await();
+            return 1;
+        }));
+        while (laneGuard.activeCalls() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // När
+        DatabaseLane writeLane = laneGuard.write(DatabaseLane::current);
+
+        // Då
+        assertEquals(DatabaseLane.WRITE, writeLane);
+        assertEquals(DatabaseLane.DEFAULT, DatabaseLane.current());
+        release.countDown();
+        holder.join();
+        laneGuard.destroy();
+    }
+
+    @Test
+    void testFullReadLaneDoesNotOpenTheBreaker() throws Exception {
+        // Givet - brytaren öppnas efter ett enda fel, läsfilen har en tråd
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseGuard laneGuard = new DatabaseGuard(
+            1, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofSeconds(10), 1, 0, 1, 0, meterRegistry);
+        Thread holder = Thread.ofPlatform().start(() -> laneGuard.read(() -> {
+            release.await();
+            return 1;
+        }));
+        while (laneGuard.activeCalls() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // När
+        for (int i = 0; i < 3; i++) {
+            assertThrows(DatabaseUnavailableException.class, () -> laneGuard.read(() -> 2));
+        }
+
+        // Då - avvisade läsningar stänger inte ute skrivningar
+        assertEquals(CircuitBreaker.Status.CLOSED, laneGuard.status());
+        assertEquals("sparat", laneGuard.write(() -> "sparat"));
+        release.countDown();
+        holder.join();
+        laneGuard.destroy();
+    }
+
+    @Test
+    void testReadRunsOnReadLaneThread() {
+        // När
+        DatabaseLane lane = guard.read(DatabaseLane::current);
+
+        // Då
+        assertEquals(DatabaseLane.READ, lane);
+        assertEquals(0.0, meterRegistry.get("database.lane.queued").tag("lane", "read").gauge().value());
+    }
+
+    @Test
+    void testTimedOutQueuedCallFreesItsSlot() throws Exception {
+        // Givet - skrivfilen har en tråd och en köplats, och tråden sitter fast
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseGuard queuedGuard = new DatabaseGuard(
+            10, Duration.ofMinutes(1), Duration.ofSeconds(10), Duration.ofMillis(100), 1, 1, 1, 1, meterRegistry);
+        assertThrows(DatabaseUnavailableException.class, () -> queuedGuard.write(() -> {
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    // simulerar ett JDBC-anrop som inte går att avbryta
+                }
+            }
+            return 1;
+        }));
+
+        // När - köade skrivningar når sin tidsgräns innan de körs
+        for (int i = 0; i < 3; i++) {
+            assertThrows(DatabaseUnavailableException.class, () -> queuedGuard.write(() -> 2));
+        }
+
+        // Då - köplatsen frigjordes varje gång, inget avvisades
+        assertEquals(0.0, meterRegistry.get("database.lane.rejected").tag("lane", "write").counter().count());
+        release.countDown();
+        assertEquals(3, queuedGuard.write(() -> 3));
+        queuedGuard.destroy();
+    }
+}
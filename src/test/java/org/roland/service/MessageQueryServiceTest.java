@@ -0,0 +1,113 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import static org.mockito.Mockito.when;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MessageQueryServiceTest {
+
+    private MessageRepository messageRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private DatabaseGuard databaseGuard;
+    private MessageQueryService service;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = Mockito.mock(MessageRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        databaseGuard = new DatabaseGuard(
+            2, Duration.ofMinutes(1), Duration.ofSeconds(1), Duration.ofSeconds(1), 4, 8, 4, 8, meterRegistry);
+        service = new MessageQueryService(messageRepository, databaseGuard, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseGuard.destroy();
+    }
+
+    @Test
+    void testFreshReadUpdatesSnapshot() {
+        List<Message> messages = List.of(new Message("Hej"));
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc()).thenReturn(messages);
+
+        ReadResult<List<Message>> result = service.findAllNewestFirst();
+
+        assertSame(messages, result.value());
+        assertFalse(result.stale());
+        assertEquals(1.0, meterRegistry.get("messages.reads.executed")
+            .tag("query", "findByChannelIsNullOrderByTimestampDesc").functionCounter().count());
+    }
+
+    @Test
+    void testServesLastGoodCountWhileBreakerIsOpen() {
+        // Givet
+        when(messageRepository.countByChannelIsNull())
+            .thenReturn(7L)
+            .thenThrow(new DataAccessResourceFailureException("down"));
+        service.count();
+
+        // När - två fel öppnar brytaren, det tredje anropet avvisas direkt
+        ReadResult<Long> first = service.count();
+        ReadResult<Long> second = service.count();
+        ReadResult<Long> third = service.count();
+
+        // Då
+        assertEquals(CircuitBreaker.Status.OPEN, databaseGuard.status());
+        for (ReadResult<Long> result : List.of(first, second, third)) {
+            assertTrue(result.stale());
+            assertEquals(7L, result.value());
+        }
+        Mockito.verify(messageRepository, Mockito.times(3)).countByChannelIsNull();
+        assertEquals(3.0, meterRegistry.get("messages.reads.stale").counter().count());
+    }
+
+    @Test
+    void testForgottenMessagesDropOutOfStaleSnapshots() {
+        // Givet
+        Message kept = new Message("kvar");
+        kept.setId(1L);
+        Message purged = new Message("raderad");
+        purged.setId(2L);
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc())
+            .thenReturn(List.of(purged, kept))
+            .thenThrow(new DataAccessResourceFailureException("down"));
+        when(messageRepository.countByChannelIsNull())
+            .thenReturn(2L)
+            .thenThrow(new DataAccessResourceFailureException("down"));
+        service.findAllNewestFirst();
+        service.count();
+
+        // När
+        service.forget(Set.of(2L));
+
+        // Då
+        ReadResult<List<Message>> list = service.findAllNewestFirst();
+        assertTrue(list.stale());
+        assertEquals(List.of(kept), list.value());
+        assertEquals(1L, service.count().value());
+    }
+
+    @Test
+    void testFailsWhenNoSnapshotExists() {
+        when(messageRepository.findByChannelIsNullOrderByTimestampDesc())
+            .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThrows(DatabaseUnavailableException.class, () -> service.findAllNewestFirst());
+    }
+}
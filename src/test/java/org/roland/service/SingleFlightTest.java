@@ -0,0 +1,124 @@
+package org.roland.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    private final ExecutorService loaders = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        loaders.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallersShareOneExecution() throws Exception {
+        // Givet
+        SingleFlight<String, List<String>> flight = new SingleFlight<>(loaders);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> result = List.of("ett", "två");
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        // När
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> flight.execute("messages", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return result;
+            })));
+        }
+        while (flight.coalescedCount() < callers - 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        // Då
+        for (Future<List<String>> future : futures) {
+            assertSame(result, future.get());
+        }
+        executor.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.executedCount());
+        assertEquals(callers - 1, flight.coalescedCount());
+    }
+
+    @Test
+    void testSequentialCallsAreNotCached() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(loaders);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, flight.execute("count", loads::incrementAndGet));
+        assertEquals(2, flight.execute("count", loads::incrementAndGet));
+        assertEquals(0, flight.coalescedCount());
+    }
+
+    @Test
+    void testFailureIsPropagatedAndKeyReleased() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(loaders);
+
+        assertThrows(IllegalStateException.class, () -> flight.execute("count", () -> {
+            throw new IllegalStateException("db down");
+        }));
+        assertEquals(3, flight.execute("count", () -> 3));
+    }
+
+    @Test
+    void testEachCallerWaitsOnlyForItsOwnDeadline() throws Exception {
+        // Givet - den första anroparen har bara 20 ms kvar
+        SingleFlight<String, String> flight = new SingleFlight<>(loaders);
+        CountDownLatch release = new CountDownLatch(1);
+        Deadline[] loaderDeadline = new Deadline[1];
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Future<?> impatient = callers.submit(() -> Deadline.supplyWithin(Deadline.after(Duration.ofMillis(20)),
+            () -> flight.execute("messages", () -> {
+                loaderDeadline[0] = Deadline.current();
+                await(release);
+                return "resultat";
+            })));
+        while (flight.executedCount() == 0) {
+            Thread.onSpinWait();
+        }
+        Future<String> patient = callers.submit(() -> flight.execute("messages", () -> "eget anrop"));
+        while (flight.coalescedCount() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // När - den otåliga anroparen ger upp innan frågan är klar
+        ExecutionException timedOut = assertThrows(ExecutionException.class, impatient::get);
+        release.countDown();
+
+        // Då - den delade frågan kördes utan anroparens deadline och räcker åt den andra
+        assertInstanceOf(DeadlineExceededException.class, timedOut.getCause());
+        assertEquals("resultat", patient.get());
+        assertNull(loaderDeadline[0]);
+        assertEquals(1, flight.executedCount());
+        callers.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
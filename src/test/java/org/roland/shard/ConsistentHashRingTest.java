@@ -0,0 +1,64 @@
+package org.roland.shard;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 20_000;
+
+    @Test
+    void testKeysSpreadEvenly() {
+        // Givet
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a", "b", "c", "d"), Function.identity(), 128);
+
+        // När
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.nodeFor("channel-" + i), 1, Integer::sum);
+        }
+
+        // Då - varje nod får ungefär en fjärdedel
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertTrue(Math.abs(count - KEYS / 4) < KEYS / 4 * 0.25, "count " + count));
+    }
+
+    @Test
+    void testAddingNodeMovesOnlyItsShare() {
+        // Givet
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(List.of("a", "b", "c"), Function.identity(), 128);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(List.of("a", "b", "c", "d"), Function.identity(), 128);
+
+        // När
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "channel-" + i;
+            String owner = after.nodeFor(key);
+            if (!owner.equals(before.nodeFor(key))) {
+                moved++;
+                assertEquals("d", owner);
+            }
+        }
+
+        // Då - ungefär 1/4 av nycklarna flyttas, alla till den nya noden
+        assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.35, "moved " + moved);
+    }
+
+    @Test
+    void testRoutingIsStable() {
+        // Givet
+        ConsistentHashRing<String> first = new ConsistentHashRing<>(List.of("a", "b"), Function.identity(), 16);
+        ConsistentHashRing<String> second = new ConsistentHashRing<>(List.of("b", "a"), Function.identity(), 16);
+
+        // När / Då
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(first.nodeFor("k" + i), second.nodeFor("k" + i));
+        }
+    }
+}
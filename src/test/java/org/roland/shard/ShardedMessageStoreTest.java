@@ -0,0 +1,152 @@
+package org.roland.shard;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roland.model.Message;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+class ShardedMessageStoreTest {
+
+    private List<HikariDataSource> dataSources;
+    private ShardedMessageStore store;
+
+    @BeforeEach
+    void setUp() {
+        dataSources = IntStream.range(0, 3).mapToObj(i -> shardDataSource("shard-" + i)).toList();
+        List<MessageShard> shards = IntStream.range(0, 3)
+            .mapToObj(i -> new MessageShard("shard-" + i, dataSources.get(i), Duration.ofSeconds(2)))
+            .toList();
+        store = new ShardedMessageStore(shards, 64, dataSources);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (DataSource dataSource : dataSources) {
+            new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+        }
+        store.destroy();
+    }
+
+    @Test
+    void testEachChannelLivesOnOneShard() {
+        // Givet
+        List<String> channels = IntStream.range(0, 30).mapToObj(i -> "kanal-" + i).toList();
+
+        // När
+        channels.forEach(channel -> store.save(channel, "hej " + channel, LocalDateTime.now()));
+
+        // Då - varje kanal finns bara på sin shard, och alla shards används
+        for (String channel : channels) {
+            String owner = store.shardFor(channel).name();
+            for (int i = 0; i < dataSources.size(); i++) {
+                Integer rows = new JdbcTemplate(dataSources.get(i))
+                    .queryForObject("SELECT COUNT(*) FROM messages WHERE channel = ?", Integer.class, channel);
+                assertEquals(owner.equals("shard-" + i) ? 1 : 0, rows);
+            }
+        }
+        Set<String> used = channels.stream().map(channel -> store.shardFor(channel).name()).collect(Collectors.toSet());
+        assertEquals(Set.copyOf(store.shardNames()), used);
+        assertEquals(List.of("hej kanal-7"), store.findByChannel("kanal-7", 10).stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void testScatterGatherMergesNewestFirst() {
+        // Givet
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 8, 0);
+        for (int i = 0; i < 60; i++) {
+            store.save("kanal-" + (i % 12), "meddelande " + i, start.plusSeconds(i));
+        }
+
+        // När
+        List<Message> newest = store.findNewest(25);
+
+        // Då
+        assertEquals(25, newest.size());
+        assertEquals("meddelande 59", newest.get(0).getContent());
+        List<LocalDateTime> timestamps = newest.stream().map(Message::getTimestamp).toList();
+        assertEquals(timestamps.stream().sorted(Comparator.reverseOrder()).toList(), timestamps);
+        assertEquals(IntStream.range(35, 60).mapToObj(i -> "meddelande " + i).collect(Collectors.toSet()),
+            newest.stream().map(Message::getContent).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void testScatterGatherLeavesOutUnchanneledMessages() {
+        // Givet - shard-0 är primärdatabasen och har även meddelanden utan kanal
+        new JdbcTemplate(dataSources.get(0)).update(
+            "INSERT INTO messages (content, timestamp) VALUES ('utan kanal', ?)", LocalDateTime.now().plusHours(1));
+        store.save("kanal-1", "i kanalen", LocalDateTime.now());
+
+        // När
+        List<Message> newest = store.findNewest(10);
+
+        // Då
+        assertEquals(List.of("i kanalen"), newest.stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void testMergeBreaksTimestampTiesByShard() {
+        // Givet - samma tidsstämpel och samma id på två shards
+        LocalDateTime same = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Message> first = List.of(message(7, same), message(6, same));
+        List<Message> second = List.of(message(7, same));
+        second.get(0).setContent("andra shardens m7");
+
+        // När
+        List<Message> merged = ShardedMessageStore.mergeNewestFirst(List.of(second, first), 3);
+        List<Message> swapped = ShardedMessageStore.mergeNewestFirst(List.of(first, second), 3);
+
+        // Då - shardordningen avgör, oavsett id
+        assertEquals(List.of("andra shardens m7", "m7", "m6"), merged.stream().map(Message::getContent).toList());
+        assertEquals(List.of("m7", "m6", "andra shardens m7"), swapped.stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void testMergeKeepsLimitAndOrder() {
+        // Givet
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 12, 0);
+        List<Message> a = List.of(message(1, base.plusSeconds(9)), message(2, base.plusSeconds(3)));
+        List<Message> b = List.of(message(3, base.plusSeconds(8)), message(4, base.plusSeconds(7)), message(5, base));
+        List<Message> empty = List.of();
+
+        // När
+        List<Message> merged = ShardedMessageStore.mergeNewestFirst(List.of(a, empty, b), 4);
+
+        // Då
+        assertEquals(List.of(1L, 3L, 4L, 2L), merged.stream().map(Message::getId).toList());
+        assertTrue(ShardedMessageStore.mergeNewestFirst(List.of(empty), 10).isEmpty());
+    }
+
+    private static Message message(long id, LocalDateTime timestamp) {
+        Message message = new Message("m" + id, "kanal");
+        message.setId(id);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+
+    private static HikariDataSource shardDataSource(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";MODE=MySQL");
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(4);
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("db/shard-schema.sql")), dataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,170 @@
+package org.roland.snapshot;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roland.analytics.MessageAnalytics;
+import org.roland.coherence.ChangeLog;
+import org.roland.model.Message;
+import org.roland.model.MessageRepository;
+import org.roland.service.DatabaseGuard;
+import org.roland.service.MessageQueryService;
+import org.roland.stats.HitCounter;
+import org.roland.stats.MessageRateStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WarmStartSnapshotTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @TempDir
+    private Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private ChangeLog changeLog;
+    private DatabaseGuard databaseGuard;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM message_changes");
+        changeLog = new ChangeLog(dataSource, true, "test");
+        databaseGuard = new DatabaseGuard(
+            5, Duration.ofMinutes(1), Duration.ofSeconds(5), Duration.ofSeconds(5), 2, 2, 2, 2, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseGuard.destroy();
+        messageRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM message_changes");
+    }
+
+    @Test
+    void testRestoresSavedStateAndReadsOnlyNewerMessages() throws Exception {
+        // Givet - en nod med tre meddelanden sparar sitt tillstånd och stängs
+        save("första meddelandet");
+        save("andra meddelandet");
+        save("tredje meddelandet");
+        Node before = new Node();
+        before.stats.afterSingletonsInstantiated();
+        before.analytics.rebuild().join();
+        before.queries.findAllNewestFirst();
+        before.queries.count();
+        before.counter.restore(42);
+        before.snapshot.save();
+        assertTrue(Files.size(directory.resolve("warm-state.bin")) > SnapshotFile.HEADER_BYTES);
+
+        // När - två meddelanden skrivs medan noden är nere, och en ny nod startar
+        save("fjärde meddelandet");
+        Message newest = save("femte meddelandet");
+        Node after = new Node();
+        boolean restored = after.snapshot.restore();
+        after.stats.afterSingletonsInstantiated();
+
+        // Då
+        assertTrue(restored);
+        assertEquals(42, after.counter.get());
+        assertEquals(5, after.stats.snapshot().totalMessages());
+        assertEquals(5, after.stats.snapshot().lastHour());
+        assertEquals(5, after.analytics.snapshot().messagesSeen());
+        assertEquals("meddelandet", after.analytics.snapshot().topTerms().get(0).term());
+        assertEquals(5L, after.queries.lastCount());
+        assertEquals(5, after.queries.lastList().size());
+        assertEquals(newest.getId(), after.queries.lastList().get(0).getId());
+    }
+
+    @Test
+    void testCorruptSnapshotIsIgnored() throws Exception {
+        // Givet
+        save("ett meddelande");
+        Node before = new Node();
+        before.counter.restore(7);
+        before.snapshot.save();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("warm-state.bin").toFile(), "rw")) {
+            file.seek(SnapshotFile.HEADER_BYTES + 3);
+            file.write(0x7F);
+        }
+
+        // När
+        Node after = new Node();
+        boolean restored = after.snapshot.restore();
+        after.stats.afterSingletonsInstantiated();
+
+        // Då - kallstart: räknaren orörd, statistiken från databasen
+        assertFalse(restored);
+        assertEquals(0, after.counter.get());
+        assertEquals(1, after.stats.snapshot().totalMessages());
+        assertNull(after.queries.lastCount());
+    }
+
+    @Test
+    void testDeleteAfterTheWatermarkForcesColdStart() {
+        // Givet
+        Message doomed = save("ska tas bort");
+        save("blir kvar");
+        Node before = new Node();
+        before.stats.afterSingletonsInstantiated();
+        before.counter.restore(3);
+        before.snapshot.save();
+
+        // När - en annan nod tar bort ett meddelande efter att tillståndet sparats
+        messageRepository.deleteById(doomed.getId());
+        changeLog.deleted(Map.of(doomed.getId(), doomed.getTimestamp()));
+        Node after = new Node();
+        boolean restored = after.snapshot.restore();
+        after.stats.afterSingletonsInstantiated();
+
+        // Då - räknaren återställs men meddelandestatistiken räknas om
+        assertFalse(restored);
+        assertEquals(3, after.counter.get());
+        assertEquals(1, after.stats.snapshot().totalMessages());
+    }
+
+    private Message save(String content) {
+        return messageRepository.save(new Message(content, LocalDateTime.now()));
+    }
+
+    /** One application instance's worth of the state the snapshot covers. */
+    private class Node {
+
+        final HitCounter counter = new HitCounter();
+        final MessageRateStats stats = new MessageRateStats(messageRepository);
+        final MessageAnalytics analytics = new MessageAnalytics(messageRepository, databaseGuard,
+            new SimpleMeterRegistry(), 1024, 4, 10, 10, 100, false);
+        final MessageQueryService queries = new MessageQueryService(messageRepository, databaseGuard,
+            new SimpleMeterRegistry());
+        final WarmStartSnapshot snapshot = new WarmStartSnapshot(messageRepository, counter, stats, queries,
+            analytics, changeLog,
+            () -> jdbcTemplate.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM message_changes", Long.class),
+            directory.resolve("warm-state.bin"), Duration.ofMinutes(1), Duration.ofMinutes(30), 1000, 1000, 2,
+            Clock.systemDefaultZone());
+    }
+}
@@ -0,0 +1,134 @@
+package org.roland.stats;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import org.mockito.Mockito;
+import static org.mockito.Mockito.when;
+import org.roland.dto.MessageStatsResponse;
+import org.roland.model.MessageCounts;
+import org.roland.model.MessageRepository;
+
+class MessageRateStatsTest {
+
+    private MutableClock clock;
+    private MessageRepository messageRepository;
+    private MessageRateStats stats;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        messageRepository = Mockito.mock(MessageRepository.class);
+        stats = new MessageRateStats(messageRepository, clock);
+    }
+
+    @Test
+    void testRecordUpdatesAllWindows() {
+        // När
+        stats.record();
+        stats.record();
+
+        // Då
+        MessageStatsResponse snapshot = stats.snapshot();
+        assertEquals(2, snapshot.totalMessages());
+        assertEquals(2, snapshot.lastSecond());
+        assertEquals(2, snapshot.lastMinute());
+        assertEquals(2, snapshot.lastHour());
+    }
+
+    @Test
+    void testWindowsSlideWithTime() {
+        // Givet
+        stats.record();
+
+        // När
+        clock.advance(Duration.ofSeconds(30));
+        stats.record();
+        clock.advance(Duration.ofSeconds(45));
+
+        // Då
+        MessageStatsResponse snapshot = stats.snapshot();
+        assertEquals(0, snapshot.lastSecond());
+        assertEquals(1, snapshot.lastMinute());
+        assertEquals(2, snapshot.lastHour());
+        assertEquals(2, snapshot.totalMessages());
+
+        clock.advance(Duration.ofHours(1));
+        assertEquals(0, stats.snapshot().lastHour());
+        assertEquals(2, stats.snapshot().totalMessages());
+    }
+
+    @Test
+    void testSeedsFromSingleAggregateQuery() {
+        // Givet
+        when(messageRepository.countRecent(any(), any())).thenReturn(new MessageCounts(1_000L, 90L, 500L));
+
+        // När
+        stats.afterSingletonsInstantiated();
+
+        // Då
+        MessageStatsResponse snapshot = stats.snapshot();
+        assertEquals(1_000, snapshot.totalMessages());
+        assertEquals(90, snapshot.lastMinute());
+        assertEquals(500, snapshot.lastHour());
+        assertEquals(1.5, snapshot.perSecond());
+        Mockito.verify(messageRepository).countRecent(any(), any());
+        Mockito.verifyNoMoreInteractions(messageRepository);
+    }
+
+    @Test
+    void testForgetRemovesDeletedMessagesFromTheirWindows() {
+        // Givet
+        stats.record();
+        clock.advance(Duration.ofMinutes(10));
+        stats.record();
+        stats.record();
+
+        // När - meddelandet för tio minuter sedan och ett långt äldre raderas
+        stats.forget(List.of(
+            LocalDateTime.ofInstant(clock.instant().minus(Duration.ofMinutes(10)), ZoneOffset.UTC),
+            LocalDateTime.ofInstant(clock.instant().minus(Duration.ofDays(3)), ZoneOffset.UTC)));
+
+        // Då
+        MessageStatsResponse snapshot = stats.snapshot();
+        assertEquals(2, snapshot.lastMinute());
+        assertEquals(2, snapshot.lastHour());
+        assertEquals(1, snapshot.totalMessages());
+    }
+
+    static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.roland.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+class RollingCounterTest {
+
+    @Test
+    void testSumsWindowsEndingAtNow() {
+        // Givet
+        RollingCounter counter = new RollingCounter(60, 4);
+        counter.add(1_000, 1);
+        counter.add(1_000, 1);
+        counter.add(990, 5);
+        counter.add(950, 7);
+
+        // Då
+        assertArrayEquals(new long[] {2, 7, 14}, counter.sum(1_000, 1, 30, 60));
+        assertEquals(7, counter.sum(1_000, 11));
+    }
+
+    @Test
+    void testExpiredBucketsAreIgnoredAndReused() {
+        // Givet
+        RollingCounter counter = new RollingCounter(60, 1);
+        counter.add(1_000, 3);
+
+        // När - samma bucket en hel varv senare
+        counter.add(1_060, 1);
+
+        // Då
+        assertEquals(1, counter.sum(1_060, 60));
+        assertEquals(0, counter.sum(1_200, 60));
+    }
+
+    @Test
+    void testConcurrentIncrementsAreNotLost() throws InterruptedException {
+        // Givet
+        RollingCounter counter = new RollingCounter(60, 8);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.add(500, 1);
+                }
+            }));
+        }
+
+        // När
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Då
+        assertEquals(80_000, counter.sum(500, 1));
+    }
+
+    @Test
+    void testRemoveTakesCountsFromAnyStripe() throws InterruptedException {
+        // Givet - räknat på en annan tråd, alltså troligen en annan stripe
+        RollingCounter counter = new RollingCounter(60, 8);
+        Thread.ofPlatform().start(() -> counter.add(1_000, 3)).join();
+        counter.add(1_000, 1);
+
+        // När
+        counter.remove(1_000, 3);
+        counter.remove(990, 5);
+
+        // Då
+        assertEquals(1, counter.sum(1_000, 60));
+        counter.remove(1_000, 5);
+        assertEquals(0, counter.sum(1_000, 60));
+    }
+
+    @Test
+    void testRejectsWindowLargerThanRing() {
+        RollingCounter counter = new RollingCounter(10, 1);
+        assertThrows(IllegalArgumentException.class, () -> counter.sum(0, 11));
+        assertThrows(IllegalArgumentException.class, () -> new RollingCounter(0, 1));
+    }
+}
@@ -0,0 +1,72 @@
+package org.roland.time;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-request cost of the timestamps {@code hello}, {@code info} and
+ * {@code addMessage} need: {@code LocalDateTime.now()} plus {@code toString()}
+ * against the cached values of {@link CoarseClock}. Allocated bytes come from
+ * the thread's allocation counter; times are printed, not asserted.
+ */
+@Tag("benchmark")
+class ClockAllocationBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ClockAllocationBenchmarkTest.class);
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private long sink;
+
+    @Test
+    void testCachedClockAllocatesNothingPerRequest() {
+        // Givet
+        CoarseClock clock = CoarseClock.systemDefault();
+        run(() -> LocalDateTime.now().toString().length(), WARMUP);
+        run(() -> clock.nowIso().length() + clock.now().getNano(), WARMUP);
+
+        // När
+        double[] system = measure(() -> LocalDateTime.now().toString().length());
+        double[] coarse = measure(() -> clock.nowIso().length() + clock.now().getNano());
+
+        // Då
+        log.info(String.format("Timestamp per request: LocalDateTime.now().toString() %.1f bytes, %.0f ns;"
+            + " CoarseClock %.2f bytes, %.0f ns (sink %d)", system[0], system[1], coarse[0], coarse[1], sink));
+        assertTrue(system[0] > 40, "system clock bytes/op " + system[0]);
+        assertTrue(coarse[0] < 1, "coarse clock bytes/op " + coarse[0]);
+    }
+
+    /** Returns bytes allocated and nanoseconds per call. */
+    private double[] measure(Operation operation) {
+        long threadId = Thread.currentThread().threadId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        run(operation, ITERATIONS);
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return new double[] {bytes / (double) ITERATIONS, elapsed / (double) ITERATIONS};
+    }
+
+    private void run(Operation operation, int iterations) {
+        long total = 0;
+        for (int i = 0; i < iterations; i++) {
+            total += operation.run();
+        }
+        sink += total;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        long run();
+    }
+}
@@ -0,0 +1,108 @@
+package org.roland.time;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+class CoarseClockTest {
+
+    @Test
+    void testManualClockOnlyMovesOnTick() {
+        // Givet
+        MutableClock source = new MutableClock(Instant.parse("2026-01-01T12:00:00.123456789Z"));
+        CoarseClock clock = CoarseClock.manual(source);
+
+        // När
+        source.advance(Duration.ofMillis(5));
+
+        // Då - cachad tid, trunkerad till millisekunder
+        assertEquals(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_000_000), clock.now());
+        assertEquals("2026-01-01T12:00:00.123", clock.nowIso());
+        clock.tick();
+        assertEquals("2026-01-01T12:00:00.128", clock.nowIso());
+        assertEquals(source.millis(), clock.millis());
+    }
+
+    @Test
+    void testExactNowKeepsFullPrecision() {
+        // Givet
+        MutableClock source = new MutableClock(Instant.parse("2026-01-01T12:00:00.123456789Z"));
+        CoarseClock clock = CoarseClock.manual(source);
+
+        // När
+        source.advance(Duration.ofNanos(1_000));
+
+        // Då - lagrade tidsstämplar trunkeras inte och väntar inte på tick
+        assertEquals(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_457_789), clock.exactNow());
+        assertEquals(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_000_000), clock.now());
+    }
+
+    @Test
+    void testReadsReturnTheSameCachedObjectsWithinAMillisecond() {
+        // Givet
+        MutableClock source = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        CoarseClock clock = CoarseClock.manual(source);
+        String iso = clock.nowIso();
+        LocalDateTime now = clock.now();
+
+        // När - samma millisekund
+        source.advance(Duration.ofNanos(500_000));
+        clock.tick();
+
+        // Då
+        assertSame(iso, clock.nowIso());
+        assertSame(now, clock.now());
+        assertSame(clock.instant(), clock.instant());
+    }
+
+    @Test
+    void testTickingClockFollowsTheSource() throws InterruptedException {
+        // Givet
+        MutableClock source = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        CoarseClock clock = CoarseClock.ticking(source, Duration.ofMillis(1));
+
+        // När
+        source.advance(Duration.ofSeconds(1));
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (clock.millis() != source.millis() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        // Då
+        assertEquals("2026-01-01T12:00:01", clock.nowIso());
+    }
+
+    static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.roland.web;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.roland.service.Deadline;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class RequestDeadlineFilterTest {
+
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(new RequestDeadlineProperties(
+        "X-Request-Timeout", Duration.ofSeconds(10), Duration.ofSeconds(5),
+        List.of(new RequestDeadlineProperties.Endpoint("GET", "/api/messages", Duration.ofSeconds(2)),
+            new RequestDeadlineProperties.Endpoint(null, "/api/channels/**", Duration.ofSeconds(3)))));
+
+    @Test
+    void testHeaderWinsAndIsCapped() {
+        assertEquals(Duration.ofMillis(1500), filter.timeout(request("GET", "/api/messages", "1500")));
+        assertEquals(Duration.ofMillis(250), filter.timeout(request("GET", "/api/messages", "250ms")));
+        assertEquals(Duration.ofSeconds(10), filter.timeout(request("GET", "/api/messages", "1m")));
+    }
+
+    @Test
+    void testEndpointDefaultsThenGlobalDefault() {
+        assertEquals(Duration.ofSeconds(2), filter.timeout(request("GET", "/api/messages", null)));
+        assertEquals(Duration.ofSeconds(5), filter.timeout(request("POST", "/api/messages", null)));
+        assertEquals(Duration.ofSeconds(3), filter.timeout(request("POST", "/api/channels/nyheter/messages", null)));
+    }
+
+    @Test
+    void testDeadlineIsBoundForTheRequestOnly() throws Exception {
+        // Givet
+        AtomicReference<Deadline> seen = new AtomicReference<>();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.set(Deadline.current());
+            }
+        });
+
+        // När
+        filter.doFilter(request("GET", "/api/messages", "800"), new MockHttpServletResponse(), chain);
+
+        // Då
+        assertTrue(seen.get().remaining().toMillis() <= 800);
+        assertTrue(seen.get().remaining().toMillis() > 0);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void testInvalidHeaderIsRejected() throws Exception {
+        // När
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/messages", "-5"), response, new MockFilterChain());
+
+        // Då
+        assertEquals(400, response.getStatus());
+    }
+
+    private static MockHttpServletRequest request(String method, String path, String timeout) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        if (timeout != null) {
+            request.addHeader("X-Request-Timeout", timeout);
+        }
+        return request;
+    }
+}
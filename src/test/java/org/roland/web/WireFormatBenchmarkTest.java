@@ -0,0 +1,89 @@
+package org.roland.web;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.roland.dto.MessageResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Compares the negotiated wire formats on a {@code GET /api/messages}-sized
+ * list: bytes per message and encode/decode time per message, each mapper
+ * configured as it is served. Timings are printed, not asserted.
+ */
+@Tag("benchmark")
+class WireFormatBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(WireFormatBenchmarkTest.class);
+
+    private static final int MESSAGES = 1_000;
+    private static final int WARMUP_ROUNDS = 100;
+    private static final int MEASURED_ROUNDS = 100;
+    private static final TypeReference<List<MessageResponse>> LIST = new TypeReference<>() { };
+
+    @Test
+    void testBinaryFormatsAreSmallerThanJsonAndRoundTrip() throws Exception {
+        // Givet
+        List<MessageResponse> messages = messages();
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+        mappers.put("cbor", WireFormatConfiguration.binaryMapper(Jackson2ObjectMapperBuilder.json(), new CBORFactory()));
+        mappers.put("smile", WireFormatConfiguration.binaryMapper(Jackson2ObjectMapperBuilder.json(), new SmileFactory()));
+
+        // När
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            byte[] encoded = mapper.writeValueAsBytes(messages);
+            assertEquals(messages, mapper.readValue(encoded, LIST));
+            sizes.put(entry.getKey(), encoded.length);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                mapper.readValue(mapper.writeValueAsBytes(messages), LIST);
+            }
+            long encodeNanos = 0;
+            long decodeNanos = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                byte[] bytes = mapper.writeValueAsBytes(messages);
+                long encodedAt = System.nanoTime();
+                mapper.readValue(bytes, LIST);
+                decodeNanos += System.nanoTime() - encodedAt;
+                encodeNanos += encodedAt - start;
+            }
+            long perMessage = (long) MEASURED_ROUNDS * MESSAGES;
+            log.info(String.format(
+                "Wire format %-5s: %5.1f bytes/message, encode %4d ns/message, decode %4d ns/message",
+                entry.getKey(), encoded.length / (double) MESSAGES, encodeNanos / perMessage, decodeNanos / perMessage));
+        }
+
+        // Då
+        assertTrue(sizes.get("cbor") < sizes.get("json"), "cbor " + sizes);
+        assertTrue(sizes.get("smile") < sizes.get("json"), "smile " + sizes);
+    }
+
+    private static List<MessageResponse> messages() {
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 8, 0, 0, 123_456_000);
+        List<MessageResponse> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            messages.add(new MessageResponse((long) i + 1_000_000, "Meddelande nummer " + i + " från benchmarken",
+                start.plusSeconds(i * 37L).plusNanos(i * 1_000L)));
+        }
+        return messages;
+    }
+}